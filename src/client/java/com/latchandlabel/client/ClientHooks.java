@@ -10,6 +10,7 @@ import com.latchandlabel.client.tagging.ShulkerItemCategoryBridge;
 import com.latchandlabel.client.ui.ContainerTagButtonManager;
 import com.latchandlabel.client.dump.DumpCommand;
 import com.latchandlabel.client.dump.DumpService;
+import com.latchandlabel.client.find.ChunkContainerRegistry;
 import com.latchandlabel.client.find.FindCommand;
 import com.latchandlabel.client.find.FindHighlightRenderer;
 import com.latchandlabel.client.find.FindResultState;
@@ -24,6 +25,7 @@ import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallba
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.item.v1.ItemTooltipCallback;
+import net.fabricmc.fabric.api.client.networking.v1.ClientLoginConnectionEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.level.LevelRenderEvents;
 import net.fabricmc.fabric.api.client.screen.v1.ScreenEvents;
 
@@ -42,6 +44,7 @@ public final class ClientHooks {
         BookExportInteractionHandler.register();
         BookScreenPrompt.register();
         ChestGroupSortService.register();
+        ChunkContainerRegistry.register();
         FocusedTagBillboardRenderer.registerHud();
         FindResultsHudRenderer.registerHud();
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
@@ -55,20 +58,35 @@ public final class ClientHooks {
             if (!resolvedScope.equals(lastResolvedScope)) {
                 lastResolvedScope = resolvedScope;
                 FindResultState.clear();
-                LatchLabelClientState.dataManager().setActiveScopeId(
+                // Loads on the save worker; the tag store reports isLoading() until it is done.
+                LatchLabelClientState.dataManager().switchActiveScope(
                         resolvedScope.primaryScopeId(),
-                        resolvedScope.fallbackReadScopeIds()
+                        resolvedScope.fallbackReadScopeIds(),
+                        McCompat.dimensionId(client.level)
                 );
             }
             FindResultState.expireIfDue();
+            FindResultState.pollSearch();
             LatchLabelClientState.storageTagReconciler().markScopeReady();
         });
+        // The server address is known from the connect screen on, so the scope is read while logging in.
+        ClientLoginConnectionEvents.INIT.register((handler, client) -> client.execute(() -> {
+            TagScopeResolver.ResolvedScope resolvedScope = TagScopeResolver.resolveCurrentScope(client);
+            LatchLabelClientState.dataManager().preloadScope(
+                    resolvedScope.primaryScopeId(),
+                    resolvedScope.fallbackReadScopeIds()
+            );
+        }));
         ClientTickEvents.END_CLIENT_TICK.register(BookExportInteractionHandler::onClientTick);
         ClientTickEvents.END_CLIENT_TICK.register(ChestGroupSortService::onClientTick);
         ClientTickEvents.END_CLIENT_TICK.register(DumpService::onClientTick);
         ClientTickEvents.END_CLIENT_TICK.register(LatchLabelClientState.storageTagReconciler()::onClientTick);
         ClientChunkEvents.CHUNK_LOAD.register(LatchLabelClientState.storageTagReconciler()::onChunkLoad);
+        ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> LatchLabelClientState.observedIndexStore()
+                .prefetch(McCompat.dimensionId(world), chunk.getPos().getWorldPosition()));
         ClientTickEvents.END_CLIENT_TICK.register(ShulkerItemCategoryBridge::onClientTick);
+        // Last, so changes made by the handlers above are delivered in the same tick.
+        ClientTickEvents.END_CLIENT_TICK.register(client -> LatchLabelClientState.storeEvents().flush());
 
         ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> {
             FindCommand.register(dispatcher);
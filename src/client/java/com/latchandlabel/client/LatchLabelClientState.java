@@ -6,6 +6,7 @@ import com.latchandlabel.client.config.ConfigProfileManager;
 import com.latchandlabel.client.store.CategoryLifecycleService;
 import com.latchandlabel.client.store.CategoryStore;
 import com.latchandlabel.client.store.ObservedIndexStore;
+import com.latchandlabel.client.store.StoreEventBus;
 import com.latchandlabel.client.store.TagStore;
 import com.latchandlabel.client.tagging.StorageTagReconciler;
 import com.latchandlabel.client.tooltip.ItemCategoryMappingService;
@@ -18,9 +19,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public final class LatchLabelClientState {
     private static final AtomicBoolean INITIALIZED = new AtomicBoolean(false);
-    private static final CategoryStore CATEGORY_STORE = new CategoryStore();
-    private static final TagStore TAG_STORE = new TagStore();
-    private static final ItemCategoryMappingService ITEM_CATEGORY_MAPPING_SERVICE = new ItemCategoryMappingService();
+    private static final StoreEventBus STORE_EVENTS = new StoreEventBus();
+    private static final CategoryStore CATEGORY_STORE = new CategoryStore(STORE_EVENTS);
+    private static final TagStore TAG_STORE = new TagStore(STORE_EVENTS);
+    private static final ItemCategoryMappingService ITEM_CATEGORY_MAPPING_SERVICE = new ItemCategoryMappingService(STORE_EVENTS);
     private static final ObservedIndexStore OBSERVED_INDEX_STORE = new ObservedIndexStore(TAG_STORE::getActiveScopeId);
     private static final ClientDataManager DATA_MANAGER = new ClientDataManager(CATEGORY_STORE, TAG_STORE, ITEM_CATEGORY_MAPPING_SERVICE);
     private static final ClientConfigManager CLIENT_CONFIG_MANAGER = new ClientConfigManager();
@@ -41,6 +43,11 @@ public final class LatchLabelClientState {
         DATA_MANAGER.initialize();
     }
 
+    /** Change events from the category, tag and mapping stores; flushed at the end of each client tick. */
+    public static StoreEventBus storeEvents() {
+        return STORE_EVENTS;
+    }
+
     public static CategoryStore categoryStore() {
         return CATEGORY_STORE;
     }
@@ -90,7 +90,7 @@ public final class BookExportImportService {
         if (client == null || client.player == null || client.level == null) {
             return Set.of();
         }
-        return filterTagsToNearby(client, LatchLabelClientState.tagStore().snapshotTags(),
+        return filterTagsToNearby(client, LatchLabelClientState.tagStore(),
                 origin == null ? null : Vec3.atCenterOf(origin)).keySet();
     }
 
@@ -114,8 +114,7 @@ public final class BookExportImportService {
             return ExportResult.failure(Component.translatable("latchlabel.book.error_no_writable_book"));
         }
 
-        Map<ChestKey, String> allTags = tagStore.snapshotTags();
-        Map<ChestKey, String> tags = nearby ? filterTagsToNearby(client, allTags, origin) : allTags;
+        Map<ChestKey, String> tags = nearby ? filterTagsToNearby(client, tagStore, origin) : tagStore.snapshotTags();
         String lastUsedCategoryId = tagStore.getLastUsedCategoryId().orElse(null);
         List<Category> categories = categoryStore.listAll();
         Map<Identifier, String> overrides = mappingService.snapshotOverrides();
@@ -267,7 +266,7 @@ public final class BookExportImportService {
         if (client == null || client.player == null || client.level == null) {
             return 0;
         }
-        return filterTagsToNearby(client, LatchLabelClientState.tagStore().snapshotTags(), null).size();
+        return filterTagsToNearby(client, LatchLabelClientState.tagStore(), null).size();
     }
 
     private static List<String> extractPages(ItemStack stack) {
@@ -358,7 +357,7 @@ public final class BookExportImportService {
         return COMPACT_GSON.toJson(root);
     }
 
-    private static Map<ChestKey, String> filterTagsToNearby(Minecraft client, Map<ChestKey, String> tags, Vec3 originOrNull) {
+    private static Map<ChestKey, String> filterTagsToNearby(Minecraft client, TagStore tagStore, Vec3 originOrNull) {
         if (client.player == null || client.level == null) {
             return Map.of();
         }
@@ -366,20 +365,7 @@ public final class BookExportImportService {
         Identifier dimensionId = McCompat.dimensionId(client.level);
         Vec3 origin = originOrNull != null ? originOrNull : client.player.position();
         int radius = FindSettings.defaultFindRadius();
-        double radiusSquared = (double) radius * radius;
-
-        Map<ChestKey, String> filtered = new LinkedHashMap<>();
-        for (Map.Entry<ChestKey, String> entry : tags.entrySet()) {
-            ChestKey chestKey = entry.getKey();
-            if (!chestKey.dimensionId().equals(dimensionId)) {
-                continue;
-            }
-            if (chestKey.pos().distToCenterSqr(origin) > radiusSquared) {
-                continue;
-            }
-            filtered.put(chestKey, entry.getValue());
-        }
-        return filtered;
+        return tagStore.tagsWithin(dimensionId, origin.x, origin.y, origin.z, radius);
     }
 
     private static FilteredTags filterTagsToExistingContainers(Minecraft client, Map<ChestKey, String> tags) {
@@ -532,15 +518,13 @@ public final class BookExportImportService {
         }
         categoryStore.replaceAll(existing);
 
-        int tagsImported = 0;
-        for (Map.Entry<ChestKey, String> entry : bookData.tags.entrySet()) {
-            tagStore.setTag(entry.getKey(), entry.getValue());
-            tagsImported++;
-        }
-
-        if (bookData.lastUsedCategoryId != null) {
-            tagStore.setLastUsedCategoryId(bookData.lastUsedCategoryId);
-        }
+        tagStore.batch(tags -> {
+            bookData.tags.forEach(tags::setTag);
+            if (bookData.lastUsedCategoryId != null) {
+                tags.setLastUsedCategoryId(bookData.lastUsedCategoryId);
+            }
+        });
+        int tagsImported = bookData.tags.size();
 
         Map<Identifier, String> currentOverrides = new LinkedHashMap<>(mappingService.snapshotOverrides());
         Set<Identifier> currentBlocked = new LinkedHashSet<>(mappingService.snapshotBlockedMappings());
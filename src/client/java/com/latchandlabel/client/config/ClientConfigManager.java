@@ -89,6 +89,13 @@ public final class ClientConfigManager {
         ));
         DumpSettings.setQueueMode(asBoolean(root.get("dumpQueueMode"), false));
         DumpSettings.setDumpRange(asInt(root.get("dumpRange"), 16));
+        ObservedIndexSettings.setMaxChestsPerScope(asInt(
+                root.get("observedIndexMaxChests"),
+                ObservedIndexSettings.defaultMaxChestsPerScope()
+        ));
+        ObservedIndexSettings.setMemoryBudgetMb(asInt(root.get("observedIndexMemoryBudgetMb"), 0));
+        ObservedIndexSettings.setRetainedInactiveScopes(asInt(root.get("observedIndexRetainedScopes"), 1));
+        StorageSettings.setCompressTagShards(asBoolean(root.get("compressTagShards"), false));
         KeybindSettings.setOpenPickerKeyCode(asInt(root.get("openPickerKeyCode"), 66));
         KeybindSettings.setFindShortcutKeyCode(asInt(root.get("findShortcutKeyCode"), -1));
         KeybindSettings.setMoveToStorageKeyCode(asInt(root.get("moveToStorageKeyCode"), -1));
@@ -134,6 +141,10 @@ public final class ClientConfigManager {
         ContainerDetectionSettings.setDetectedCategoryThresholdPercent(ContainerDetectionSettings.defaultDetectedCategoryThresholdPercent());
         DumpSettings.setQueueMode(false);
         DumpSettings.setDumpRange(16);
+        ObservedIndexSettings.setMaxChestsPerScope(ObservedIndexSettings.defaultMaxChestsPerScope());
+        ObservedIndexSettings.setMemoryBudgetMb(0);
+        ObservedIndexSettings.setRetainedInactiveScopes(1);
+        StorageSettings.setCompressTagShards(false);
         KeybindSettings.setOpenPickerKeyCode(66);
         KeybindSettings.setFindShortcutKeyCode(-1);
         KeybindSettings.setMoveToStorageKeyCode(-1);
@@ -163,6 +174,10 @@ public final class ClientConfigManager {
         root.addProperty("detectedCategoryThresholdPercent", ContainerDetectionSettings.detectedCategoryThresholdPercent());
         root.addProperty("dumpQueueMode", DumpSettings.queueMode());
         root.addProperty("dumpRange", DumpSettings.dumpRange());
+        root.addProperty("observedIndexMaxChests", ObservedIndexSettings.maxChestsPerScope());
+        root.addProperty("observedIndexMemoryBudgetMb", ObservedIndexSettings.memoryBudgetMb());
+        root.addProperty("observedIndexRetainedScopes", ObservedIndexSettings.retainedInactiveScopes());
+        root.addProperty("compressTagShards", StorageSettings.compressTagShards());
         root.addProperty("openPickerKeyCode", KeybindSettings.openPickerKeyCode());
         root.addProperty("findShortcutKeyCode", KeybindSettings.findShortcutKeyCode());
         root.addProperty("moveToStorageKeyCode", KeybindSettings.moveToStorageKeyCode());
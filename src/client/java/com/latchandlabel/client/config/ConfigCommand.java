@@ -5,15 +5,17 @@ import com.mojang.brigadier.arguments.StringArgumentType;
 import com.latchandlabel.client.LatchLabelClientState;
 import com.latchandlabel.client.book.BookCommand;
 import com.latchandlabel.client.data.TagScopeResolver;
+import com.latchandlabel.client.store.ObservedIndexStore;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommands;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.minecraft.client.Minecraft;
 import net.minecraft.network.chat.Component;
 
 import java.nio.file.Path;
+import java.util.Locale;
 import java.util.Optional;
 
-/** Registers the {@code /latchlabel} client command tree (reload, config export/import, book). */
+/** Registers the {@code /latchlabel} client command tree (reload, config export/import, book, debug). */
 public final class ConfigCommand {
     private ConfigCommand() {
     }
@@ -62,6 +64,11 @@ public final class ConfigCommand {
                                         ))
                                 )
                         )
+                )
+                .then(ClientCommands.literal("debug")
+                        .then(ClientCommands.literal("index")
+                                .executes(context -> showIndexStats(context.getSource()))
+                        )
                 );
 
         BookCommand.registerSubcommands(latchlabelLiteral);
@@ -76,6 +83,18 @@ public final class ConfigCommand {
         return 1;
     }
 
+    private static int showIndexStats(FabricClientCommandSource source) {
+        ObservedIndexStore.WriteBacklog backlog = LatchLabelClientState.observedIndexStore().writeBacklog();
+        source.sendFeedback(Component.translatable("latchlabel.debug.observed_backlog",
+                backlog.pendingRecords(), backlog.pendingBytes(), backlog.lagMs()));
+        for (ObservedIndexStore.ScopeStats stats : LatchLabelClientState.observedIndexStore().scopeStats()) {
+            source.sendFeedback(Component.translatable("latchlabel.debug.observed_dedup",
+                    stats.scopeId(), stats.loadedShards(), stats.chests(), stats.distinctContentSets(),
+                    String.format(Locale.ROOT, "%.1f", stats.dedupRatio())));
+        }
+        return 1;
+    }
+
     private static int exportProfile(FabricClientCommandSource source, String requestedName) {
         try {
             Path output = LatchLabelClientState.configProfileManager().exportProfile(requestedName);
@@ -26,6 +26,9 @@ import java.util.Map;
 /** Handles export and import of full configuration profiles as timestamped JSON files. */
 public final class ConfigProfileManager {
     private static final int CURRENT_VERSION = 1;
+    private static final String TAGS_FILE_NAME = "tags.json";
+    private static final String TAG_SHARDS_DIR_NAME = "tags";
+    private static final String TAG_JOURNAL_FILE_NAME = "tags.journal";
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
     private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
 
@@ -113,6 +116,10 @@ public final class ConfigProfileManager {
         return files;
     }
 
+    /**
+     * Scoped JSON files keyed by path relative to {@code scopes/}. Tag shards are binary, so each
+     * scope's tags are exported as one readable {@code tags.json} instead of the manifest and shards.
+     */
     private JsonObject readScopedFiles() {
         JsonObject scoped = new JsonObject();
         if (!Files.exists(scopesDir)) {
@@ -122,11 +129,23 @@ public final class ConfigProfileManager {
             stream
                     .filter(Files::isRegularFile)
                     .filter(path -> path.getFileName().toString().endsWith(".json"))
+                    .filter(path -> !isTagStorage(scopesDir.relativize(path)))
                     .sorted(Comparator.comparing(path -> scopesDir.relativize(path).toString()))
                     .forEach(path -> scoped.add(scopesDir.relativize(path).toString(), readJsonObject(path)));
         } catch (IOException e) {
             throw new IllegalStateException("Failed reading scoped files under " + scopesDir, e);
         }
+        try (var scopeDirs = Files.list(scopesDir)) {
+            for (Path scopeDir : scopeDirs.filter(Files::isDirectory).sorted().toList()) {
+                String scopeId = scopeDir.getFileName().toString();
+                JsonObject tags = LatchLabelClientState.dataManager().exportTagsJson(scopeId);
+                if (tags != null) {
+                    scoped.add(scopesDir.relativize(scopeDir.resolve(TAGS_FILE_NAME)).toString(), tags);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed listing scopes under " + scopesDir, e);
+        }
         return scoped;
     }
 
@@ -134,8 +153,8 @@ public final class ConfigProfileManager {
         if (scopedFilesElement == null || !scopedFilesElement.isJsonObject()) {
             return;
         }
-        JsonObject scopedFiles = scopedFilesElement.getAsJsonObject();
-        for (Map.Entry<String, JsonElement> entry : scopedFiles.entrySet()) {
+        Map<Path, JsonObject> targets = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : scopedFilesElement.getAsJsonObject().entrySet()) {
             if (!entry.getValue().isJsonObject()) {
                 continue;
             }
@@ -147,7 +166,38 @@ public final class ConfigProfileManager {
             if (!target.startsWith(scopesDir.normalize())) {
                 continue;
             }
-            writeJsonObject(target, entry.getValue().getAsJsonObject());
+            targets.put(target, entry.getValue().getAsJsonObject());
+        }
+        // An imported tags.json replaces all of the scope's tag storage, so stale shards and
+        // journal entries cannot shadow it.
+        for (Path target : targets.keySet()) {
+            if (target.getFileName().toString().equals(TAGS_FILE_NAME)) {
+                clearTagStorage(target.getParent());
+            }
+        }
+        targets.forEach(ConfigProfileManager::writeJsonObject);
+    }
+
+    /** Manifest, shards and journal; {@code relative} is under {@code scopes/}. */
+    private static boolean isTagStorage(Path relative) {
+        return relative.getNameCount() >= 2
+                && (relative.getName(1).toString().equals(TAG_SHARDS_DIR_NAME)
+                || relative.getName(1).toString().equals(TAGS_FILE_NAME));
+    }
+
+    private static void clearTagStorage(Path scopeDir) {
+        Path shardsDir = scopeDir.resolve(TAG_SHARDS_DIR_NAME);
+        try {
+            if (Files.isDirectory(shardsDir)) {
+                try (var walk = Files.walk(shardsDir)) {
+                    for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(path);
+                    }
+                }
+            }
+            Files.deleteIfExists(scopeDir.resolve(TAG_JOURNAL_FILE_NAME));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed clearing tag storage under " + scopeDir, e);
         }
     }
 
@@ -0,0 +1,44 @@
+package com.latchandlabel.client.config;
+
+/** Runtime limits for the per-scope observed-contents index used by content {@code /find}. */
+public final class ObservedIndexSettings {
+    private static final int DEFAULT_MAX_CHESTS_PER_SCOPE = 4096;
+    private static final int MIN_MAX_CHESTS_PER_SCOPE = 64;
+    private static int maxChestsPerScope = DEFAULT_MAX_CHESTS_PER_SCOPE;
+    private static int memoryBudgetMb = 0;
+    private static int retainedInactiveScopes = 1;
+
+    private ObservedIndexSettings() {
+    }
+
+    /** Hard cap on chests indexed per scope. */
+    public static int maxChestsPerScope() {
+        return maxChestsPerScope;
+    }
+
+    public static void setMaxChestsPerScope(int maxChests) {
+        maxChestsPerScope = Math.max(MIN_MAX_CHESTS_PER_SCOPE, maxChests);
+    }
+
+    public static int defaultMaxChestsPerScope() {
+        return DEFAULT_MAX_CHESTS_PER_SCOPE;
+    }
+
+    /** Estimated heap budget per scope in MB. 0 = no budget (only the chest cap applies). */
+    public static int memoryBudgetMb() {
+        return memoryBudgetMb;
+    }
+
+    public static void setMemoryBudgetMb(int megabytes) {
+        memoryBudgetMb = Math.max(0, megabytes);
+    }
+
+    /** Scopes kept resident besides the active one, most recently used first; older ones are flushed and unloaded. */
+    public static int retainedInactiveScopes() {
+        return retainedInactiveScopes;
+    }
+
+    public static void setRetainedInactiveScopes(int scopes) {
+        retainedInactiveScopes = Math.max(0, scopes);
+    }
+}
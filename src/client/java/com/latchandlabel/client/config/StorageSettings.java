@@ -0,0 +1,21 @@
+package com.latchandlabel.client.config;
+
+/** Runtime settings for how scoped data is written to disk. */
+public final class StorageSettings {
+    private static boolean compressTagShards = false;
+
+    private StorageSettings() {
+    }
+
+    /**
+     * Gzip tag shards when they are written. Shards are read either way, so toggling this only
+     * affects shards written afterwards.
+     */
+    public static boolean compressTagShards() {
+        return compressTagShards;
+    }
+
+    public static void setCompressTagShards(boolean value) {
+        compressTagShards = value;
+    }
+}
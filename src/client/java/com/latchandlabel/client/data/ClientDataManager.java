@@ -7,10 +7,16 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.latchandlabel.client.LatchLabel;
+import com.latchandlabel.client.config.StorageSettings;
 import com.latchandlabel.client.model.Category;
 import com.latchandlabel.client.model.ChestKey;
+import com.latchandlabel.client.model.RegionKey;
 import com.latchandlabel.client.store.CategoryStore;
+import com.latchandlabel.client.store.StoreEvent;
+import com.latchandlabel.client.store.StoreEventBus;
 import com.latchandlabel.client.store.TagStore;
 import com.latchandlabel.client.tooltip.ItemCategoryMappingService;
 import net.fabricmc.loader.api.FabricLoader;
@@ -18,6 +24,8 @@ import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.Identifier;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
@@ -25,26 +33,58 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * Manages persistence of categories, tags, and item-category overrides to disk.
  * Data is scoped per-world/server and saved with a debounce to avoid excessive I/O.
  * Handles legacy migration from older flat-file formats to the current scoped layout.
+ *
+ * <p>A scope's tags are sharded by dimension and 512×512 region under {@code tags/}
+ * ({@link RegionKey}), with {@code tags.json} kept as a small manifest. A flush compares each
+ * shard with what was last written and rewrites only the ones that changed, so tagging one chest
+ * on a large server touches one small file. Shards are binary ({@link TagShardCodec}), optionally
+ * gzipped per {@link StorageSettings#compressTagShards()}, and the manifest is written without
+ * pretty printing; {@link #exportTagsJson} gives the readable form. JSON shards from before the
+ * binary format are rewritten when their scope loads. Version-1 manifests that still carry every
+ * tag inline are read as-is and move into shards on the next write.
+ *
+ * <p>A debounced save does not touch the shards at all. It appends the chests that changed since
+ * the last save (tracked from {@link StoreEvent.TagChanged} events) to the scope's
+ * {@link TagJournal}. The journal is compacted into the shards once it passes
+ * {@link #TAG_JOURNAL_COMPACT_BYTES}, and on {@link #flushNow}, scope switches and close; loading
+ * replays it over the shards, so a crash loses at most the debounce window.
+ * {@code categories_and_overrides.json} is rewritten only when its content differs from what was
+ * last read or written.
+ *
+ * <p>On a scope switch the player's dimension is read first and the scope's other dimensions
+ * follow on the save worker ({@link #completePendingTagLoad}); tag JSON is read with a streaming
+ * {@link JsonReader}, and each file's parse time is logged at debug level.
  */
 public final class ClientDataManager implements AutoCloseable {
     private static final int CURRENT_VERSION = 1;
+    private static final int SHARDED_TAGS_VERSION = 2;
+    private static final int BINARY_SHARDS_VERSION = 3;
     private static final long SAVE_DEBOUNCE_MS = 1_000L;
     private static final Identifier FALLBACK_ICON_ITEM_ID = Objects.requireNonNull(
             Identifier.tryParse("minecraft:stone"),
@@ -52,12 +92,21 @@ public final class ClientDataManager implements AutoCloseable {
     );
     private static final String SCOPES_DIR_NAME = "scopes";
     private static final String TAGS_FILE_NAME = "tags.json";
+    private static final String TAG_SHARDS_DIR_NAME = "tags";
+    private static final String TAG_SHARD_SUFFIX = ".lls";
+    private static final String LEGACY_TAG_SHARD_SUFFIX = ".json";
+    private static final String TAG_JOURNAL_FILE_NAME = "tags.journal";
+    private static final long TAG_JOURNAL_COMPACT_BYTES = 256L * 1024L;
     private static final String CATEGORIES_AND_OVERRIDES_FILE_NAME = "categories_and_overrides.json";
 
+    // Pretty for files users read or hand-edit; compact for the tag manifest.
     private static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
             .disableHtmlEscaping()
             .create();
+    private static final Gson COMPACT_GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
     private static final Set<String> LEGACY_DEFAULT_CATEGORY_IDS = Set.of(
             "blocks", "decor", "redstone", "tools_utility", "gear",
             "food_brewing", "materials", "containers_stations", "special_spawn"
@@ -85,6 +134,8 @@ public final class ClientDataManager implements AutoCloseable {
     private final ScheduledExecutorService saveExecutor;
     private final Object saveLock = new Object();
     private final Object flushLock = new Object();
+    // Active-scope chests changed since the last save; guarded by saveLock.
+    private final Set<ChestKey> dirtyTagKeys = new HashSet<>();
 
     private String activeScopeId = TagStore.DEFAULT_SCOPE_ID;
     private List<String> activeFallbackReadScopeIds = List.of();
@@ -92,6 +143,24 @@ public final class ClientDataManager implements AutoCloseable {
     private boolean initialized;
     private boolean closed;
     private boolean suppressSaveScheduling;
+    // What the tag shards and manifest of writtenTagsScopeId hold on disk; guarded by flushLock.
+    private String writtenTagsScopeId;
+    private Map<RegionKey, Map<ChestKey, String>> writtenTagShards = Map.of();
+    private JsonObject writtenTagManifest;
+    // What categories_and_overrides.json of writtenCategoriesScopeId holds; guarded by flushLock.
+    private String writtenCategoriesScopeId;
+    private JsonObject writtenCategoriesRoot;
+    // Whether the active scope's last-used category changed since the last save; guarded by saveLock.
+    private boolean lastUsedDirty;
+    // Dimensions of the active scope not read yet by a partial loadTags; guarded by flushLock.
+    private PendingTagLoad pendingTagLoad;
+    // The latest scope switch running on the save worker, and whether its scope is still being
+    // read (debounced saves wait for it); guarded by saveLock.
+    private CompletableFuture<Void> scopeSwitch = CompletableFuture.completedFuture(null);
+    private boolean scopeLoading;
+    // Scopes read ahead by preloadScope, empty when the scope has no tags file; guarded by flushLock.
+    private final Map<String, Optional<ScopedTags>> preloadedTags = new HashMap<>();
+    private volatile Thread saveThread;
 
     public ClientDataManager(
             CategoryStore categoryStore,
@@ -125,6 +194,7 @@ public final class ClientDataManager implements AutoCloseable {
         ThreadFactory threadFactory = runnable -> {
             Thread thread = new Thread(runnable, "latchlabel-save-worker");
             thread.setDaemon(true);
+            saveThread = thread;
             return thread;
         };
         this.saveExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
@@ -145,9 +215,11 @@ public final class ClientDataManager implements AutoCloseable {
 
         loadActiveScopeData();
 
-        categoryStore.setChangeListener(this::scheduleSave);
-        tagStore.setChangeListener(this::scheduleSave);
-        itemCategoryMappingService.setChangeListener(this::scheduleSave);
+        Set<StoreEventBus> buses = Collections.newSetFromMap(new IdentityHashMap<>());
+        buses.add(categoryStore.events());
+        buses.add(tagStore.events());
+        buses.add(itemCategoryMappingService.events());
+        buses.forEach(bus -> bus.subscribe(this::onStoreEvents));
 
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdownFlush, "latchlabel-save-shutdown"));
         LatchLabel.LOGGER.info("Loaded scoped client data from {}", scopesDir);
@@ -158,23 +230,41 @@ public final class ClientDataManager implements AutoCloseable {
     }
 
     public void setActiveScopeId(String scopeId, List<String> fallbackReadScopeIds) {
+        setActiveScopeId(scopeId, fallbackReadScopeIds, null);
+    }
+
+    /**
+     * Switches scopes and waits until the new scope is loaded. See {@link #switchActiveScope}.
+     */
+    public void setActiveScopeId(String scopeId, List<String> fallbackReadScopeIds, Identifier priorityDimensionId) {
+        switchActiveScope(scopeId, fallbackReadScopeIds, priorityDimensionId).join();
+    }
+
+    /**
+     * Switches scopes without blocking the caller: the tag store moves to the new scope right
+     * away, empty and {@link TagStore#isLoading loading}, while the save worker writes the old
+     * scope and reads the new one, {@code priorityDimensionId} (the player's dimension, nullable)
+     * first. Edits made meanwhile are kept over what is read. The future completes once the
+     * scope's tags for {@code priorityDimensionId} are in the store.
+     */
+    public CompletableFuture<Void> switchActiveScope(String scopeId, List<String> fallbackReadScopeIds, Identifier priorityDimensionId) {
         String normalizedScopeId = normalizeScopeId(scopeId);
         List<String> normalizedFallbackScopeIds = normalizeFallbackScopeIds(normalizedScopeId, fallbackReadScopeIds);
 
         synchronized (saveLock) {
             if (closed || !initialized) {
-                return;
+                return CompletableFuture.completedFuture(null);
             }
             if (Objects.equals(activeScopeId, normalizedScopeId)
                     && Objects.equals(activeFallbackReadScopeIds, normalizedFallbackScopeIds)) {
                 LatchLabel.LOGGER.debug("[DataManager] setActiveScopeId: no change (scope={})", normalizedScopeId);
-                return;
+                return scopeSwitch;
             }
             if (Objects.equals(activeScopeId, normalizedScopeId)) {
                 LatchLabel.LOGGER.debug("[DataManager] setActiveScopeId: fallbacks updated for scope={}", normalizedScopeId);
                 activeFallbackReadScopeIds = normalizedFallbackScopeIds;
                 tagStore.setActiveScopeId(activeScopeId, activeFallbackReadScopeIds);
-                return;
+                return scopeSwitch;
             }
             LatchLabel.LOGGER.info("[DataManager] scope changing: {} -> {} (fallbacks={})",
                     activeScopeId, normalizedScopeId, normalizedFallbackScopeIds.size());
@@ -182,17 +272,108 @@ public final class ClientDataManager implements AutoCloseable {
                 pendingSave.cancel(false);
                 pendingSave = null;
             }
-            // Suppress new saves from the window between releasing saveLock here and
-            // runWithSaveSchedulingSuppressed restoring it after loadActiveScopeData completes.
-            suppressSaveScheduling = true;
+            String previousScopeId = activeScopeId;
+            activeScopeId = normalizedScopeId;
+            activeFallbackReadScopeIds = normalizedFallbackScopeIds;
+            clearDirtyTags();
+            scopeLoading = true;
+            tagStore.expectLoadedTags(normalizedScopeId);
+            tagStore.setActiveScopeId(normalizedScopeId, normalizedFallbackScopeIds);
+            scopeSwitch = CompletableFuture.runAsync(
+                    () -> finishScopeSwitch(previousScopeId, normalizedScopeId, priorityDimensionId), saveExecutor);
+            return scopeSwitch;
+        }
+    }
+
+    /**
+     * The save-worker half of {@link #switchActiveScope}. Switches queue behind each other, so a
+     * scope switched away from before it was read is neither written nor loaded here.
+     */
+    private void finishScopeSwitch(String previousScopeId, String scopeId, Identifier priorityDimensionId) {
+        long startedAt = System.nanoTime();
+        try {
+            synchronized (flushLock) {
+                if (Objects.equals(writtenTagsScopeId, previousScopeId)) {
+                    PersistenceSnapshot snapshot = snapshotForScope(previousScopeId);
+                    writeCategoriesAndOverrides(snapshot);
+                    writeTags(snapshot);
+                }
+            }
+        } catch (RuntimeException e) {
+            LatchLabel.LOGGER.error("[DataManager] Failed to save scope {} before switching", previousScopeId, e);
         }
 
-        flushNow();
         synchronized (saveLock) {
-            activeScopeId = normalizedScopeId;
-            activeFallbackReadScopeIds = normalizedFallbackScopeIds;
+            if (closed || !Objects.equals(activeScopeId, scopeId)) {
+                return;
+            }
+        }
+        boolean dirty;
+        try {
+            runWithSaveSchedulingSuppressed(() -> loadActiveScopeData(priorityDimensionId));
+        } finally {
+            synchronized (saveLock) {
+                scopeLoading = false;
+                dirty = !dirtyTagKeys.isEmpty() || lastUsedDirty;
+            }
+        }
+        LatchLabel.LOGGER.info("[DataManager] Switched to scope {} in {} ms", scopeId, elapsedMs(startedAt));
+        if (dirty) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Reads a scope and its fallbacks on the save worker ahead of a switch to it, e.g. while the
+     * client is still connecting, so {@link #switchActiveScope} finds them parsed. A read is
+     * dropped when its scope is written, and unused reads are dropped by the next tag load.
+     */
+    public CompletableFuture<Void> preloadScope(String scopeId, List<String> fallbackReadScopeIds) {
+        String normalizedScopeId = normalizeScopeId(scopeId);
+        List<String> scopeIds = new ArrayList<>();
+        scopeIds.add(normalizedScopeId);
+        scopeIds.addAll(normalizeFallbackScopeIds(normalizedScopeId, fallbackReadScopeIds));
+        synchronized (saveLock) {
+            if (closed || !initialized) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        return CompletableFuture.runAsync(() -> {
+            for (String id : scopeIds) {
+                synchronized (flushLock) {
+                    if (preloadedTags.containsKey(id) || Objects.equals(writtenTagsScopeId, id)) {
+                        continue;
+                    }
+                    long startedAt = System.nanoTime();
+                    ScopedTags scopedTags = loadScopedTags(id);
+                    preloadedTags.put(id, Optional.ofNullable(scopedTags));
+                    LatchLabel.LOGGER.debug("[DataManager] Preloaded scope {} in {} ms ({} tags)", id, elapsedMs(startedAt),
+                            scopedTags == null ? 0 : scopedTags.tags().size());
+                }
+            }
+        }, saveExecutor).exceptionally(e -> {
+            LatchLabel.LOGGER.warn("[DataManager] Failed to preload scope {}", normalizedScopeId, e);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for a {@link #switchActiveScope} in flight, so callers that read or write the active
+     * scope see it loaded. A no-op on the save worker, which runs the switch itself.
+     */
+    private void awaitScopeSwitch() {
+        if (Thread.currentThread() == saveThread) {
+            return;
+        }
+        CompletableFuture<Void> pending;
+        synchronized (saveLock) {
+            pending = scopeSwitch;
+        }
+        try {
+            pending.join();
+        } catch (CompletionException | CancellationException e) {
+            LatchLabel.LOGGER.warn("[DataManager] Scope switch failed", e);
         }
-        runWithSaveSchedulingSuppressed(this::loadActiveScopeData);
     }
 
     public void scheduleSave() {
@@ -208,7 +389,33 @@ public final class ClientDataManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Schedules a save when a batch holds an edit. Scope switches and wholesale category replaces
+     * come from loads (which write what they migrate themselves) or from callers that schedule
+     * their own save, so they alone do not dirty the scope.
+     */
+    private void onStoreEvents(List<StoreEvent> events) {
+        boolean edited = false;
+        synchronized (saveLock) {
+            for (StoreEvent event : events) {
+                if (event instanceof StoreEvent.TagChanged changed && changed.scopeId().equals(activeScopeId)) {
+                    dirtyTagKeys.add(changed.key());
+                } else if (event instanceof StoreEvent.LastUsedCategoryChanged changed
+                        && changed.scopeId().equals(activeScopeId)) {
+                    lastUsedDirty = true;
+                }
+                edited |= !(event instanceof StoreEvent.ScopeSwitched)
+                        && !(event instanceof StoreEvent.CategoriesReplaced)
+                        && !(event instanceof StoreEvent.TagsLoaded);
+            }
+        }
+        if (edited) {
+            scheduleSave();
+        }
+    }
+
     public void flushNow() {
+        awaitScopeSwitch();
         synchronized (flushLock) {
             String scopeId;
             boolean hadPending;
@@ -222,6 +429,7 @@ public final class ClientDataManager implements AutoCloseable {
                     pendingSave = null;
                 }
                 scopeId = activeScopeId;
+                clearDirtyTags();
             }
 
             PersistenceSnapshot snapshot = snapshotForScope(scopeId);
@@ -231,7 +439,66 @@ public final class ClientDataManager implements AutoCloseable {
         }
     }
 
+    /**
+     * The debounced save: writes categories and overrides if they changed and appends the dirty
+     * chests to the tag journal, compacting it into the shards once it is large enough. Falls
+     * back to a full {@link #writeTags} when the scope has no shards written yet or the append fails.
+     */
+    void flushIncremental() {
+        synchronized (flushLock) {
+            String scopeId;
+            Set<ChestKey> dirtyKeys;
+            boolean lastUsedChanged;
+            synchronized (saveLock) {
+                if (closed || scopeLoading) {
+                    // A loading scope is saved once the switch has read it.
+                    return;
+                }
+                if (pendingSave != null) {
+                    pendingSave.cancel(false);
+                    pendingSave = null;
+                }
+                scopeId = activeScopeId;
+                dirtyKeys = Set.copyOf(dirtyTagKeys);
+                lastUsedChanged = lastUsedDirty;
+                clearDirtyTags();
+            }
+
+            PersistenceSnapshot snapshot = snapshotForScope(scopeId);
+            writeCategoriesAndOverrides(snapshot);
+            if (!Objects.equals(writtenTagsScopeId, scopeId) || writtenTagManifest == null) {
+                writeTags(snapshot);
+                return;
+            }
+
+            Map<ChestKey, String> deltas = new LinkedHashMap<>();
+            for (ChestKey key : dirtyKeys) {
+                deltas.put(key, snapshot.tags().get(key));
+            }
+            TagJournal journal = new TagJournal(tagJournalPathForScope(scopeId));
+            try {
+                journal.append(deltas, lastUsedChanged, snapshot.lastUsedCategoryId());
+            } catch (IOException e) {
+                LatchLabel.LOGGER.warn("[DataManager] Failed appending to tag journal for scope {}, compacting instead", scopeId, e);
+                writeTags(snapshot);
+                return;
+            }
+            LatchLabel.LOGGER.debug("[DataManager] journaled {} tag changes for scope {} ({} bytes)",
+                    deltas.size(), scopeId, journal.bytesOnDisk());
+            if (journal.bytesOnDisk() > TAG_JOURNAL_COMPACT_BYTES) {
+                writeTags(snapshot);
+            }
+        }
+    }
+
+    /** Caller holds saveLock. */
+    private void clearDirtyTags() {
+        dirtyTagKeys.clear();
+        lastUsedDirty = false;
+    }
+
     public void reloadFromDisk() {
+        awaitScopeSwitch();
         synchronized (saveLock) {
             if (closed || !initialized) {
                 return;
@@ -240,11 +507,16 @@ public final class ClientDataManager implements AutoCloseable {
                 pendingSave.cancel(false);
                 pendingSave = null;
             }
+            clearDirtyTags();
+        }
+        synchronized (flushLock) {
+            preloadedTags.clear();
         }
         runWithSaveSchedulingSuppressed(this::loadActiveScopeData);
     }
 
     public void reloadCategoriesFromDisk() {
+        awaitScopeSwitch();
         synchronized (saveLock) {
             if (closed || !initialized) {
                 return;
@@ -253,11 +525,13 @@ public final class ClientDataManager implements AutoCloseable {
                 pendingSave.cancel(false);
                 pendingSave = null;
             }
+            clearDirtyTags();
         }
         runWithSaveSchedulingSuppressed(this::loadCategoriesAndOverrides);
     }
 
     public void reloadTagsFromDisk() {
+        awaitScopeSwitch();
         synchronized (saveLock) {
             if (closed || !initialized) {
                 return;
@@ -266,12 +540,44 @@ public final class ClientDataManager implements AutoCloseable {
                 pendingSave.cancel(false);
                 pendingSave = null;
             }
+            clearDirtyTags();
+        }
+        synchronized (flushLock) {
+            preloadedTags.clear();
         }
         runWithSaveSchedulingSuppressed(this::loadTags);
     }
 
+    /**
+     * The scope's tags as one readable JSON object in the version-1 inline layout
+     * ({@code "minecraft:overworld|x,y,z": "category"}), which {@link #loadTags} still accepts as a
+     * manifest. Reads what is on disk, so callers flush first. Null if the scope has no tags file.
+     */
+    public JsonObject exportTagsJson(String scopeId) {
+        ScopedTags scopedTags;
+        synchronized (flushLock) {
+            scopedTags = loadScopedTags(normalizeScopeId(scopeId));
+        }
+        if (scopedTags == null) {
+            return null;
+        }
+        Map<String, String> sortedTags = new TreeMap<>();
+        scopedTags.tags().forEach((key, categoryId) -> sortedTags.put(key.toStringKey(), categoryId));
+
+        JsonObject root = new JsonObject();
+        root.addProperty("version", CURRENT_VERSION);
+        if (scopedTags.lastUsedCategoryId() != null && !scopedTags.lastUsedCategoryId().isBlank()) {
+            root.addProperty("lastUsedCategoryId", scopedTags.lastUsedCategoryId());
+        }
+        JsonObject tagsObject = new JsonObject();
+        sortedTags.forEach(tagsObject::addProperty);
+        root.add("tags", tagsObject);
+        return root;
+    }
+
     @Override
     public void close() {
+        awaitScopeSwitch();
         synchronized (flushLock) {
             String scopeId;
             synchronized (saveLock) {
@@ -303,7 +609,7 @@ public final class ClientDataManager implements AutoCloseable {
 
     private void flushSafely() {
         try {
-            flushNow();
+            flushIncremental();
         } catch (Exception e) {
             LatchLabel.LOGGER.error("Failed to flush debounced client data", e);
         }
@@ -323,6 +629,10 @@ public final class ClientDataManager implements AutoCloseable {
     }
 
     private void loadActiveScopeData() {
+        loadActiveScopeData(null);
+    }
+
+    private void loadActiveScopeData(Identifier priorityDimensionId) {
         String scopeId;
         List<String> fallbackIds;
         synchronized (saveLock) {
@@ -331,7 +641,7 @@ public final class ClientDataManager implements AutoCloseable {
         }
         tagStore.setActiveScopeId(scopeId, fallbackIds);
         loadCategoriesAndOverrides();
-        loadTags();
+        loadTags(priorityDimensionId);
     }
 
     private void loadCategoriesAndOverrides() {
@@ -402,6 +712,12 @@ public final class ClientDataManager implements AutoCloseable {
 
         categoryStore.replaceAll(categories);
         itemCategoryMappingService.applyScopedOverrides(parsedOverrides.overrides(), parsedOverrides.blocked());
+        if (filePath.equals(categoriesAndOverridesFilePathForScope(activeScopeId))) {
+            synchronized (flushLock) {
+                writtenCategoriesScopeId = activeScopeId;
+                writtenCategoriesRoot = root;
+            }
+        }
     }
 
     private void loadLegacyCategoriesAndOverrides() {
@@ -419,6 +735,18 @@ public final class ClientDataManager implements AutoCloseable {
     }
 
     private void loadTags() {
+        loadTags(null);
+    }
+
+    /**
+     * Loads the active and fallback scopes' tags into the tag store. With a
+     * {@code priorityDimensionId}, only that dimension of the active scope is read here; the rest
+     * is left to {@link #completePendingTagLoad} on the save worker, which any write runs first.
+     */
+    private void loadTags(Identifier priorityDimensionId) {
+        synchronized (flushLock) {
+            pendingTagLoad = null;
+        }
         LinkedHashSet<String> readScopes = new LinkedHashSet<>();
         readScopes.add(activeScopeId);
         readScopes.addAll(activeFallbackReadScopeIds);
@@ -428,14 +756,23 @@ public final class ClientDataManager implements AutoCloseable {
         boolean loadedAnyScope = false;
         boolean loadedActiveScope = false;
 
+        ScopedTags activeScopedTags = null;
         for (String scopeId : readScopes) {
-            ScopedTags scopedTags = loadScopedTags(scopeId);
+            boolean active = Objects.equals(scopeId, activeScopeId);
+            Optional<ScopedTags> preloaded;
+            synchronized (flushLock) {
+                preloaded = preloadedTags.remove(scopeId);
+            }
+            ScopedTags scopedTags = preloaded != null
+                    ? preloaded.orElse(null)
+                    : loadScopedTags(scopeId, active ? priorityDimensionId : null);
             if (scopedTags == null) {
                 continue;
             }
             loadedAnyScope = true;
-            if (Objects.equals(scopeId, activeScopeId)) {
+            if (active) {
                 loadedActiveScope = true;
+                activeScopedTags = scopedTags;
             }
             tagsByScope.put(scopeId, new HashMap<>(scopedTags.tags()));
             if (scopedTags.lastUsedCategoryId() != null && !scopedTags.lastUsedCategoryId().isBlank()) {
@@ -443,6 +780,15 @@ public final class ClientDataManager implements AutoCloseable {
             }
         }
 
+        synchronized (flushLock) {
+            preloadedTags.clear();
+            writtenTagsScopeId = activeScopeId;
+            writtenTagShards = activeScopedTags == null ? Map.of() : activeScopedTags.shards();
+            writtenTagManifest = activeScopedTags == null ? null : activeScopedTags.manifest();
+        }
+        boolean journalDamaged = activeScopedTags != null && activeScopedTags.journalDamaged();
+        boolean legacyShards = activeScopedTags != null && activeScopedTags.legacyShards();
+
         if (!loadedAnyScope && Files.exists(legacyTagsFilePath)) {
             ScopedTags legacyTags = loadLegacyTags(activeScopeId);
             boolean hasData = !legacyTags.tags().isEmpty()
@@ -482,37 +828,253 @@ public final class ClientDataManager implements AutoCloseable {
 
         tagsByScope.computeIfAbsent(activeScopeId, unused -> new HashMap<>());
         tagStore.replaceAllScopes(tagsByScope, lastUsedByScope, activeScopeId, activeFallbackReadScopeIds);
-        if (migratedFromFallback || !loadedAnyScope) {
+        if (activeScopedTags != null && activeScopedTags.deferredDimensionId() != null) {
+            PendingTagLoad pending = new PendingTagLoad(activeScopeId, activeScopedTags.deferredDimensionId());
+            tagStore.expectLoadedTags(activeScopeId);
+            synchronized (flushLock) {
+                pendingTagLoad = pending;
+            }
+            saveExecutor.execute(this::completePendingTagLoadSafely);
+        } else {
+            // Ends a load started by switchActiveScope; edits made during it are in the store.
+            tagStore.mergeLoadedTags(activeScopeId, Map.of());
+        }
+        if (legacyShards) {
+            migrateLegacyTagShards(activeScopeId);
+        } else if (migratedFromFallback || !loadedAnyScope || journalDamaged) {
             writeTags(snapshotForScope(activeScopeId));
         }
     }
 
+    /** Rewrites every shard of the scope in the binary format, then drops the JSON shards. */
+    private void migrateLegacyTagShards(String scopeId) {
+        synchronized (flushLock) {
+            writtenTagShards = Map.of();
+            writeTags(snapshotForScope(scopeId));
+            Path shardsDir = tagShardsDirForScope(scopeId);
+            List<Path> legacyFiles = listTagShardFiles(shardsDir, LEGACY_TAG_SHARD_SUFFIX);
+            for (Path legacyFile : legacyFiles) {
+                try {
+                    Files.deleteIfExists(legacyFile);
+                } catch (IOException e) {
+                    LatchLabel.LOGGER.warn("[DataManager] Could not delete migrated tag shard {}", legacyFile, e);
+                }
+            }
+            LatchLabel.LOGGER.info("[DataManager] Migrated {} JSON tag shards of scope {} to the binary format",
+                    legacyFiles.size(), scopeId);
+        }
+    }
+
     private ScopedTags loadScopedTags(String scopeId) {
+        return loadScopedTags(scopeId, null);
+    }
+
+    /**
+     * Reads a scope's manifest, shards and journal. With {@code priorityDimensionId}, only that
+     * dimension's shards are read and the result names it as deferred, unless the scope still has
+     * JSON shards or a damaged journal, which are only handled by a full load.
+     */
+    private ScopedTags loadScopedTags(String scopeId, Identifier priorityDimensionId) {
         Path filePath = tagsFilePathForScope(scopeId);
         if (!Files.exists(filePath)) {
             return null;
         }
+        Path shardsDir = tagShardsDirForScope(scopeId);
+        Path priorityDir = priorityDimensionId == null
+                || !listTagShardFiles(shardsDir, LEGACY_TAG_SHARD_SUFFIX).isEmpty()
+                ? null
+                : new RegionKey(priorityDimensionId, 0, 0).resolve(shardsDir, TAG_SHARD_SUFFIX).getParent();
 
-        JsonObject root;
+        TagsFile manifestFile;
         try {
-            root = readJsonObject(filePath);
+            manifestFile = readTagsFile(filePath);
         } catch (IllegalStateException e) {
-            LatchLabel.LOGGER.warn("Invalid scoped tags file {}, using empty state", filePath, e);
-            return ScopedTags.empty();
-        }
-        int version = parseVersion(root, filePath);
-
-        Map<ChestKey, String> parsedTags = parseTagsObject(root.get("tags"), filePath);
-        String lastUsedCategoryId = remapLegacyCategoryId(asString(root.get("lastUsedCategoryId")));
-
-        if (version != CURRENT_VERSION) {
+            // The manifest only holds lastUsedCategoryId now; the tags themselves live in the shards.
+            LatchLabel.LOGGER.warn("Invalid scoped tags file {}, reading tag shards only", filePath, e);
+            LoadedShards loaded = loadTagShards(shardsDir, null);
+            Map<ChestKey, String> shardTags = new HashMap<>();
+            loaded.shards().values().forEach(shardTags::putAll);
+            JournalReplay replay = replayTagJournal(scopeId, shardTags, null);
+            return new ScopedTags(shardTags, replay.lastUsedCategoryId(), loaded.shards(), null,
+                    replay.damaged(), loaded.legacy(), null);
+        }
+        int version = manifestFile.version();
+
+        // Version 1 kept every tag inline in the manifest; shards are newer, so they win.
+        Map<ChestKey, String> parsedTags = manifestFile.tags();
+        LoadedShards loaded = loadTagShards(priorityDir == null ? shardsDir : priorityDir, null);
+        for (Map<ChestKey, String> shard : loaded.shards().values()) {
+            parsedTags.putAll(shard);
+        }
+        String lastUsedCategoryId = remapLegacyCategoryId(manifestFile.lastUsedCategoryId());
+        JournalReplay replay = replayTagJournal(scopeId, parsedTags, lastUsedCategoryId);
+        if (priorityDir != null && replay.damaged()) {
+            LoadedShards rest = loadTagShards(shardsDir, priorityDir);
+            rest.shards().values().forEach(parsedTags::putAll);
+            Map<RegionKey, Map<ChestKey, String>> allShards = new HashMap<>(loaded.shards());
+            allShards.putAll(rest.shards());
+            loaded = new LoadedShards(allShards, false);
+            priorityDir = null;
+        }
+
+        if (version != CURRENT_VERSION && version != SHARDED_TAGS_VERSION && version != BINARY_SHARDS_VERSION) {
             LatchLabel.LOGGER.warn(
                     "Unsupported tags version {} in {}; using compatibility load path",
                     version,
                     filePath
             );
         }
-        return new ScopedTags(parsedTags, lastUsedCategoryId);
+        return new ScopedTags(parsedTags, replay.lastUsedCategoryId(), loaded.shards(), manifestFile.manifest(),
+                replay.damaged(), loaded.legacy(), priorityDir == null ? null : priorityDimensionId);
+    }
+
+    /**
+     * Reads the shards a partial {@link #loadTags} skipped, replays the journal over them and
+     * merges them into the tag store. Runs on the save worker, and from {@link #snapshotForScope}
+     * so no write ever works from a half-loaded scope.
+     */
+    void completePendingTagLoad() {
+        synchronized (flushLock) {
+            PendingTagLoad pending = pendingTagLoad;
+            if (pending == null) {
+                return;
+            }
+            pendingTagLoad = null;
+            long startedAt = System.nanoTime();
+            Path shardsDir = tagShardsDirForScope(pending.scopeId());
+            Path loadedDir = new RegionKey(pending.dimensionId(), 0, 0).resolve(shardsDir, TAG_SHARD_SUFFIX).getParent();
+            LoadedShards rest = loadTagShards(shardsDir, loadedDir);
+            Map<ChestKey, String> tags = new HashMap<>();
+            rest.shards().values().forEach(tags::putAll);
+            replayTagJournal(pending.scopeId(), tags, null);
+            tags.keySet().removeIf(key -> key.dimensionId().equals(pending.dimensionId()));
+
+            int added = tagStore.mergeLoadedTags(pending.scopeId(), tags);
+            if (added >= 0 && Objects.equals(writtenTagsScopeId, pending.scopeId())) {
+                Map<RegionKey, Map<ChestKey, String>> written = new HashMap<>(writtenTagShards);
+                written.putAll(rest.shards());
+                writtenTagShards = written;
+            }
+            LatchLabel.LOGGER.info("[DataManager] Loaded remaining dimensions of scope {}: {} tags from {} shards in {} ms",
+                    pending.scopeId(), Math.max(added, 0), rest.shards().size(), elapsedMs(startedAt));
+        }
+    }
+
+    private void completePendingTagLoadSafely() {
+        try {
+            completePendingTagLoad();
+        } catch (RuntimeException e) {
+            LatchLabel.LOGGER.warn("[DataManager] Background tag load failed", e);
+        }
+    }
+
+    /**
+     * Applies the scope's tag journal on top of {@code tags} and the manifest's last-used category.
+     * An unreadable journal is backed up and reported as damaged, so the caller compacts right
+     * away and later appends do not land behind the bad record. A torn tail keeps every complete
+     * record and is reported as damaged for the same reason, without a backup.
+     */
+    private JournalReplay replayTagJournal(String scopeId, Map<ChestKey, String> tags, String lastUsedCategoryId) {
+        Path journalPath = tagJournalPathForScope(scopeId);
+        String[] lastUsed = {lastUsedCategoryId};
+        boolean[] torn = {false};
+        long startedAt = System.nanoTime();
+        boolean readable;
+        try {
+            readable = TagJournal.replay(journalPath, new TagJournal.Sink() {
+                @Override
+                public void set(ChestKey key, String categoryId) {
+                    tags.put(key, categoryId);
+                }
+
+                @Override
+                public void clear(ChestKey key) {
+                    tags.remove(key);
+                }
+
+                @Override
+                public void lastUsed(String categoryId) {
+                    lastUsed[0] = categoryId;
+                }
+
+                @Override
+                public void tornTail() {
+                    torn[0] = true;
+                }
+            });
+        } catch (IOException e) {
+            LatchLabel.LOGGER.warn("Invalid tag journal {}, keeping the records read before the error", journalPath, e);
+            readable = false;
+        }
+        if (!readable) {
+            Path backup = backupCorruptFile(journalPath);
+            LatchLabel.LOGGER.warn("[DataManager] Tag journal {} not replayable, backed up to {}", journalPath, backup);
+        } else if (torn[0]) {
+            LatchLabel.LOGGER.warn("[DataManager] Tag journal {} ends in a torn record, compacting", journalPath);
+        } else if (Files.exists(journalPath)) {
+            LatchLabel.LOGGER.debug("[DataManager] Replayed {} in {} ms", journalPath, elapsedMs(startedAt));
+        }
+        return new JournalReplay(lastUsed[0], !readable || torn[0]);
+    }
+
+    /**
+     * Reads the binary shards under {@code shardsDir}, except those under {@code excludedDir}
+     * (nullable), and any JSON shards left from before the binary format. JSON shards are read
+     * first, so a binary shard written by an interrupted migration wins.
+     */
+    private LoadedShards loadTagShards(Path shardsDir, Path excludedDir) {
+        Map<RegionKey, Map<ChestKey, String>> shards = new HashMap<>();
+        List<Path> legacyFiles = listTagShardFiles(shardsDir, LEGACY_TAG_SHARD_SUFFIX);
+        for (Path shardFile : legacyFiles) {
+            TagsFile shard;
+            try {
+                shard = readTagsFile(shardFile);
+            } catch (IllegalStateException e) {
+                Path backup = backupCorruptFile(shardFile);
+                LatchLabel.LOGGER.warn("Invalid tag shard {}, backed up to {}, skipping", shardFile, backup, e);
+                continue;
+            }
+            putShardTags(shards, shard.tags());
+        }
+        for (Path shardFile : listTagShardFiles(shardsDir, TAG_SHARD_SUFFIX)) {
+            if (excludedDir != null && shardFile.startsWith(excludedDir)) {
+                continue;
+            }
+            long startedAt = System.nanoTime();
+            Map<ChestKey, String> tags;
+            try (InputStream in = Files.newInputStream(shardFile)) {
+                tags = TagShardCodec.decode(in);
+                LatchLabel.LOGGER.debug("[DataManager] Parsed {} in {} ms ({} tags)", shardFile, elapsedMs(startedAt), tags.size());
+            } catch (IOException e) {
+                Path backup = backupCorruptFile(shardFile);
+                LatchLabel.LOGGER.warn("Invalid tag shard {}, backed up to {}, skipping", shardFile, backup, e);
+                continue;
+            }
+            putShardTags(shards, tags);
+        }
+        return new LoadedShards(shards, !legacyFiles.isEmpty());
+    }
+
+    // Keys carry their own dimension and position, so the file name is only a layout hint.
+    private static void putShardTags(Map<RegionKey, Map<ChestKey, String>> shards, Map<ChestKey, String> tags) {
+        for (Map.Entry<ChestKey, String> entry : tags.entrySet()) {
+            shards.computeIfAbsent(RegionKey.of(entry.getKey()), unused -> new HashMap<>())
+                    .put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static List<Path> listTagShardFiles(Path shardsDir, String suffix) {
+        if (!Files.isDirectory(shardsDir)) {
+            return List.of();
+        }
+        try (Stream<Path> walk = Files.walk(shardsDir)) {
+            return walk.filter(path -> path.getFileName().toString().endsWith(suffix))
+                    .filter(Files::isRegularFile)
+                    .toList();
+        } catch (IOException e) {
+            LatchLabel.LOGGER.warn("Failed listing tag shards in {}", shardsDir, e);
+            return List.of();
+        }
     }
 
     private ScopedTags loadLegacyTags(String scopeId) {
@@ -552,6 +1114,7 @@ public final class ClientDataManager implements AutoCloseable {
     }
 
     private PersistenceSnapshot snapshotForScope(String scopeId) {
+        completePendingTagLoad();
         String normalizedScopeId = normalizeScopeId(scopeId);
         return new PersistenceSnapshot(
                 normalizedScopeId,
@@ -563,12 +1126,26 @@ public final class ClientDataManager implements AutoCloseable {
         );
     }
 
+    /** Writes the scope's categories and overrides unless the file already holds exactly this content. */
     private void writeCategoriesAndOverrides(PersistenceSnapshot snapshot) {
         Path filePath = categoriesAndOverridesFilePathForScope(snapshot.scopeId());
-        ensureScopeDirectory(filePath.getParent());
-        LatchLabel.LOGGER.debug("[DataManager] writeCategoriesAndOverrides: {} categories -> {}",
-                snapshot.categories().size(), filePath);
+        JsonObject root = categoriesAndOverridesJson(snapshot);
+        synchronized (flushLock) {
+            if (Objects.equals(writtenCategoriesScopeId, snapshot.scopeId())
+                    && root.equals(writtenCategoriesRoot)
+                    && Files.exists(filePath)) {
+                return;
+            }
+            ensureScopeDirectory(filePath.getParent());
+            LatchLabel.LOGGER.debug("[DataManager] writeCategoriesAndOverrides: {} categories -> {}",
+                    snapshot.categories().size(), filePath);
+            writeJsonObject(filePath, root);
+            writtenCategoriesScopeId = snapshot.scopeId();
+            writtenCategoriesRoot = root;
+        }
+    }
 
+    private static JsonObject categoriesAndOverridesJson(PersistenceSnapshot snapshot) {
         JsonObject root = new JsonObject();
         root.addProperty("version", CURRENT_VERSION);
 
@@ -593,30 +1170,81 @@ public final class ClientDataManager implements AutoCloseable {
             itemOverrides.addProperty(entry.getKey().toString(), entry.getValue());
         }
         root.add("itemOverrides", itemOverrides);
-
-        writeJsonObject(filePath, root);
+        return root;
     }
 
+    /**
+     * Writes the tag shards that differ from what is on disk, then the manifest if it changed.
+     * Shards go first so a crash in between never leaves a manifest without its tags.
+     */
     private void writeTags(PersistenceSnapshot snapshot) {
-        Path filePath = tagsFilePathForScope(snapshot.scopeId());
-        ensureScopeDirectory(filePath.getParent());
+        synchronized (flushLock) {
+            preloadedTags.remove(snapshot.scopeId());
+            Path filePath = tagsFilePathForScope(snapshot.scopeId());
+            Path shardsDir = tagShardsDirForScope(snapshot.scopeId());
+            ensureScopeDirectory(filePath.getParent());
+            boolean sameScope = Objects.equals(writtenTagsScopeId, snapshot.scopeId());
+
+            Map<RegionKey, Map<ChestKey, String>> shards = new HashMap<>();
+            for (Map.Entry<ChestKey, String> entry : snapshot.tags().entrySet()) {
+                shards.computeIfAbsent(RegionKey.of(entry.getKey()), unused -> new HashMap<>())
+                        .put(entry.getKey(), entry.getValue());
+            }
+            Map<RegionKey, Map<ChestKey, String>> previousShards = sameScope ? writtenTagShards : Map.of();
+            Set<RegionKey> regions = new LinkedHashSet<>(shards.keySet());
+            regions.addAll(previousShards.keySet());
+            int written = 0;
+            for (RegionKey region : regions) {
+                Map<ChestKey, String> shard = shards.get(region);
+                if (Objects.equals(shard, previousShards.get(region))) {
+                    continue;
+                }
+                writeTagShard(region.resolve(shardsDir, TAG_SHARD_SUFFIX), shard);
+                written++;
+            }
 
-        JsonObject root = new JsonObject();
-        root.addProperty("version", CURRENT_VERSION);
+            JsonObject root = new JsonObject();
+            root.addProperty("version", BINARY_SHARDS_VERSION);
+            String lastUsed = snapshot.lastUsedCategoryId();
+            if (lastUsed != null && !lastUsed.isBlank()) {
+                root.addProperty("lastUsedCategoryId", lastUsed);
+            }
+            boolean manifestChanged = !sameScope || !root.equals(writtenTagManifest) || !Files.exists(filePath);
+            if (manifestChanged) {
+                writeJsonObject(filePath, root, COMPACT_GSON);
+            }
+            LatchLabel.LOGGER.debug("[DataManager] writeTags: {} tags, {}/{} shards rewritten, manifest {} -> {}",
+                    snapshot.tags().size(), written, shards.size(), manifestChanged ? "written" : "unchanged", filePath);
 
-        LatchLabel.LOGGER.debug("[DataManager] writeTags: {} tags -> {}", snapshot.tags().size(), filePath);
-        JsonObject tagsObject = new JsonObject();
-        for (Map.Entry<ChestKey, String> entry : snapshot.tags().entrySet()) {
-            tagsObject.addProperty(entry.getKey().toStringKey(), entry.getValue());
-        }
-        root.add("tags", tagsObject);
+            try {
+                new TagJournal(tagJournalPathForScope(snapshot.scopeId())).truncate();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed truncating tag journal for scope: " + snapshot.scopeId(), e);
+            }
 
-        String lastUsed = snapshot.lastUsedCategoryId();
-        if (lastUsed != null && !lastUsed.isBlank()) {
-            root.addProperty("lastUsedCategoryId", lastUsed);
+            writtenTagsScopeId = snapshot.scopeId();
+            writtenTagShards = shards;
+            writtenTagManifest = root;
         }
+    }
 
-        writeJsonObject(filePath, root);
+    private static void writeTagShard(Path shardFile, Map<ChestKey, String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            try {
+                Files.deleteIfExists(shardFile);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed deleting empty tag shard: " + shardFile, e);
+            }
+            return;
+        }
+        ensureScopeDirectory(shardFile.getParent());
+        Path tmp = shardFile.resolveSibling(shardFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            TagShardCodec.encode(out, tags, StorageSettings.compressTagShards());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed writing tag shard: " + tmp, e);
+        }
+        replaceWithTemp(tmp, shardFile);
     }
 
     private List<Category> readLegacyCategories() {
@@ -730,6 +1358,88 @@ public final class ClientDataManager implements AutoCloseable {
         return backup;
     }
 
+    /**
+     * Streams a tags manifest or JSON shard straight into a map instead of building the JSON tree
+     * first; large version-1 manifests are read in one pass.
+     */
+    private static TagsFile readTagsFile(Path path) {
+        long startedAt = System.nanoTime();
+        int version = -1;
+        String lastUsedCategoryId = null;
+        boolean inlineTags = false;
+        Map<ChestKey, String> tags = new HashMap<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "version" -> {
+                        if (reader.peek() == JsonToken.NUMBER) {
+                            version = reader.nextInt();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    case "lastUsedCategoryId" -> lastUsedCategoryId = nextStringOrNull(reader);
+                    case "tags" -> {
+                        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            inlineTags = true;
+                            readTagEntries(reader, tags, path);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalStateException("Failed reading json file: " + path, e);
+        }
+        if (version == -1) {
+            LatchLabel.LOGGER.warn("Missing or invalid version in {}. Falling back to compatibility mode", path);
+        }
+        LatchLabel.LOGGER.debug("[DataManager] Parsed {} in {} ms ({} tags)", path, elapsedMs(startedAt), tags.size());
+
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("version", version);
+        if (lastUsedCategoryId != null) {
+            manifest.addProperty("lastUsedCategoryId", lastUsedCategoryId);
+        }
+        if (inlineTags) {
+            manifest.add("tags", new JsonObject());
+        }
+        return new TagsFile(version, lastUsedCategoryId, tags, manifest);
+    }
+
+    private static void readTagEntries(JsonReader reader, Map<ChestKey, String> tags, Path sourcePath) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String rawKey = reader.nextName();
+            String categoryId = remapLegacyCategoryId(nextStringOrNull(reader));
+            if (categoryId == null || categoryId.isBlank()) {
+                continue;
+            }
+            try {
+                tags.put(ChestKey.fromStringKey(rawKey), categoryId);
+            } catch (IllegalArgumentException ex) {
+                LatchLabel.LOGGER.warn("Skipping invalid chest key '{}' in {}", rawKey, sourcePath);
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static long elapsedMs(long startedAtNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+    }
+
     private static JsonObject readJsonObject(Path path) {
         try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
             JsonElement element = JsonParser.parseReader(reader);
@@ -743,12 +1453,20 @@ public final class ClientDataManager implements AutoCloseable {
     }
 
     private static void writeJsonObject(Path path, JsonObject root) {
+        writeJsonObject(path, root, GSON);
+    }
+
+    private static void writeJsonObject(Path path, JsonObject root, Gson gson) {
         Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
         try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
-            GSON.toJson(root, writer);
+            gson.toJson(root, writer);
         } catch (IOException e) {
             throw new IllegalStateException("Failed writing json file: " + tmp, e);
         }
+        replaceWithTemp(tmp, path);
+    }
+
+    private static void replaceWithTemp(Path tmp, Path path) {
         try {
             Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException atomicFailed) {
@@ -848,6 +1566,14 @@ public final class ClientDataManager implements AutoCloseable {
         return scopeDirectory(scopeId).resolve(TAGS_FILE_NAME);
     }
 
+    private Path tagShardsDirForScope(String scopeId) {
+        return scopeDirectory(scopeId).resolve(TAG_SHARDS_DIR_NAME);
+    }
+
+    private Path tagJournalPathForScope(String scopeId) {
+        return scopeDirectory(scopeId).resolve(TAG_JOURNAL_FILE_NAME);
+    }
+
     private Path categoriesAndOverridesFilePathForScope(String scopeId) {
         return scopeDirectory(scopeId).resolve(CATEGORIES_AND_OVERRIDES_FILE_NAME);
     }
@@ -886,12 +1612,46 @@ public final class ClientDataManager implements AutoCloseable {
         }
     }
 
-    private record ScopedTags(Map<ChestKey, String> tags, String lastUsedCategoryId) {
+    /**
+     * {@code shards} and {@code manifest} are exactly what was read from disk, for dirty checks.
+     * {@code deferredDimensionId} is set when only that dimension's shards were read.
+     */
+    private record ScopedTags(
+            Map<ChestKey, String> tags,
+            String lastUsedCategoryId,
+            Map<RegionKey, Map<ChestKey, String>> shards,
+            JsonObject manifest,
+            boolean journalDamaged,
+            boolean legacyShards,
+            Identifier deferredDimensionId
+    ) {
+        private ScopedTags(Map<ChestKey, String> tags, String lastUsedCategoryId) {
+            this(tags, lastUsedCategoryId, Map.of(), null, false, false, null);
+        }
+
         private static ScopedTags empty() {
             return new ScopedTags(Map.of(), null);
         }
     }
 
+    private record JournalReplay(String lastUsedCategoryId, boolean damaged) {
+    }
+
+    /** The active scope's dimensions other than {@code dimensionId} are still to be read. */
+    private record PendingTagLoad(String scopeId, Identifier dimensionId) {
+    }
+
+    /**
+     * A tags manifest or JSON shard. {@code manifest} holds the fields compared against the next
+     * manifest write; an inline {@code tags} object shows up as an empty one, so it is rewritten.
+     */
+    private record TagsFile(int version, String lastUsedCategoryId, Map<ChestKey, String> tags, JsonObject manifest) {
+    }
+
+    /** {@code legacy} is set when any shard was still in the JSON format. */
+    private record LoadedShards(Map<RegionKey, Map<ChestKey, String>> shards, boolean legacy) {
+    }
+
     private record PersistenceSnapshot(
             String scopeId,
             List<Category> categories,
@@ -0,0 +1,187 @@
+package com.latchandlabel.client.data;
+
+import com.latchandlabel.client.LatchLabel;
+import com.latchandlabel.client.model.ChestKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Append-only log of tag deltas for one scope, written between compactions into the tag shards.
+ * A debounced save appends the chests that changed instead of rewriting their shards; loading
+ * replays the log over the shards, which is also the crash recovery path. Records carry full
+ * state ("this chest is now tagged X", "this chest is untagged"), so replaying one that a
+ * compaction already folded in is harmless.
+ *
+ * <p>The file starts with {@link #MAGIC} and {@link #FORMAT_VERSION}; a torn tail (the client died
+ * mid-append) ends replay at the last complete record and is reported through
+ * {@link Sink#tornTail}, since an append would land behind the partial bytes. Only touched under
+ * the data manager's flush lock.
+ */
+final class TagJournal {
+    static final int MAGIC = 0x4C4C544A; // "LLTJ"
+    static final int FORMAT_VERSION = 1;
+
+    private static final byte OP_SET = 'T';
+    private static final byte OP_CLEAR = 'X';
+    private static final byte OP_LAST_USED = 'L';
+
+    private final Path file;
+    private long bytesOnDisk;
+
+    TagJournal(Path file) {
+        this.file = file;
+        long size = 0L;
+        try {
+            size = Files.exists(file) ? Files.size(file) : 0L;
+        } catch (IOException ignored) {
+            // treated as empty; the next append rewrites the header
+        }
+        this.bytesOnDisk = size;
+    }
+
+    /** Receives replayed records in file order. */
+    interface Sink {
+        void set(ChestKey key, String categoryId);
+
+        void clear(ChestKey key);
+
+        /** {@code categoryId} is null when the last-used category was cleared. */
+        void lastUsed(String categoryId);
+
+        /** Replay stopped at a torn tail; the journal must be compacted before anything is appended to it. */
+        void tornTail();
+    }
+
+    long bytesOnDisk() {
+        return bytesOnDisk;
+    }
+
+    /**
+     * Appends one record per entry of {@code tags} (a null value untags the chest) and, if
+     * {@code lastUsedChanged}, the scope's last-used category.
+     */
+    void append(Map<ChestKey, String> tags, boolean lastUsedChanged, String lastUsedCategoryId) throws IOException {
+        if (tags.isEmpty() && !lastUsedChanged) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        long written;
+        try (OutputStream raw = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw))) {
+            if (bytesOnDisk == 0L) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+            }
+            for (Map.Entry<ChestKey, String> entry : tags.entrySet()) {
+                if (entry.getValue() == null) {
+                    out.writeByte(OP_CLEAR);
+                    out.writeUTF(entry.getKey().toStringKey());
+                } else {
+                    out.writeByte(OP_SET);
+                    out.writeUTF(entry.getKey().toStringKey());
+                    out.writeUTF(entry.getValue());
+                }
+            }
+            if (lastUsedChanged) {
+                out.writeByte(OP_LAST_USED);
+                out.writeUTF(lastUsedCategoryId == null ? "" : lastUsedCategoryId);
+            }
+            out.flush();
+            written = out.size();
+        }
+        bytesOnDisk += written;
+    }
+
+    /** Deletes the log once the shards and manifest cover all of it. */
+    void truncate() throws IOException {
+        Files.deleteIfExists(file);
+        bytesOnDisk = 0L;
+    }
+
+    /**
+     * Replays {@code file} into {@code sink}. Missing files are a no-op; a torn tail stops replay
+     * and calls {@link Sink#tornTail}. Returns {@code false} if the file is from another format version and was not read.
+     */
+    static boolean replay(Path file, Sink sink) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0L) {
+            return true;
+        }
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            int magic;
+            int version;
+            try {
+                magic = in.readInt();
+                version = in.readInt();
+            } catch (EOFException empty) {
+                // Not even a whole header; appending would not write one.
+                sink.tornTail();
+                return true;
+            }
+            if (magic != MAGIC) {
+                throw new IOException("Unrecognized tag journal header in " + file);
+            }
+            if (version != FORMAT_VERSION) {
+                return false;
+            }
+            while (true) {
+                int op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException end) {
+                    return true;
+                }
+                try {
+                    readOp(in, op, sink, file);
+                } catch (EOFException torn) {
+                    LatchLabel.LOGGER.debug("[TagJournal] Torn record at end of {}, ignoring", file);
+                    sink.tornTail();
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static void readOp(DataInput in, int op, Sink sink, Path file) throws IOException {
+        switch (op) {
+            case OP_SET -> {
+                ChestKey key = parseKey(in.readUTF());
+                String categoryId = in.readUTF();
+                if (key != null && !categoryId.isBlank()) {
+                    sink.set(key, categoryId);
+                }
+            }
+            case OP_CLEAR -> {
+                ChestKey key = parseKey(in.readUTF());
+                if (key != null) {
+                    sink.clear(key);
+                }
+            }
+            case OP_LAST_USED -> {
+                String categoryId = in.readUTF();
+                sink.lastUsed(categoryId.isBlank() ? null : categoryId);
+            }
+            default -> throw new IOException("Unknown tag journal op " + op + " in " + file);
+        }
+    }
+
+    private static ChestKey parseKey(String rawKey) {
+        try {
+            return ChestKey.fromStringKey(rawKey);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
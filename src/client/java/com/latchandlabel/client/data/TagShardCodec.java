@@ -0,0 +1,149 @@
+package com.latchandlabel.client.data;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary encoding of one tag shard. Dimension and category ids are written once each in a
+ * dictionary; entries follow sorted by dimension, x, z, y, each as a dictionary index, zigzag
+ * varint deltas from the previous entry's coordinates and a category index. Neighbouring chests
+ * in a region cost a few bytes each instead of a {@code "minecraft:overworld|x,y,z"} string key.
+ *
+ * <p>The payload may be gzipped; {@link #decode} recognizes the gzip header, so compression can be
+ * toggled without rewriting existing shards.
+ */
+final class TagShardCodec {
+    static final int MAGIC = 0x4C4C5453; // "LLTS"
+    static final int FORMAT_VERSION = 1;
+
+    private static final Comparator<ChestKey> ENTRY_ORDER = Comparator
+            .comparing((ChestKey key) -> key.dimensionId().toString())
+            .thenComparingInt(key -> key.pos().getX())
+            .thenComparingInt(key -> key.pos().getZ())
+            .thenComparingInt(key -> key.pos().getY());
+
+    private TagShardCodec() {
+    }
+
+    static void encode(OutputStream target, Map<ChestKey, String> tags, boolean gzip) throws IOException {
+        List<ChestKey> keys = new ArrayList<>(tags.keySet());
+        keys.sort(ENTRY_ORDER);
+        Map<Identifier, Integer> dimensionIndex = new LinkedHashMap<>();
+        Map<String, Integer> categoryIndex = new LinkedHashMap<>();
+        for (ChestKey key : keys) {
+            dimensionIndex.putIfAbsent(key.dimensionId(), dimensionIndex.size());
+            categoryIndex.putIfAbsent(tags.get(key), categoryIndex.size());
+        }
+
+        OutputStream stream = gzip ? new GZIPOutputStream(target) : target;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        VarInts.write(out, dimensionIndex.size());
+        for (Identifier dimensionId : dimensionIndex.keySet()) {
+            out.writeUTF(dimensionId.toString());
+        }
+        VarInts.write(out, categoryIndex.size());
+        for (String categoryId : categoryIndex.keySet()) {
+            out.writeUTF(categoryId);
+        }
+        VarInts.write(out, keys.size());
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        for (ChestKey key : keys) {
+            BlockPos pos = key.pos();
+            VarInts.write(out, dimensionIndex.get(key.dimensionId()));
+            VarInts.write(out, VarInts.zigzag(pos.getX() - x));
+            VarInts.write(out, VarInts.zigzag(pos.getZ() - z));
+            VarInts.write(out, VarInts.zigzag(pos.getY() - y));
+            VarInts.write(out, categoryIndex.get(tags.get(key)));
+            x = pos.getX();
+            y = pos.getY();
+            z = pos.getZ();
+        }
+        out.flush();
+        if (stream instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+    }
+
+    static Map<ChestKey, String> decode(InputStream source) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(source);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean gzipped = first == 0x1F && second == 0x8B;
+        DataInputStream in = new DataInputStream(gzipped ? new BufferedInputStream(new GZIPInputStream(buffered)) : buffered);
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Unrecognized tag shard header");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported tag shard version " + version);
+        }
+        Identifier[] dimensions = new Identifier[readCount(in)];
+        for (int i = 0; i < dimensions.length; i++) {
+            String rawDimensionId = in.readUTF();
+            dimensions[i] = Identifier.tryParse(rawDimensionId);
+            if (dimensions[i] == null) {
+                throw new IOException("Invalid dimension id '" + rawDimensionId + "' in tag shard");
+            }
+        }
+        String[] categories = new String[readCount(in)];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = in.readUTF();
+        }
+        int count = readCount(in);
+        Map<ChestKey, String> tags = new HashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        for (int i = 0; i < count; i++) {
+            Identifier dimensionId = dimensions[readIndex(in, dimensions.length)];
+            x += VarInts.unzigzag(VarInts.read(in));
+            z += VarInts.unzigzag(VarInts.read(in));
+            y += VarInts.unzigzag(VarInts.read(in));
+            String categoryId = categories[readIndex(in, categories.length)];
+            tags.put(new ChestKey(dimensionId, new BlockPos(x, y, z)), categoryId);
+        }
+        return tags;
+    }
+
+    private static int readCount(DataInput in) throws IOException {
+        int count = VarInts.read(in);
+        if (count < 0) {
+            throw new IOException("Negative count in tag shard");
+        }
+        return count;
+    }
+
+    private static int readIndex(DataInput in, int size) throws IOException {
+        int index = VarInts.read(in);
+        if (index < 0 || index >= size) {
+            throw new IOException("Dictionary index " + index + " out of range in tag shard");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,45 @@
+package com.latchandlabel.client.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The variable-length integers shared by the binary tag shards and the observed index files:
+ * seven bits per byte, least significant group first, the high bit set on every byte but the
+ * last. Non-negative values below 128 take one byte; signed deltas go through {@link #zigzag}
+ * first so small negative ones stay short too.
+ */
+public final class VarInts {
+    private VarInts() {
+    }
+
+    public static void write(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int read(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /** Maps signed values onto unsigned ones by magnitude: 0, -1, 1, -2, ... become 0, 1, 2, 3, ... */
+    public static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    public static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
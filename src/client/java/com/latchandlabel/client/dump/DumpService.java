@@ -9,6 +9,7 @@ import net.minecraft.client.gui.screens.inventory.AbstractContainerScreen;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.Identifier;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.core.BlockPos;
@@ -16,10 +17,11 @@ import net.minecraft.core.Direction;
 import net.minecraft.world.phys.Vec3;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 public final class DumpService {
@@ -51,9 +53,8 @@ public final class DumpService {
             return;
         }
 
-        // Collect tagged containers whose category matches inventory categories
-        Map<ChestKey, String> allTags = LatchLabelClientState.tagStore().snapshotTags();
         Player player = client.player;
+        Identifier dimensionId = McCompat.dimensionId(client.level);
 
         dumpQueue.clear();
         active = false;
@@ -63,13 +64,17 @@ public final class DumpService {
         containersVisited = 0;
         currentTarget = null;
 
-        // Filter and sort by distance
-        allTags.entrySet().stream()
-                .filter(entry -> entry.getKey().dimensionId().equals(McCompat.dimensionId(client.level)))
-                .filter(entry -> inventoryCategories.contains(entry.getValue()))
-                .filter(entry -> DumpSettings.queueMode() || isWithinRange(player, entry.getKey()))
-                .sorted(Comparator.comparingDouble(entry -> distanceSq(player, entry.getKey())))
-                .forEach(entry -> dumpQueue.add(new DumpTarget(entry.getKey(), entry.getValue())));
+        // Collect tagged containers of the inventory's categories (queue mode ignores range), nearest first
+        List<DumpTarget> targets = new ArrayList<>();
+        for (String categoryId : inventoryCategories) {
+            for (ChestKey key : LatchLabelClientState.tagStore().keysForCategory(categoryId)) {
+                if (key.dimensionId().equals(dimensionId) && (DumpSettings.queueMode() || isWithinRange(player, key))) {
+                    targets.add(new DumpTarget(key, categoryId));
+                }
+            }
+        }
+        targets.sort(Comparator.comparingDouble(target -> distanceSq(player, target.key())));
+        dumpQueue.addAll(targets);
 
         if (dumpQueue.isEmpty()) {
             if (client.player != null) {
@@ -0,0 +1,151 @@
+package com.latchandlabel.client.find;
+
+import com.latchandlabel.client.McCompat;
+import com.latchandlabel.client.model.ChestKey;
+import com.latchandlabel.client.targeting.StorageKeyResolver;
+import com.latchandlabel.client.targeting.TrackableStorage;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerBlockEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The trackable containers of each loaded chunk on the integrated server, so single-player
+ * {@code /find} visits only chunks that hold storage instead of every block entity in range.
+ * Block entities are added as they load (which covers chunk loads) and dropped as they unload or
+ * their chunk does. Each entry carries its canonical {@link ChestKey}, worked out from the block
+ * state alone and redone when the state changes, e.g. when a neighbouring chest makes it double.
+ */
+public final class ChunkContainerRegistry {
+    // dimension -> packed chunk pos -> container pos -> entry
+    private static final Map<Identifier, Map<Long, Map<BlockPos, Entry>>> CONTAINERS = new HashMap<>();
+
+    private ChunkContainerRegistry() {
+    }
+
+    public static void register() {
+        ServerBlockEntityEvents.BLOCK_ENTITY_LOAD.register((blockEntity, level) ->
+                add(McCompat.dimensionId(level), blockEntity));
+        ServerBlockEntityEvents.BLOCK_ENTITY_UNLOAD.register((blockEntity, level) ->
+                remove(McCompat.dimensionId(level), blockEntity));
+        ServerChunkEvents.CHUNK_UNLOAD.register((level, chunk) ->
+                removeChunk(McCompat.dimensionId(level), chunkOf(chunk.getPos().getWorldPosition())));
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> clear());
+    }
+
+    /** Packed chunks of the dimension that hold storage, within the given chunk bounds (inclusive). */
+    static synchronized List<Long> chunksWithin(Identifier dimensionId, int minChunkX, int maxChunkX, int minChunkZ, int maxChunkZ) {
+        Map<Long, Map<BlockPos, Entry>> chunks = CONTAINERS.get(dimensionId);
+        if (chunks == null) {
+            return List.of();
+        }
+        List<Long> within = new ArrayList<>();
+        for (long chunk : chunks.keySet()) {
+            int chunkX = chunkX(chunk);
+            int chunkZ = chunkZ(chunk);
+            if (chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ) {
+                within.add(chunk);
+            }
+        }
+        return within;
+    }
+
+    static synchronized List<Entry> containersIn(Identifier dimensionId, long chunk) {
+        Map<Long, Map<BlockPos, Entry>> chunks = CONTAINERS.get(dimensionId);
+        Map<BlockPos, Entry> containers = chunks == null ? null : chunks.get(chunk);
+        return containers == null ? List.of() : List.copyOf(containers.values());
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    static int chunkX(long chunk) {
+        return (int) (chunk >> 32);
+    }
+
+    static int chunkZ(long chunk) {
+        return (int) chunk;
+    }
+
+    static synchronized void add(Identifier dimensionId, BlockEntity blockEntity) {
+        if (!TrackableStorage.isTrackableStorage(blockEntity)) {
+            return;
+        }
+        BlockPos pos = blockEntity.getBlockPos().immutable();
+        CONTAINERS.computeIfAbsent(dimensionId, id -> new HashMap<>())
+                .computeIfAbsent(chunkOf(pos), chunk -> new HashMap<>())
+                .put(pos, new Entry(dimensionId, blockEntity));
+    }
+
+    static synchronized void remove(Identifier dimensionId, BlockEntity blockEntity) {
+        Map<Long, Map<BlockPos, Entry>> chunks = CONTAINERS.get(dimensionId);
+        if (chunks == null) {
+            return;
+        }
+        BlockPos pos = blockEntity.getBlockPos();
+        long chunk = chunkOf(pos);
+        Map<BlockPos, Entry> containers = chunks.get(chunk);
+        if (containers == null) {
+            return;
+        }
+        // A replacement block entity may already sit at this position; only drop this one.
+        Entry entry = containers.get(pos);
+        if (entry != null && entry.blockEntity() == blockEntity) {
+            containers.remove(pos);
+            if (containers.isEmpty()) {
+                chunks.remove(chunk);
+            }
+        }
+    }
+
+    static synchronized void removeChunk(Identifier dimensionId, long chunk) {
+        Map<Long, Map<BlockPos, Entry>> chunks = CONTAINERS.get(dimensionId);
+        if (chunks != null) {
+            chunks.remove(chunk);
+        }
+    }
+
+    static synchronized void clear() {
+        CONTAINERS.clear();
+    }
+
+    private static long chunkOf(BlockPos pos) {
+        return chunkKey(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+
+    /** A registered container and its canonical key. */
+    static final class Entry {
+        private final Identifier dimensionId;
+        private final BlockEntity blockEntity;
+        private BlockState state;
+        private ChestKey key;
+
+        private Entry(Identifier dimensionId, BlockEntity blockEntity) {
+            this.dimensionId = dimensionId;
+            this.blockEntity = blockEntity;
+            key();
+        }
+
+        BlockEntity blockEntity() {
+            return blockEntity;
+        }
+
+        ChestKey key() {
+            BlockState current = blockEntity.getBlockState();
+            if (current != state) {
+                state = current;
+                key = StorageKeyResolver.keyForState(dimensionId, blockEntity.getBlockPos(), current);
+            }
+            return key;
+        }
+    }
+}
@@ -3,24 +3,38 @@ package com.latchandlabel.client.find;
 import com.latchandlabel.client.McCompat;
 import com.latchandlabel.client.LatchLabelClientState;
 import com.latchandlabel.client.model.ChestKey;
+import com.latchandlabel.client.store.ObservedIndexStore.NestedHolder;
 import com.latchandlabel.client.tagging.ContainerScreenContextResolver;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.world.inventory.AbstractContainerMenu;
+import net.minecraft.world.inventory.Slot;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
 /**
  * Records the contents of any container the player opens into the persistent observed index.
  * This is the only reliable way the client learns what is inside a chest, so it's the sole
- * feed for content-based {@code /find}.
+ * feed for content-based {@code /find}. Shulker boxes and bundles in the chest are looked into as
+ * well, so items packed inside them are found under the chest.
+ *
+ * <p>While the chest stays open its entry is kept exact incrementally: server slot updates and
+ * the player's own clicks re-read only the slots involved, and the store is only told when the
+ * set of items actually changes. The store diffs again on its side, so an unchanged chest is
+ * never rewritten.
  */
 public final class ContainerObserver {
     private static volatile long lastContentsSyncMs = 0L;
+    // The chest whose menu is open; client thread only.
+    private static OpenChest open;
 
     private ContainerObserver() {
     }
@@ -46,26 +60,134 @@ public final class ContainerObserver {
 
         Screen screen = McCompat.getScreen(client);
         if (screen == null) {
+            open = null;
             return;
         }
         Optional<ChestKey> key = ContainerScreenContextResolver.resolve(client, screen);
         if (key.isEmpty()) {
+            open = null;
             return;
         }
 
-        // Chest slots are every slot not backed by the player's own inventory.
-        Object playerInventory = client.player.getInventory();
-        Set<Item> items = new LinkedHashSet<>();
-        for (var slot : handler.slots) {
-            if (slot.container == playerInventory) {
-                continue;
+        OpenChest chest = new OpenChest(handler, key.get(), client.player.getInventory());
+        open = chest;
+        chest.record();
+    }
+
+    /** A server slot update for {@code handler}; re-reads just that slot. */
+    public static void onSlotChanged(AbstractContainerMenu handler, int slotId) {
+        OpenChest chest = openChestFor(handler);
+        if (chest != null && chest.refresh(slotId)) {
+            chest.record();
+        }
+    }
+
+    /** The player clicked in {@code handler}; a click can touch any slot, so every chest slot is re-read. */
+    public static void onClicked(AbstractContainerMenu handler) {
+        OpenChest chest = openChestFor(handler);
+        if (chest != null && chest.refreshAll()) {
+            chest.record();
+        }
+    }
+
+    private static OpenChest openChestFor(AbstractContainerMenu handler) {
+        Minecraft client = Minecraft.getInstance();
+        // The integrated server's menus share these hooks; only the client's own open menu counts.
+        if (client == null || client.player == null || !client.isSameThread()) {
+            return null;
+        }
+        OpenChest chest = open;
+        if (chest == null || chest.menu != handler || client.player.containerMenu != handler) {
+            return null;
+        }
+        return chest;
+    }
+
+    /** What one chest slot contributes: its item and anything packed inside it. */
+    private record SlotContents(Item item, Map<NestedHolder, Set<Item>> nested) {
+        static SlotContents of(ItemStack stack) {
+            if (stack.isEmpty()) {
+                return null;
+            }
+            Set<Item> items = new LinkedHashSet<>();
+            Map<NestedHolder, Set<Item>> nested = new LinkedHashMap<>();
+            NestedContents.collect(stack, items, nested);
+            return new SlotContents(stack.getItem(), nested.isEmpty() ? Map.of() : nested);
+        }
+    }
+
+    /** Per-slot view of the open chest, with item counts so a slot change tells at once whether the set changed. */
+    private static final class OpenChest {
+        private final AbstractContainerMenu menu;
+        private final ChestKey key;
+        // Indexed by menu slot id; null for player-inventory slots and empty chest slots.
+        private final SlotContents[] slots;
+        private final boolean[] chestSlot;
+        private final Map<Item, Integer> itemCounts = new HashMap<>();
+
+        private OpenChest(AbstractContainerMenu menu, ChestKey key, Object playerInventory) {
+            this.menu = menu;
+            this.key = key;
+            int size = menu.slots.size();
+            this.slots = new SlotContents[size];
+            this.chestSlot = new boolean[size];
+            // Chest slots are every slot not backed by the player's own inventory.
+            for (int i = 0; i < size; i++) {
+                Slot slot = menu.slots.get(i);
+                chestSlot[i] = slot.container != playerInventory;
+                if (chestSlot[i]) {
+                    set(i, SlotContents.of(slot.getItem()));
+                }
+            }
+        }
+
+        /** Re-reads one slot; returns whether the chest's item set (loose or nested) changed. */
+        private boolean refresh(int slotId) {
+            if (slotId < 0 || slotId >= slots.length || !chestSlot[slotId]) {
+                return false;
             }
-            ItemStack stack = slot.getItem();
-            if (!stack.isEmpty()) {
-                items.add(stack.getItem());
+            SlotContents current = SlotContents.of(menu.slots.get(slotId).getItem());
+            SlotContents previous = slots[slotId];
+            if (Objects.equals(previous, current)) {
+                return false;
             }
+            boolean changed = (previous != null && !previous.nested().isEmpty())
+                    || (current != null && !current.nested().isEmpty());
+            return set(slotId, current) || changed;
         }
 
-        LatchLabelClientState.observedIndexStore().record(key.get(), items);
+        private boolean refreshAll() {
+            boolean changed = false;
+            for (int i = 0; i < slots.length; i++) {
+                changed |= refresh(i);
+            }
+            return changed;
+        }
+
+        /** Replaces a slot's contents; returns whether an item entered or left the loose item set. */
+        private boolean set(int slotId, SlotContents current) {
+            boolean changed = false;
+            SlotContents previous = slots[slotId];
+            if (previous != null && itemCounts.merge(previous.item(), -1, Integer::sum) == 0) {
+                itemCounts.remove(previous.item());
+                changed = true;
+            }
+            if (current != null && itemCounts.merge(current.item(), 1, Integer::sum) == 1) {
+                changed = true;
+            }
+            slots[slotId] = current;
+            return changed;
+        }
+
+        private void record() {
+            Map<NestedHolder, Set<Item>> nested = new LinkedHashMap<>();
+            for (SlotContents slot : slots) {
+                if (slot != null) {
+                    slot.nested().forEach((holder, items) ->
+                            nested.computeIfAbsent(holder, unused -> new LinkedHashSet<>()).addAll(items));
+                }
+            }
+            LatchLabelClientState.observedIndexStore().record(key, Set.copyOf(itemCounts.keySet()), nested);
+        }
     }
 }
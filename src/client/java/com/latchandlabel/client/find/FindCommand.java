@@ -9,6 +9,7 @@ import com.mojang.brigadier.suggestion.SuggestionsBuilder;
 import com.latchandlabel.client.LatchLabel;
 import com.latchandlabel.client.LatchLabelClientState;
 import com.latchandlabel.client.model.Category;
+import com.latchandlabel.client.model.ChestKey;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommands;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.minecraft.client.Minecraft;
@@ -16,38 +17,50 @@ import net.minecraft.world.item.Item;
 import net.minecraft.world.item.Items;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
 import net.minecraft.resources.Identifier;
+import net.minecraft.tags.TagKey;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 public final class FindCommand {
     private static final String ARG_ITEM_ID = "itemid";
     private static final String ARG_RADIUS = "radius";
+    private static final String ARG_EXPRESSION = "expression";
 
     private static final VariantMatcher VARIANT_MATCHER = new VariantMatcher();
     private static final FindScanService FIND_SCAN_SERVICE = new FindScanService();
     private static final boolean DEBUG_TIMINGS = Boolean.getBoolean("latchlabel.debug.timings");
+    private static final FindQuery.Lookup QUERY_LOOKUP = new FindQuery.Lookup() {
+        @Override
+        public Optional<Item> item(String id) {
+            return parseItemId(id);
+        }
+
+        @Override
+        public Optional<Set<Item>> itemTag(String id) {
+            return parseItemTag(id);
+        }
+
+        @Override
+        public Optional<String> category(String idOrName) {
+            return parseCategoryId(idOrName);
+        }
+    };
 
     private FindCommand() {
     }
 
     public static void register(CommandDispatcher<FabricClientCommandSource> dispatcher) {
         dispatcher.register(buildFindLiteral("find"));
-        dispatcher.register(
-                ClientCommands.literal("f")
-                        .requires(source -> FindSettings.allowSlashFCommand())
-                        .executes(FindCommand::executeNoArgs)
-                        .then(ClientCommands.argument(ARG_ITEM_ID, StringArgumentType.word())
-                                .suggests(FindCommand::suggestItems)
-                                .executes(FindCommand::executeWithItem)
-                                .then(ClientCommands.argument(ARG_RADIUS, IntegerArgumentType.integer(1, 256))
-                                        .executes(FindCommand::executeWithItemAndRadius)
-                                )
-                        )
-        );
+        dispatcher.register(buildFindLiteral("f").requires(source -> FindSettings.allowSlashFCommand()));
     }
 
     public static int runFromShortcut(Minecraft client) {
@@ -66,7 +79,7 @@ public final class FindCommand {
             return 0;
         }
 
-        return runFind(client, mainhandItem, FindSettings.defaultFindRadius());
+        return runFind(client, List.of(mainhandItem), FindSettings.defaultFindRadius());
     }
 
     private static int executeNoArgs(CommandContext<FabricClientCommandSource> context) {
@@ -81,7 +94,28 @@ public final class FindCommand {
             return 0;
         }
 
-        return runFind(context.getSource().getClient(), mainhandItem, FindSettings.defaultFindRadius());
+        return runFind(context.getSource().getClient(), List.of(mainhandItem), FindSettings.defaultFindRadius());
+    }
+
+    private static int executeCancel(CommandContext<FabricClientCommandSource> context) {
+        if (!FindResultState.cancelSearch()) {
+            context.getSource().sendError(Component.translatable("latchlabel.find.error_no_search"));
+            return 0;
+        }
+        context.getSource().sendFeedback(Component.translatable("latchlabel.find.feedback_cancelled"));
+        return 1;
+    }
+
+    private static int executeQuery(CommandContext<FabricClientCommandSource> context) {
+        String expression = StringArgumentType.getString(context, ARG_EXPRESSION);
+        FindQuery query;
+        try {
+            query = FindQuery.parse(expression, QUERY_LOOKUP);
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(Component.translatable("latchlabel.find.error_invalid_query", e.getMessage()));
+            return 0;
+        }
+        return runQuery(context.getSource().getClient(), query);
     }
 
     private static int executeWithItem(CommandContext<FabricClientCommandSource> context) {
@@ -95,12 +129,12 @@ public final class FindCommand {
             return runFindByTag(context.getSource().getClient(), categoryId.get(), FindSettings.defaultFindRadius());
         }
 
-        Optional<Item> item = parseItemId(rawQuery);
-        if (item.isEmpty()) {
+        Optional<List<Item>> items = parseItemList(rawQuery);
+        if (items.isEmpty()) {
             context.getSource().sendError(Component.translatable("latchlabel.find.error_invalid_item"));
             return 0;
         }
-        return runFind(context.getSource().getClient(), item.get(), FindSettings.defaultFindRadius());
+        return runFind(context.getSource().getClient(), items.get(), FindSettings.defaultFindRadius());
     }
 
     private static int executeWithItemAndRadius(CommandContext<FabricClientCommandSource> context) {
@@ -116,68 +150,68 @@ public final class FindCommand {
             return runFindByTag(context.getSource().getClient(), categoryId.get(), radius);
         }
 
-        Optional<Item> item = parseItemId(rawQuery);
-        if (item.isEmpty()) {
+        Optional<List<Item>> items = parseItemList(rawQuery);
+        if (items.isEmpty()) {
             context.getSource().sendError(Component.translatable("latchlabel.find.error_invalid_item"));
             return 0;
         }
-        return runFind(context.getSource().getClient(), item.get(), radius);
+        return runFind(context.getSource().getClient(), items.get(), radius);
     }
 
-    private static int runFind(Minecraft client, Item targetItem, int radius) {
+    /** Searches for all {@code targetItems} in one scan; results are grouped per item. */
+    private static int runFind(Minecraft client, List<Item> targetItems, int radius) {
         long startedAtNs = System.nanoTime();
-        if (client.level == null || client.player == null) {
-            if (client.player != null) {
-                client.player.sendOverlayMessage(Component.translatable("latchlabel.find.error_world_unavailable"));
-            }
+        if (!worldAvailable(client)) {
             return 0;
         }
 
-        VariantMatcher.VariantMatchResult matchResult = VARIANT_MATCHER.resolve(targetItem);
-        Identifier targetId = BuiltInRegistries.ITEM.getKey(targetItem);
-        List<FindScanService.FindMatch> results = FIND_SCAN_SERVICE.scan(client, targetItem, matchResult.matchSet(), radius);
-        FindResultState.publish(results);
-        FindResultState.highlightItems(targetItem, matchResult.matchSet());
-        FindResultState.setQueryLabel(new net.minecraft.world.item.ItemStack(targetItem).getHoverName());
-        FindResultState.setQueryCategory(LatchLabelClientState.itemCategoryMappingService()
-                .categoryIdFor(targetId).orElse(null));
-        if (!results.isEmpty()) {
-            java.util.LinkedHashSet<com.latchandlabel.client.model.ChestKey> allMatchKeys = new java.util.LinkedHashSet<>();
-            for (FindScanService.FindMatch result : results) {
-                // Known locations (fresh or stale) are worth focusing the nav cursor on; skip pure guesses.
-                if (result.matchType() != FindScanService.MatchType.LIKELY) {
-                    allMatchKeys.add(result.chestKey());
-                }
-            }
-            if (!allMatchKeys.isEmpty()) {
-                FindResultState.focusAll(allMatchKeys);
-            }
-        }
-        if (client.player != null) {
-            client.player.sendOverlayMessage(Component.translatable("latchlabel.find.feedback_results_count", results.size()));
+        List<FindScanService.FindTarget> targets = new ArrayList<>();
+        List<Identifier> targetIds = new ArrayList<>();
+        Set<Item> variantItems = new HashSet<>();
+        Set<String> categoryIds = new HashSet<>();
+        boolean usedVariants = false;
+        for (Item targetItem : targetItems) {
+            VariantMatcher.VariantMatchResult matchResult = VARIANT_MATCHER.resolve(targetItem);
+            Identifier targetId = BuiltInRegistries.ITEM.getKey(targetItem);
+            String categoryId = LatchLabelClientState.itemCategoryMappingService().categoryIdFor(targetId).orElse(null);
+            targets.add(new FindScanService.FindTarget(targetItem, matchResult.matchSet(), categoryId));
+            targetIds.add(targetId);
+            variantItems.addAll(matchResult.matchSet());
+            categoryIds.add(categoryId);
+            usedVariants |= matchResult.usedVariants();
         }
+        boolean finalUsedVariants = usedVariants;
+        FindResultState.publish(List.of());
+        FindResultState.setQueryItems(targetItems);
+        FindResultState.highlightItems(targetItems, variantItems);
+        FindResultState.setQueryLabel(queryLabel(targetItems));
+        // The HUD shows a category only when every item shares it.
+        FindResultState.setQueryCategory(categoryIds.size() == 1 ? categoryIds.iterator().next() : null);
+        // Results stream into FindResultState as chunks are scanned; this runs once they are all in.
+        FindSearch search = FIND_SCAN_SERVICE.scan(client, targets, radius, results -> {
+            if (client.player != null) {
+                client.player.sendOverlayMessage(resultsCountMessage(results.size()));
+            }
 
-        LatchLabel.LOGGER.info(
-                "Find query: item={}, radius={}, variantsUsed={}, matchSetSize={}, results={}",
-                targetId,
-                radius,
-                matchResult.usedVariants(),
-                matchResult.matchSet().size(),
-                results.size()
-        );
-        if (DEBUG_TIMINGS) {
-            double elapsedMs = (System.nanoTime() - startedAtNs) / 1_000_000.0;
-            LatchLabel.LOGGER.info("Find timing: {} ms", String.format("%.2f", elapsedMs));
+            LatchLabel.LOGGER.info(
+                    "Find query: items={}, radius={}, variantsUsed={}, matchSetSize={}, results={}",
+                    targetIds,
+                    radius,
+                    finalUsedVariants,
+                    variantItems.size(),
+                    results.size()
+            );
+            logTiming(startedAtNs);
+        });
+        if (search == null) {
+            return 0;
         }
-
-        return results.size();
+        FindResultState.startSearch(search);
+        return 1;
     }
 
     private static int runFindByTag(Minecraft client, String categoryId, int radius) {
-        if (client.level == null || client.player == null) {
-            if (client.player != null) {
-                client.player.sendOverlayMessage(Component.translatable("latchlabel.find.error_world_unavailable"));
-            }
+        if (!worldAvailable(client)) {
             return 0;
         }
 
@@ -188,17 +222,82 @@ public final class FindCommand {
                 .map(Category::name).orElse("#" + categoryId);
         FindResultState.setQueryLabel(Component.literal(categoryLabel));
         FindResultState.setQueryCategory(categoryId);
+        showMatches(client, results);
+        return results.size();
+    }
+
+    private static int runQuery(Minecraft client, FindQuery query) {
+        long startedAtNs = System.nanoTime();
+        if (!worldAvailable(client)) {
+            return 0;
+        }
+
+        List<FindScanService.FindMatch> results = FIND_SCAN_SERVICE.scanQuery(client, query, FindSettings.defaultFindRadius());
+        FindResultState.publish(results);
+        if (!query.items().isEmpty()) {
+            FindResultState.highlightItems(query.items(), Set.of());
+        } else if (query.categoryIds().size() == 1) {
+            FindResultState.highlightCategory(query.categoryIds().iterator().next());
+        } else {
+            FindResultState.highlightItems(Set.of(), Set.of());
+        }
+        FindResultState.setQueryLabel(Component.literal(query.source()));
+        FindResultState.setQueryCategory(query.categoryIds().size() == 1 ? query.categoryIds().iterator().next() : null);
+        showMatches(client, results);
+
+        LatchLabel.LOGGER.info("Find query: expression='{}', results={}", query.source(), results.size());
+        logTiming(startedAtNs);
+        return results.size();
+    }
+
+    private static boolean worldAvailable(Minecraft client) {
+        if (client.level != null && client.player != null) {
+            return true;
+        }
+        if (client.player != null) {
+            client.player.sendOverlayMessage(Component.translatable("latchlabel.find.error_world_unavailable"));
+        }
+        return false;
+    }
+
+    /** Focuses every match of a search that completed at once and reports the count. */
+    private static void showMatches(Minecraft client, List<FindScanService.FindMatch> results) {
         if (!results.isEmpty()) {
-            java.util.LinkedHashSet<com.latchandlabel.client.model.ChestKey> allMatchKeys = new java.util.LinkedHashSet<>();
+            Set<ChestKey> allMatchKeys = new LinkedHashSet<>();
             for (FindScanService.FindMatch result : results) {
                 allMatchKeys.add(result.chestKey());
             }
             FindResultState.focusAll(allMatchKeys);
         }
         if (client.player != null) {
-            client.player.sendOverlayMessage(Component.translatable("latchlabel.find.feedback_results_count", results.size()));
+            client.player.sendOverlayMessage(resultsCountMessage(results.size()));
         }
-        return results.size();
+    }
+
+    private static void logTiming(long startedAtNs) {
+        if (DEBUG_TIMINGS) {
+            double elapsedMs = (System.nanoTime() - startedAtNs) / 1_000_000.0;
+            LatchLabel.LOGGER.info("Find timing: {} ms", String.format("%.2f", elapsedMs));
+        }
+    }
+
+    private static Component queryLabel(List<Item> items) {
+        MutableComponent label = Component.empty();
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                label.append(", ");
+            }
+            label.append(new net.minecraft.world.item.ItemStack(items.get(i)).getHoverName());
+        }
+        return label;
+    }
+
+    // Tags of a scope that is still loading are missing from the results, so say so.
+    private static Component resultsCountMessage(int count) {
+        String key = LatchLabelClientState.tagStore().isLoading()
+                ? "latchlabel.find.feedback_results_count_loading"
+                : "latchlabel.find.feedback_results_count";
+        return Component.translatable(key, count);
     }
 
     private static Optional<String> parseCategoryId(String rawQuery) {
@@ -222,7 +321,15 @@ public final class FindCommand {
     private static com.mojang.brigadier.builder.LiteralArgumentBuilder<FabricClientCommandSource> buildFindLiteral(String name) {
         return ClientCommands.literal(name)
                 .executes(FindCommand::executeNoArgs)
-                .then(ClientCommands.argument(ARG_ITEM_ID, StringArgumentType.word())
+                .then(ClientCommands.literal("cancel")
+                        .executes(FindCommand::executeCancel)
+                )
+                .then(ClientCommands.literal("query")
+                        .then(ClientCommands.argument(ARG_EXPRESSION, StringArgumentType.greedyString())
+                                .executes(FindCommand::executeQuery)
+                        )
+                )
+                .then(ClientCommands.argument(ARG_ITEM_ID, FindQueryArgumentType.query())
                         .suggests(FindCommand::suggestItems)
                         .executes(FindCommand::executeWithItem)
                         .then(ClientCommands.argument(ARG_RADIUS, IntegerArgumentType.integer(1, 256))
@@ -231,6 +338,35 @@ public final class FindCommand {
                 );
     }
 
+    /** A comma-separated list of item ids, duplicates dropped; empty if any id is unknown. */
+    private static Optional<List<Item>> parseItemList(String rawQuery) {
+        Set<Item> items = new LinkedHashSet<>();
+        for (String rawItemId : rawQuery.split(",")) {
+            Optional<Item> item = parseItemId(rawItemId);
+            if (item.isEmpty()) {
+                return Optional.empty();
+            }
+            items.add(item.get());
+        }
+        return Optional.of(List.copyOf(items));
+    }
+
+    /** The items in a Minecraft item tag, e.g. {@code minecraft:logs}; empty if the id is malformed. */
+    private static Optional<Set<Item>> parseItemTag(String rawTagId) {
+        Identifier tagId = Identifier.tryParse(rawTagId == null ? "" : rawTagId.trim().toLowerCase(Locale.ROOT));
+        if (tagId == null) {
+            return Optional.empty();
+        }
+        TagKey<Item> tag = TagKey.create(BuiltInRegistries.ITEM.key(), tagId);
+        Set<Item> items = new HashSet<>();
+        for (Item item : BuiltInRegistries.ITEM) {
+            if (item.builtInRegistryHolder().is(tag)) {
+                items.add(item);
+            }
+        }
+        return Optional.of(items);
+    }
+
     private static Optional<Item> parseItemId(String rawItemId) {
         String normalized = rawItemId == null ? "" : rawItemId.trim().toLowerCase();
         Identifier itemId = Identifier.tryParse(normalized);
@@ -253,8 +389,14 @@ public final class FindCommand {
             CommandContext<FabricClientCommandSource> context,
             SuggestionsBuilder builder
     ) {
+        // In an item list, suggest for the id after the last comma.
+        int lastComma = builder.getRemaining().lastIndexOf(',');
+        boolean inList = lastComma >= 0;
+        if (inList) {
+            builder = builder.createOffset(builder.getStart() + lastComma + 1);
+        }
         String remaining = builder.getRemaining().toLowerCase(Locale.ROOT);
-        boolean isTagSearch = remaining.startsWith("#");
+        boolean isTagSearch = !inList && remaining.startsWith("#");
 
         if (isTagSearch) {
             String tagQuery = remaining.substring(1);
@@ -286,7 +428,7 @@ public final class FindCommand {
             }
         }
 
-        if (remaining.isEmpty() || "#".startsWith(remaining)) {
+        if (!inList && (remaining.isEmpty() || "#".startsWith(remaining))) {
             for (Category category : LatchLabelClientState.categoryStore().listAll()) {
                 builder.suggest("#" + category.id(), net.minecraft.network.chat.Component.literal(category.name()));
             }
@@ -0,0 +1,388 @@
+package com.latchandlabel.client.find;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.world.item.Item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A compiled {@code /find query} expression such as
+ * {@code item:diamond | tag:#minecraft:logs & !stale & within:64 & category:ores}. Terms:
+ * <ul>
+ *   <li>{@code item:<id>} — the chest was seen holding the item, loose or in a shulker box or bundle.</li>
+ *   <li>{@code tag:#<item tag>} — the chest was seen holding any item in the tag.</li>
+ *   <li>{@code category:<id or name>} — the chest is tagged with the category.</li>
+ *   <li>{@code stale} — the chest's contents were seen, but someone else has opened it since.</li>
+ *   <li>{@code within:<blocks>} — the chest is at most that far away.</li>
+ * </ul>
+ * {@code !} binds tightest, then {@code &}, then {@code |}; parentheses group.
+ *
+ * <p>The parsed tree is the predicate: {@link #test} evaluates it once per chest against what is
+ * known about it. {@link #candidates} picks the chests worth testing from the indexes — item
+ * postings for item and tag terms, the category reverse lookup for category terms — so a query
+ * only walks every chest in range when nothing in it narrows the search.
+ */
+public final class FindQuery {
+    static final int MAX_RADIUS = 256;
+
+    private final String source;
+    private final Node root;
+    private final Set<Item> items;
+    private final Set<String> categoryIds;
+
+    private FindQuery(String source, Node root, Set<Item> items, Set<String> categoryIds) {
+        this.source = source;
+        this.root = root;
+        this.items = Set.copyOf(items);
+        this.categoryIds = Set.copyOf(categoryIds);
+    }
+
+    /** Parses {@code input}; throws {@link IllegalArgumentException} with a readable message if it is malformed. */
+    public static FindQuery parse(String input, Lookup lookup) {
+        Parser parser = new Parser(tokenize(input), lookup);
+        Node root = parser.parseOr();
+        if (parser.hasNext()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "'");
+        }
+        return new FindQuery(input.trim(), root, parser.items, parser.categoryIds);
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /** Every item named by an item or tag term. */
+    public Set<Item> items() {
+        return items;
+    }
+
+    /** Every category named by a category term. */
+    public Set<String> categoryIds() {
+        return categoryIds;
+    }
+
+    public boolean test(ChestFacts chest) {
+        return root.test(chest);
+    }
+
+    /**
+     * How far the query can reach: the tightest {@code within:} every match must satisfy, or
+     * empty if matches may lie at any distance.
+     */
+    public OptionalDouble radiusBound() {
+        return root.radiusBound();
+    }
+
+    /**
+     * A superset of the matching chests, built from the indexes: {@code byItems} answers item and
+     * tag terms, {@code byCategory} category terms. Empty if some match could come from outside
+     * both, e.g. {@code !category:ores}; then every chest in range has to be tested.
+     */
+    public Optional<Set<ChestKey>> candidates(Function<Set<Item>, Set<ChestKey>> byItems,
+            Function<String, Set<ChestKey>> byCategory) {
+        return root.candidates(new Index(byItems, byCategory));
+    }
+
+    /** Resolves the names in a query; each returns empty for a name it does not know. */
+    public interface Lookup {
+        Optional<Item> item(String id);
+
+        Optional<Set<Item>> itemTag(String id);
+
+        Optional<String> category(String idOrName);
+    }
+
+    /**
+     * What is known about one chest: the items last seen in it (empty if never opened), whether
+     * those went stale, its category tag ({@code null} if untagged) and its distance.
+     */
+    public record ChestFacts(Set<Item> items, boolean stale, String categoryId, double distance) {
+    }
+
+    private record Index(Function<Set<Item>, Set<ChestKey>> byItems, Function<String, Set<ChestKey>> byCategory) {
+    }
+
+    private sealed interface Node permits Contains, InCategory, Stale, Within, Not, And, Or {
+        boolean test(ChestFacts chest);
+
+        Optional<Set<ChestKey>> candidates(Index index);
+
+        default OptionalDouble radiusBound() {
+            return OptionalDouble.empty();
+        }
+    }
+
+    private record Contains(Set<Item> items) implements Node {
+        @Override
+        public boolean test(ChestFacts chest) {
+            return !Collections.disjoint(chest.items(), items);
+        }
+
+        @Override
+        public Optional<Set<ChestKey>> candidates(Index index) {
+            return Optional.of(index.byItems().apply(items));
+        }
+    }
+
+    private record InCategory(String categoryId) implements Node {
+        @Override
+        public boolean test(ChestFacts chest) {
+            return categoryId.equals(chest.categoryId());
+        }
+
+        @Override
+        public Optional<Set<ChestKey>> candidates(Index index) {
+            return Optional.of(index.byCategory().apply(categoryId));
+        }
+    }
+
+    private record Stale() implements Node {
+        @Override
+        public boolean test(ChestFacts chest) {
+            return chest.stale();
+        }
+
+        @Override
+        public Optional<Set<ChestKey>> candidates(Index index) {
+            return Optional.empty();
+        }
+    }
+
+    private record Within(double radius) implements Node {
+        @Override
+        public boolean test(ChestFacts chest) {
+            return chest.distance() <= radius;
+        }
+
+        @Override
+        public Optional<Set<ChestKey>> candidates(Index index) {
+            return Optional.empty();
+        }
+
+        @Override
+        public OptionalDouble radiusBound() {
+            return OptionalDouble.of(radius);
+        }
+    }
+
+    private record Not(Node inner) implements Node {
+        @Override
+        public boolean test(ChestFacts chest) {
+            return !inner.test(chest);
+        }
+
+        @Override
+        public Optional<Set<ChestKey>> candidates(Index index) {
+            return Optional.empty();
+        }
+    }
+
+    private record And(Node left, Node right) implements Node {
+        @Override
+        public boolean test(ChestFacts chest) {
+            return left.test(chest) && right.test(chest);
+        }
+
+        // Either side bounds the matches; the smaller one means fewer chests to test.
+        @Override
+        public Optional<Set<ChestKey>> candidates(Index index) {
+            Optional<Set<ChestKey>> leftKeys = left.candidates(index);
+            Optional<Set<ChestKey>> rightKeys = right.candidates(index);
+            if (leftKeys.isEmpty() || rightKeys.isEmpty()) {
+                return leftKeys.isPresent() ? leftKeys : rightKeys;
+            }
+            return leftKeys.get().size() <= rightKeys.get().size() ? leftKeys : rightKeys;
+        }
+
+        @Override
+        public OptionalDouble radiusBound() {
+            OptionalDouble leftBound = left.radiusBound();
+            OptionalDouble rightBound = right.radiusBound();
+            if (leftBound.isEmpty() || rightBound.isEmpty()) {
+                return leftBound.isPresent() ? leftBound : rightBound;
+            }
+            return OptionalDouble.of(Math.min(leftBound.getAsDouble(), rightBound.getAsDouble()));
+        }
+    }
+
+    private record Or(Node left, Node right) implements Node {
+        @Override
+        public boolean test(ChestFacts chest) {
+            return left.test(chest) || right.test(chest);
+        }
+
+        @Override
+        public Optional<Set<ChestKey>> candidates(Index index) {
+            Optional<Set<ChestKey>> leftKeys = left.candidates(index);
+            if (leftKeys.isEmpty()) {
+                return leftKeys;
+            }
+            Optional<Set<ChestKey>> rightKeys = right.candidates(index);
+            if (rightKeys.isEmpty()) {
+                return rightKeys;
+            }
+            Set<ChestKey> union = new HashSet<>(leftKeys.get());
+            union.addAll(rightKeys.get());
+            return Optional.of(union);
+        }
+
+        @Override
+        public OptionalDouble radiusBound() {
+            OptionalDouble leftBound = left.radiusBound();
+            OptionalDouble rightBound = right.radiusBound();
+            if (leftBound.isEmpty() || rightBound.isEmpty()) {
+                return OptionalDouble.empty();
+            }
+            return OptionalDouble.of(Math.max(leftBound.getAsDouble(), rightBound.getAsDouble()));
+        }
+    }
+
+    /** Splits into words and the single-character operators {@code ( ) | & !}. */
+    private static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            boolean operator = c == '(' || c == ')' || c == '|' || c == '&' || c == '!';
+            if (operator || Character.isWhitespace(c)) {
+                if (!word.isEmpty()) {
+                    tokens.add(word.toString());
+                    word.setLength(0);
+                }
+                if (operator) {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                word.append(c);
+            }
+        }
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+        }
+        return tokens;
+    }
+
+    /** Recursive descent: or := and ('|' and)*, and := unary ('&' unary)*, unary := '!' unary | '(' or ')' | term. */
+    private static final class Parser {
+        private final List<String> tokens;
+        private final Lookup lookup;
+        private final Set<Item> items = new LinkedHashSet<>();
+        private final Set<String> categoryIds = new LinkedHashSet<>();
+        private int next;
+
+        Parser(List<String> tokens, Lookup lookup) {
+            this.tokens = tokens;
+            this.lookup = lookup;
+        }
+
+        boolean hasNext() {
+            return next < tokens.size();
+        }
+
+        String peek() {
+            return tokens.get(next);
+        }
+
+        Node parseOr() {
+            Node node = parseAnd();
+            while (accept("|")) {
+                node = new Or(node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() {
+            Node node = parseUnary();
+            while (accept("&")) {
+                node = new And(node, parseUnary());
+            }
+            return node;
+        }
+
+        private Node parseUnary() {
+            if (accept("!")) {
+                return new Not(parseUnary());
+            }
+            if (accept("(")) {
+                Node inner = parseOr();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Missing ')'");
+                }
+                return inner;
+            }
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Expected a term at the end");
+            }
+            String word = tokens.get(next++);
+            if (word.length() == 1 && "()|&".contains(word)) {
+                throw new IllegalArgumentException("Expected a term before '" + word + "'");
+            }
+            return parseTerm(word);
+        }
+
+        private Node parseTerm(String word) {
+            int colon = word.indexOf(':');
+            String name = (colon < 0 ? word : word.substring(0, colon)).toLowerCase(Locale.ROOT);
+            String value = colon < 0 ? "" : word.substring(colon + 1);
+            return switch (name) {
+                case "item" -> {
+                    Item item = lookup.item(value)
+                            .orElseThrow(() -> new IllegalArgumentException("Unknown item: " + value));
+                    items.add(item);
+                    yield new Contains(Set.of(item));
+                }
+                case "tag" -> {
+                    String tagId = value.startsWith("#") ? value.substring(1) : value;
+                    Set<Item> tagItems = lookup.itemTag(tagId)
+                            .filter(found -> !found.isEmpty())
+                            .orElseThrow(() -> new IllegalArgumentException("Unknown or empty item tag: #" + tagId));
+                    items.addAll(tagItems);
+                    yield new Contains(Set.copyOf(tagItems));
+                }
+                case "category" -> {
+                    String categoryId = lookup.category(value)
+                            .orElseThrow(() -> new IllegalArgumentException("Unknown category: " + value));
+                    categoryIds.add(categoryId);
+                    yield new InCategory(categoryId);
+                }
+                case "stale" -> {
+                    if (!value.isEmpty()) {
+                        throw new IllegalArgumentException("'stale' takes no value");
+                    }
+                    yield new Stale();
+                }
+                case "within" -> new Within(parseRadius(value));
+                default -> throw new IllegalArgumentException("Unknown term: " + word);
+            };
+        }
+
+        private static int parseRadius(String value) {
+            try {
+                int radius = Integer.parseInt(value);
+                if (radius >= 1 && radius <= MAX_RADIUS) {
+                    return radius;
+                }
+            } catch (NumberFormatException ignored) {
+                // Reported below.
+            }
+            throw new IllegalArgumentException("within needs a distance from 1 to " + MAX_RADIUS + ", got: " + value);
+        }
+
+        private boolean accept(String token) {
+            if (hasNext() && tokens.get(next).equals(token)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.latchandlabel.client.find;
+
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.arguments.ArgumentType;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@code /find} query word: everything up to the next space. Unlike
+ * {@link com.mojang.brigadier.arguments.StringArgumentType#word()} it keeps {@code :}, {@code #}
+ * and {@code ,}, so {@code minecraft:diamond}, {@code #ores} and {@code iron_ingot,redstone}
+ * all parse. Read it back with {@code StringArgumentType.getString}.
+ */
+final class FindQueryArgumentType implements ArgumentType<String> {
+    private static final Collection<String> EXAMPLES = List.of("diamond", "minecraft:iron_ingot", "#ores", "iron_ingot,redstone");
+
+    static FindQueryArgumentType query() {
+        return new FindQueryArgumentType();
+    }
+
+    @Override
+    public String parse(StringReader reader) {
+        int start = reader.getCursor();
+        while (reader.canRead() && reader.peek() != ' ') {
+            reader.skip();
+        }
+        return reader.getString().substring(start, reader.getCursor());
+    }
+
+    @Override
+    public Collection<String> getExamples() {
+        return EXAMPLES;
+    }
+}
@@ -6,9 +6,13 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
@@ -18,11 +22,20 @@ import java.util.Set;
  * replaces them, the player changes dimension, or the configurable highlight timeout elapses
  * ({@link FindSettings#findHighlightTimeoutSeconds()}, 0 = never). Also tracks the query label,
  * the category it belongs to (for the HUD), and a target cursor the player can cycle through.
+ *
+ * <p>A {@link FindSearch} still running feeds its matches in through {@link #pollSearch()} once
+ * per client tick; a new search, a {@link #publish} from elsewhere or a clear cancels it.
+ *
+ * <p>A query for several items keeps one match per chest and item, grouped per item by
+ * {@link #resultsByItem()}. The target cursor then walks a {@link #route()} visiting each chest
+ * once, each stop the nearest unvisited chest from the last, so one trip collects everything.
  */
 public final class FindResultState {
 
     private record Snapshot(
             List<FindScanService.FindMatch> results,
+            List<FindScanService.FindMatch> route,
+            List<Item> queryItems,
             long generation,
             Set<ChestKey> focusedKeys,
             SlotHighlight slotHighlight,
@@ -31,33 +44,55 @@ public final class FindResultState {
             int targetIndex,
             long publishedAtMs
     ) {
-        static final Snapshot EMPTY = new Snapshot(List.of(), 0L, Set.of(), SlotHighlight.EMPTY, null, null, 0, 0L);
+        static final Snapshot EMPTY = new Snapshot(List.of(), List.of(), List.of(), 0L, Set.of(), SlotHighlight.EMPTY, null, null, 0, 0L);
 
         Snapshot copy(List<FindScanService.FindMatch> results, Set<ChestKey> focusedKeys, SlotHighlight slotHighlight,
                       Component queryLabel, String categoryId, int targetIndex, long publishedAtMs) {
-            return new Snapshot(results, generation, focusedKeys, slotHighlight, queryLabel, categoryId, targetIndex, publishedAtMs);
+            List<FindScanService.FindMatch> route = results == this.results ? this.route : routeFor(results, queryItems);
+            return new Snapshot(results, route, queryItems, generation, focusedKeys, slotHighlight, queryLabel, categoryId,
+                    targetIndex, publishedAtMs);
         }
     }
 
-    private record SlotHighlight(Item exactItem, Set<Item> variantItems, String categoryId) {
-        static final SlotHighlight EMPTY = new SlotHighlight(null, Set.of(), null);
+    private record SlotHighlight(Set<Item> exactItems, Set<Item> variantItems, String categoryId) {
+        static final SlotHighlight EMPTY = new SlotHighlight(Set.of(), Set.of(), null);
 
         boolean isEmpty() {
-            return exactItem == null && variantItems.isEmpty() && categoryId == null;
+            return exactItems.isEmpty() && variantItems.isEmpty() && categoryId == null;
         }
     }
 
     private static volatile Snapshot snapshot = Snapshot.EMPTY;
+    private static volatile FindSearch activeSearch;
+
+    private static final Comparator<FindScanService.FindMatch> RESULT_ORDER = Comparator
+            .comparing(FindScanService.FindMatch::matchType)
+            .thenComparingDouble(FindScanService.FindMatch::distance);
 
     private FindResultState() {
     }
 
+    /** Replaces the results; the query items are reset, so a multi-item query sets them again afterwards. */
     public static synchronized void publish(List<FindScanService.FindMatch> matches) {
+        cancelSearch();
         Snapshot prev = snapshot;
-        snapshot = new Snapshot(List.copyOf(matches), prev.generation() + 1, Set.of(), prev.slotHighlight(),
+        List<FindScanService.FindMatch> results = List.copyOf(matches);
+        snapshot = new Snapshot(results, results, List.of(), prev.generation() + 1, Set.of(), prev.slotHighlight(),
                 prev.queryLabel(), prev.categoryId(), 0, System.currentTimeMillis());
     }
 
+    /** The items the current query looks for, in the order given; matches are grouped by them. */
+    public static synchronized void setQueryItems(List<Item> items) {
+        Snapshot p = snapshot;
+        List<Item> queryItems = List.copyOf(items);
+        snapshot = new Snapshot(p.results(), routeFor(p.results(), queryItems), queryItems, p.generation(),
+                p.focusedKeys(), p.slotHighlight(), p.queryLabel(), p.categoryId(), 0, p.publishedAtMs());
+    }
+
+    public static List<Item> queryItems() {
+        return snapshot.queryItems();
+    }
+
     public static synchronized void setQueryLabel(Component label) {
         Snapshot p = snapshot;
         snapshot = p.copy(p.results(), p.focusedKeys(), p.slotHighlight(), label, p.categoryId(), p.targetIndex(), p.publishedAtMs());
@@ -80,19 +115,120 @@ public final class FindResultState {
         return snapshot.results();
     }
 
+    /** The results per query item, in query order; empty unless the query names items. */
+    public static Map<Item, List<FindScanService.FindMatch>> resultsByItem() {
+        Snapshot s = snapshot;
+        Map<Item, List<FindScanService.FindMatch>> byItem = new LinkedHashMap<>();
+        for (Item item : s.queryItems()) {
+            byItem.put(item, new ArrayList<>());
+        }
+        for (FindScanService.FindMatch match : s.results()) {
+            List<FindScanService.FindMatch> matches = byItem.get(match.item());
+            if (matches != null) {
+                matches.add(match);
+            }
+        }
+        return byItem;
+    }
+
+    /**
+     * The order the target cursor visits the results in. For a single item this is the results
+     * themselves; for several it has one stop per chest, with the best match found there.
+     */
+    public static List<FindScanService.FindMatch> route() {
+        return snapshot.route();
+    }
+
     public static boolean hasActiveResults() {
         Snapshot s = snapshot;
-        return !s.results().isEmpty() || !s.slotHighlight().isEmpty();
+        return !s.results().isEmpty() || !s.slotHighlight().isEmpty() || activeSearch != null;
     }
 
-    public static void clear() {
+    public static synchronized void clear() {
+        cancelSearch();
         snapshot = Snapshot.EMPTY;
     }
 
+    /** Makes {@code search} the one feeding the results, cancelling any search still running. */
+    public static synchronized void startSearch(FindSearch search) {
+        cancelSearch();
+        activeSearch = search;
+    }
+
+    public static Optional<FindSearch> activeSearch() {
+        return Optional.ofNullable(activeSearch);
+    }
+
+    /** Stops the running search, keeping the results found so far. Returns whether one was running. */
+    public static synchronized boolean cancelSearch() {
+        FindSearch search = activeSearch;
+        if (search == null) {
+            return false;
+        }
+        search.cancel();
+        activeSearch = null;
+        return true;
+    }
+
+    /**
+     * Moves matches found since the last poll into the results, keeping them sorted by match type
+     * and distance, and finishes the search once its workers are done. Client thread, once a tick.
+     */
+    public static void pollSearch() {
+        FindSearch search = activeSearch;
+        if (search == null) {
+            return;
+        }
+        // Read before draining, so the matches queued by the last batch are not left behind.
+        boolean done = search.isDone();
+        List<FindScanService.FindMatch> found = search.drainFound();
+        List<FindScanService.FindMatch> results;
+        synchronized (FindResultState.class) {
+            if (activeSearch != search) {
+                return;
+            }
+            if (!found.isEmpty()) {
+                appendResults(found);
+            }
+            if (!done) {
+                return;
+            }
+            activeSearch = null;
+            results = snapshot.results();
+        }
+        if (!search.isCancelled()) {
+            search.complete(results);
+        }
+    }
+
+    /**
+     * Adds matches to the current results; a chest already listed for the same item keeps its
+     * better match. Known matches are focused, like the ones passed to {@link #focusAll}. Caller
+     * holds the lock.
+     */
+    private static void appendResults(List<FindScanService.FindMatch> matches) {
+        Snapshot p = snapshot;
+        Map<FindScanService.MatchKey, FindScanService.FindMatch> byKey = new LinkedHashMap<>();
+        for (FindScanService.FindMatch match : p.results()) {
+            byKey.put(match.matchKey(), match);
+        }
+        Set<ChestKey> focused = new LinkedHashSet<>(p.focusedKeys());
+        for (FindScanService.FindMatch match : matches) {
+            byKey.merge(match.matchKey(), match, (a, b) -> RESULT_ORDER.compare(a, b) <= 0 ? a : b);
+            if (match.matchType() != FindScanService.MatchType.LIKELY) {
+                focused.add(match.chestKey());
+            }
+        }
+        List<FindScanService.FindMatch> results = new ArrayList<>(byKey.values());
+        results.sort(RESULT_ORDER);
+        snapshot = p.copy(List.copyOf(results), focused, p.slotHighlight(), p.queryLabel(), p.categoryId(),
+                p.targetIndex(), System.currentTimeMillis());
+    }
+
     /** Clears everything once the configured highlight timeout elapses (0 = never). */
     public static void expireIfDue() {
         Snapshot s = snapshot;
-        if (s == Snapshot.EMPTY) {
+        if (s == Snapshot.EMPTY || activeSearch != null) {
             return;
         }
         int timeoutSeconds = FindSettings.findHighlightTimeoutSeconds();
@@ -110,20 +246,20 @@ public final class FindResultState {
 
     public static synchronized void cycleTarget() {
         Snapshot p = snapshot;
-        if (p.results().isEmpty()) {
+        if (p.route().isEmpty()) {
             return;
         }
-        int next = (p.targetIndex() + 1) % p.results().size();
+        int next = (p.targetIndex() + 1) % p.route().size();
         snapshot = p.copy(p.results(), p.focusedKeys(), p.slotHighlight(), p.queryLabel(), p.categoryId(), next, p.publishedAtMs());
     }
 
     public static Optional<FindScanService.FindMatch> currentTarget() {
         Snapshot s = snapshot;
-        if (s.results().isEmpty()) {
+        if (s.route().isEmpty()) {
             return Optional.empty();
         }
-        int index = Math.min(s.targetIndex(), s.results().size() - 1);
-        return Optional.of(s.results().get(index));
+        int index = Math.min(s.targetIndex(), s.route().size() - 1);
+        return Optional.of(s.route().get(index));
     }
 
     public static synchronized void focusAll(Collection<ChestKey> chestKeys) {
@@ -137,15 +273,19 @@ public final class FindResultState {
     }
 
     public static synchronized void highlightItems(Item exactItem, Set<Item> variantItems) {
+        highlightItems(Set.of(exactItem), variantItems);
+    }
+
+    public static synchronized void highlightItems(Collection<Item> exactItems, Set<Item> variantItems) {
         Snapshot p = snapshot;
         snapshot = p.copy(p.results(), p.focusedKeys(),
-                new SlotHighlight(exactItem, variantItems == null ? Set.of() : Set.copyOf(variantItems), null),
+                new SlotHighlight(Set.copyOf(exactItems), variantItems == null ? Set.of() : Set.copyOf(variantItems), null),
                 p.queryLabel(), p.categoryId(), p.targetIndex(), p.publishedAtMs());
     }
 
     public static synchronized void highlightCategory(String categoryId) {
         Snapshot p = snapshot;
-        snapshot = p.copy(p.results(), p.focusedKeys(), new SlotHighlight(null, Set.of(), categoryId),
+        snapshot = p.copy(p.results(), p.focusedKeys(), new SlotHighlight(Set.of(), Set.of(), categoryId),
                 p.queryLabel(), p.categoryId(), p.targetIndex(), p.publishedAtMs());
     }
 
@@ -156,7 +296,7 @@ public final class FindResultState {
 
         SlotHighlight highlight = snapshot.slotHighlight();
         Item item = stack.getItem();
-        if (highlight.exactItem() != null && item == highlight.exactItem()) {
+        if (highlight.exactItems().contains(item)) {
             return OptionalInt.of(0xAAFFD84A);
         }
         if (highlight.variantItems().contains(item)) {
@@ -171,4 +311,47 @@ public final class FindResultState {
 
         return OptionalInt.empty();
     }
+
+    /**
+     * The target order for {@code results}. Several query items get a nearest-neighbour walk over
+     * the chests holding any of them, starting from the one nearest the player; chests only
+     * guessed at ({@link FindScanService.MatchType#LIKELY}) follow by distance, after everything known.
+     */
+    private static List<FindScanService.FindMatch> routeFor(List<FindScanService.FindMatch> results, List<Item> queryItems) {
+        if (queryItems.size() <= 1) {
+            return results;
+        }
+        // Results are in RESULT_ORDER, so the first match per chest is its best one.
+        Map<ChestKey, FindScanService.FindMatch> bestByChest = new LinkedHashMap<>();
+        for (FindScanService.FindMatch match : results) {
+            bestByChest.putIfAbsent(match.chestKey(), match);
+        }
+        List<FindScanService.FindMatch> unvisited = new ArrayList<>();
+        List<FindScanService.FindMatch> guesses = new ArrayList<>();
+        for (FindScanService.FindMatch match : bestByChest.values()) {
+            (match.matchType() == FindScanService.MatchType.LIKELY ? guesses : unvisited).add(match);
+        }
+
+        List<FindScanService.FindMatch> route = new ArrayList<>(bestByChest.size());
+        FindScanService.FindMatch current = null;
+        while (!unvisited.isEmpty()) {
+            int nearest = 0;
+            double nearestDistance = Double.MAX_VALUE;
+            for (int i = 0; i < unvisited.size(); i++) {
+                FindScanService.FindMatch candidate = unvisited.get(i);
+                double distance = current == null
+                        ? candidate.distance()
+                        : current.chestKey().pos().distSqr(candidate.chestKey().pos());
+                if (distance < nearestDistance) {
+                    nearest = i;
+                    nearestDistance = distance;
+                }
+            }
+            current = unvisited.remove(nearest);
+            route.add(current);
+        }
+        guesses.sort(Comparator.comparingDouble(FindScanService.FindMatch::distance));
+        route.addAll(guesses);
+        return List.copyOf(route);
+    }
 }
@@ -3,6 +3,7 @@ package com.latchandlabel.client.find;
 import com.latchandlabel.client.LatchLabel;
 import com.latchandlabel.client.LatchLabelClientState;
 import com.latchandlabel.client.model.Category;
+import com.latchandlabel.client.store.ObservedIndexStore.NestedHolder;
 import com.latchandlabel.client.ui.GuiUtils;
 import net.fabricmc.fabric.api.client.rendering.v1.hud.HudElementRegistry;
 import net.fabricmc.fabric.api.client.rendering.v1.hud.VanillaHudElements;
@@ -11,17 +12,24 @@ import net.minecraft.client.gui.GuiGraphicsExtractor;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.Identifier;
+import net.minecraft.network.chat.MutableComponent;
 import net.minecraft.util.Mth;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Small top-left HUD listing the active {@code /find} results: the query, the category it
  * belongs to (name + color swatch), how many chests matched (known vs likely), and the
- * distance + a compass arrow to the currently targeted chest. The panel border pulses in the
- * category's color. The target cursor is advanced with the find-cycle keybind.
+ * distance + a compass arrow to the currently targeted chest, and which shulker box or bundle in
+ * it holds the item. The panel border pulses in the category's color. The target cursor is advanced with the find-cycle keybind.
+ * While the search is still running, a last line shows how far it got and how to cancel it.
+ * A query for several items lists the counts per item instead, and which of them the targeted
+ * chest holds.
  */
 public final class FindResultsHudRenderer {
     private static final int X = 6;
@@ -57,31 +65,32 @@ public final class FindResultsHudRenderer {
         }
 
         List<FindScanService.FindMatch> results = FindResultState.getActiveResults();
-        int known = 0;
-        int stale = 0;
-        for (FindScanService.FindMatch m : results) {
-            switch (m.matchType()) {
-                case KNOWN -> known++;
-                case KNOWN_STALE -> stale++;
-                default -> {
-                }
-            }
-        }
-        int likely = results.size() - known - stale;
+        boolean multiItem = FindResultState.queryItems().size() > 1;
 
         Optional<Category> category = FindResultState.queryCategoryId()
                 .flatMap(id -> LatchLabelClientState.categoryStore().getById(id));
 
         Component header = Component.translatable("latchlabel.find.hud_header",
                 FindResultState.queryLabel().orElse(Component.translatable("latchlabel.find.hud_query_fallback")),
-                results.size());
+                multiItem ? FindResultState.route().size() : results.size());
         Component categoryLine = category
                 .map(c -> Component.translatable("latchlabel.find.hud_category", c.name()))
                 .orElse(null);
         Component target = targetLine(client);
-        Component counts = stale > 0
-                ? Component.translatable("latchlabel.find.hud_counts_stale", known, stale, likely)
-                : Component.translatable("latchlabel.find.hud_counts", known, likely);
+        Component targetItems = multiItem ? targetItemsLine(results) : null;
+        Component nested = nestedLine();
+        List<Component> counts = new ArrayList<>();
+        if (multiItem) {
+            for (Map.Entry<Item, List<FindScanService.FindMatch>> entry : FindResultState.resultsByItem().entrySet()) {
+                counts.add(Component.translatable("latchlabel.find.hud_item_counts",
+                        new ItemStack(entry.getKey()).getHoverName(), countsLine(entry.getValue())));
+            }
+        } else {
+            counts.add(countsLine(results));
+        }
+        Component progress = FindResultState.activeSearch()
+                .map(search -> Component.translatable("latchlabel.find.hud_searching", Math.round(search.progress() * 100.0f)))
+                .orElse(null);
 
         List<Component> lines = new ArrayList<>();
         lines.add(header);
@@ -91,7 +100,16 @@ public final class FindResultsHudRenderer {
         if (target != null) {
             lines.add(target);
         }
-        lines.add(counts);
+        if (targetItems != null) {
+            lines.add(targetItems);
+        }
+        if (nested != null) {
+            lines.add(nested);
+        }
+        lines.addAll(counts);
+        if (progress != null) {
+            lines.add(progress);
+        }
 
         int textWidth = 0;
         for (Component line : lines) {
@@ -118,7 +136,7 @@ public final class FindResultsHudRenderer {
                 context.text(client.font, line, textX + SWATCH + 3, y, 0xFFFFFFFF);
             } else if (line == header) {
                 context.text(client.font, line, textX, y, GOLD);
-            } else if (line == counts) {
+            } else if (counts.contains(line) || line == progress) {
                 context.text(client.font, line, textX, y, DIM);
             } else {
                 context.text(client.font, line, textX, y, 0xFFFFFFFF);
@@ -127,6 +145,58 @@ public final class FindResultsHudRenderer {
         }
     }
 
+    private static Component countsLine(List<FindScanService.FindMatch> matches) {
+        int known = 0;
+        int stale = 0;
+        for (FindScanService.FindMatch m : matches) {
+            switch (m.matchType()) {
+                case KNOWN -> known++;
+                case KNOWN_STALE -> stale++;
+                default -> {
+                }
+            }
+        }
+        int likely = matches.size() - known - stale;
+        return stale > 0
+                ? Component.translatable("latchlabel.find.hud_counts_stale", known, stale, likely)
+                : Component.translatable("latchlabel.find.hud_counts", known, likely);
+    }
+
+    /** "here: Iron Ingot, Redstone" — the query items the targeted chest holds or is guessed to hold. */
+    private static Component targetItemsLine(List<FindScanService.FindMatch> results) {
+        FindScanService.FindMatch target = FindResultState.currentTarget().orElse(null);
+        if (target == null) {
+            return null;
+        }
+        MutableComponent names = Component.empty();
+        boolean first = true;
+        for (FindScanService.FindMatch match : results) {
+            if (match.item() == null || !match.chestKey().equals(target.chestKey())) {
+                continue;
+            }
+            if (!first) {
+                names.append(", ");
+            }
+            names.append(new ItemStack(match.item()).getHoverName());
+            first = false;
+        }
+        return Component.translatable("latchlabel.find.hud_target_items", names);
+    }
+
+    /** "inside: Red Shulker Box" for a target found inside a holder; a custom name wins over the item name. */
+    private static Component nestedLine() {
+        NestedHolder holder = FindResultState.currentTarget()
+                .map(FindScanService.FindMatch::nestedIn)
+                .orElse(null);
+        if (holder == null) {
+            return null;
+        }
+        Component name = holder.customName() != null
+                ? Component.literal(holder.customName())
+                : new ItemStack(holder.holder()).getHoverName();
+        return Component.translatable("latchlabel.find.hud_nested", name);
+    }
+
     private static Component targetLine(Minecraft client) {
         Optional<FindScanService.FindMatch> targetOpt = FindResultState.currentTarget();
         if (targetOpt.isEmpty()) {
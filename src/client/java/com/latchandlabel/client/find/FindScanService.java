@@ -3,31 +3,27 @@ package com.latchandlabel.client.find;
 import com.latchandlabel.client.McCompat;
 import com.latchandlabel.client.LatchLabelClientState;
 import com.latchandlabel.client.model.ChestKey;
-import com.latchandlabel.client.targeting.StorageKeyResolver;
-import com.latchandlabel.client.targeting.TrackableStorage;
+import com.latchandlabel.client.store.ObservedIndexStore;
+import com.latchandlabel.client.store.ObservedIndexStore.NestedHolder;
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.Identifier;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.Container;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.Item;
-import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.chunk.LevelChunk;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Answers {@code /find} queries from what the client actually knows: the persistent
@@ -40,208 +36,198 @@ import java.util.Set;
  *       are unknown, so it's a guess.</li>
  * </ul>
  * No block-entity scanning: the client cannot read the inventory of a chest it hasn't opened.
+ * Items packed in a shulker box or bundle inside a chest count as found in that chest; the match
+ * then carries the {@link FindMatch#nestedIn() holder} to open.
+ *
+ * <p>A query may name several items ({@link FindTarget}s); every pass below evaluates all of them
+ * at once, so gathering materials for a build costs one scan rather than one per item. Each match
+ * names the item it answers, and a chest holding several of them yields one match per item.
  */
 public final class FindScanService {
 
-    public List<FindMatch> scan(Minecraft client, Item targetItem, Set<Item> matchSet, int radius) {
-        if (client == null || client.level == null || client.player == null) {
-            return List.of();
+    /**
+     * Starts a search for all {@code targets} and returns right away; matches arrive through the
+     * returned {@link FindSearch}. {@code onComplete} runs on the client thread with the final
+     * results unless the search is cancelled. Returns {@code null} without a world.
+     */
+    public FindSearch scan(Minecraft client, List<FindTarget> targets, int radius,
+            Consumer<List<FindMatch>> onComplete) {
+        if (client == null || client.level == null || client.player == null || targets.isEmpty()) {
+            return null;
         }
 
         Level world = client.level;
         Player player = client.player;
         Identifier dimensionId = McCompat.dimensionId(world);
-        double maxDistanceSq = (double) radius * radius;
-        String targetCategoryId = LatchLabelClientState.itemCategoryMappingService()
-                .categoryIdFor(BuiltInRegistries.ITEM.getKey(targetItem))
-                .orElse(null);
 
         // Single-player: the integrated server holds real contents, so read every loaded container
         // directly — no need to have opened it. Multiplayer can't see chunk contents, so it falls
         // back to what we've personally observed (fresh/stale) plus tagged guesses.
         if (client.hasSingleplayerServer()) {
-            List<FindMatch> omniscient = scanSingleplayer(
-                    client, world, player, dimensionId, targetItem, matchSet, targetCategoryId, radius, maxDistanceSq);
+            FindSearch omniscient = scanSingleplayer(client, world, player, dimensionId, targets, radius, onComplete);
             if (omniscient != null) {
                 return omniscient;
             }
         }
-        return scanObserved(world, player, dimensionId, targetItem, matchSet, targetCategoryId, maxDistanceSq);
+        return FindSearch.completed(scanObserved(player, dimensionId, targets, radius), onComplete);
     }
 
-    /** Multiplayer / fallback tiers: observed contents (KNOWN or KNOWN_STALE) + tagged guesses (LIKELY). */
-    private List<FindMatch> scanObserved(Level world, Player player, Identifier dimensionId,
-            Item targetItem, Set<Item> matchSet, String targetCategoryId, double maxDistanceSq) {
-        List<FindMatch> matches = new ArrayList<>();
-        for (ChestKey key : candidateKeys()) {
-            if (!inScope(key, dimensionId, player, maxDistanceSq)) {
-                continue;
-            }
+    /**
+     * Multiplayer / fallback tiers: observed contents (KNOWN or KNOWN_STALE) + tagged guesses (LIKELY).
+     * Observed hits come from the region shards within radius and tagged guesses from the tag
+     * store's category index, so neither pass walks unrelated chests. One index lookup covers
+     * every target; each candidate is then checked against the targets one by one.
+     */
+    private List<FindMatch> scanObserved(Player player, Identifier dimensionId, List<FindTarget> targets, int radius) {
+        Set<Item> allItems = new HashSet<>();
+        for (FindTarget target : targets) {
+            allItems.addAll(target.items());
+        }
 
-            MatchType matchType = MatchType.NONE;
-            Optional<Set<Item>> observed = LatchLabelClientState.observedIndexStore().itemsFor(key);
-            if (observed.isPresent() && containsAny(observed.get(), targetItem, matchSet)) {
-                matchType = LatchLabelClientState.observedIndexStore().isStale(key)
-                        ? MatchType.KNOWN_STALE : MatchType.KNOWN;
-            } else if (targetCategoryId != null && isTaggedWith(key, targetCategoryId)) {
-                matchType = MatchType.LIKELY;
-            }
-            if (matchType == MatchType.NONE) {
-                continue;
+        Map<MatchKey, FindMatch> matches = new LinkedHashMap<>();
+        for (ChestKey key : LatchLabelClientState.observedIndexStore()
+                .keysContainingAny(allItems, dimensionId, player.getX(), player.getY(), player.getZ(), radius)) {
+            MatchType matchType = LatchLabelClientState.observedIndexStore().isStale(key)
+                    ? MatchType.KNOWN_STALE : MatchType.KNOWN;
+            double distance = distance(player, key);
+            for (FindTarget target : targets) {
+                Set<Item> items = target.items();
+                // With a single target every candidate matches it; skip the second lookup.
+                if (targets.size() > 1 && !LatchLabelClientState.observedIndexStore().containsAny(key, items)) {
+                    continue;
+                }
+                NestedHolder nestedIn = LatchLabelClientState.observedIndexStore().nestedHolder(key, items).orElse(null);
+                matches.put(new MatchKey(key, target.item()), new FindMatch(key, matchType, distance, nestedIn, target.item()));
             }
-            matches.add(new FindMatch(key, matchType, distance(player, key)));
+        }
+        for (FindMatch guess : taggedGuesses(player, dimensionId, targets, radius)) {
+            matches.putIfAbsent(guess.matchKey(), guess);
         }
 
-        matches.sort(Comparator.comparing(FindMatch::matchType).thenComparingDouble(FindMatch::distance));
-        return List.copyOf(matches);
+        List<FindMatch> sorted = new ArrayList<>(matches.values());
+        sorted.sort(Comparator.comparing(FindMatch::matchType).thenComparingDouble(FindMatch::distance));
+        return List.copyOf(sorted);
     }
 
     /**
-     * Single-player scan: reads authoritative contents of every loaded container in range from the
-     * integrated server. Matches are always {@link MatchType#KNOWN} (server truth). Tagged chests in
-     * unloaded chunks — which we can't read — are added as {@link MatchType#LIKELY}. Returns
-     * {@code null} if the server level is unavailable so the caller can fall back to observed tiers.
+     * Single-player scan: reads authoritative contents of every loaded container in range on the
+     * integrated server thread ({@link IntegratedServerScan}). Matches are always
+     * {@link MatchType#KNOWN} (server truth); tagged chests in unloaded chunks — which we can't
+     * read — are {@link MatchType#LIKELY}. Returns {@code null} if the server level is
+     * unavailable so the caller can fall back to observed tiers.
      */
-    private List<FindMatch> scanSingleplayer(Minecraft client, Level world, Player player, Identifier dimensionId,
-            Item targetItem, Set<Item> matchSet, String targetCategoryId, int radius, double maxDistanceSq) {
+    private FindSearch scanSingleplayer(Minecraft client, Level world, Player player, Identifier dimensionId,
+            List<FindTarget> targets, int radius, Consumer<List<FindMatch>> onComplete) {
         MinecraftServer server = client.getSingleplayerServer();
         ServerLevel serverLevel = server == null ? null : server.getLevel(world.dimension());
         if (serverLevel == null) {
             return null;
         }
 
-        Map<ChestKey, Set<Item>> contentsByKey = new LinkedHashMap<>();
-        Map<ChestKey, Double> distByKey = new HashMap<>();
+        List<FindMatch> taggedGuesses = taggedGuesses(player, dimensionId, targets, radius);
+        FindSearch search = new FindSearch(onComplete);
+        new IntegratedServerScan(server, serverLevel, player.getX(), player.getY(), player.getZ(), radius,
+                List.copyOf(targets), taggedGuesses, search).start();
+        return search;
+    }
 
-        int minChunkX = Math.floorDiv((int) Math.floor(player.getX() - radius), 16);
-        int maxChunkX = Math.floorDiv((int) Math.floor(player.getX() + radius), 16);
-        int minChunkZ = Math.floorDiv((int) Math.floor(player.getZ() - radius), 16);
-        int maxChunkZ = Math.floorDiv((int) Math.floor(player.getZ() + radius), 16);
-        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
-            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
-                if (!world.getChunkSource().hasChunk(chunkX, chunkZ)) {
-                    continue;
-                }
-                LevelChunk chunk = world.getChunk(chunkX, chunkZ);
-                for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
-                    if (!TrackableStorage.isTrackableStorage(blockEntity)) {
-                        continue;
-                    }
-                    BlockPos pos = blockEntity.getBlockPos();
-                    double distanceSq = player.distanceToSqr(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
-                    if (distanceSq > maxDistanceSq) {
-                        continue;
-                    }
-                    ChestKey key = StorageKeyResolver.resolveForWorld(world, pos).orElse(null);
-                    if (key == null) {
-                        continue;
-                    }
-                    // Merge both halves of a double chest under the one canonical key.
-                    Set<Item> items = contentsByKey.computeIfAbsent(key, k -> new LinkedHashSet<>());
-                    readServerContents(serverLevel, pos, items);
-                    distByKey.merge(key, Math.sqrt(distanceSq), Math::min);
-                }
+    /** A {@link MatchType#LIKELY} match per target for each chest tagged with its category; each category is looked up once. */
+    private static List<FindMatch> taggedGuesses(Player player, Identifier dimensionId, List<FindTarget> targets, int radius) {
+        Map<String, List<ChestKey>> keysByCategory = new HashMap<>();
+        List<FindMatch> guesses = new ArrayList<>();
+        for (FindTarget target : targets) {
+            if (target.categoryId() == null) {
+                continue;
+            }
+            List<ChestKey> keys = keysByCategory.computeIfAbsent(target.categoryId(),
+                    categoryId -> categoryKeysInRange(player, dimensionId, categoryId, radius));
+            for (ChestKey key : keys) {
+                guesses.add(new FindMatch(key, MatchType.LIKELY, distance(player, key), null, target.item()));
             }
         }
+        return guesses;
+    }
 
-        List<FindMatch> matches = new ArrayList<>();
-        for (Map.Entry<ChestKey, Set<Item>> entry : contentsByKey.entrySet()) {
-            if (containsAny(entry.getValue(), targetItem, matchSet)) {
-                matches.add(new FindMatch(entry.getKey(), MatchType.KNOWN, distByKey.getOrDefault(entry.getKey(), 0.0)));
-            }
+    public List<FindMatch> scanByTag(Minecraft client, String categoryId, int radius) {
+        if (client == null || client.level == null || client.player == null) {
+            return List.of();
         }
-        // Tagged chests we couldn't read (unloaded) stay honest guesses.
-        if (targetCategoryId != null) {
-            for (var entry : LatchLabelClientState.tagStore().snapshotTags().entrySet()) {
-                if (!targetCategoryId.equals(entry.getValue())) {
-                    continue;
-                }
-                ChestKey key = entry.getKey();
-                if (contentsByKey.containsKey(key) || !inScope(key, dimensionId, player, maxDistanceSq)) {
-                    continue;
-                }
-                matches.add(new FindMatch(key, MatchType.LIKELY, distance(player, key)));
-            }
+
+        Player player = client.player;
+        Identifier dimensionId = McCompat.dimensionId(client.level);
+
+        List<FindMatch> matches = new ArrayList<>();
+        for (ChestKey key : categoryKeysInRange(player, dimensionId, categoryId, radius)) {
+            matches.add(new FindMatch(key, MatchType.KNOWN, distance(player, key)));
         }
 
-        matches.sort(Comparator.comparing(FindMatch::matchType).thenComparingDouble(FindMatch::distance));
+        matches.sort(Comparator.comparingDouble(FindMatch::distance));
         return List.copyOf(matches);
     }
 
     /**
-     * Reads an integrated-server container's item types into {@code out}.
-     * ponytail: cross-thread read of the integrated server from the client thread; /find is
-     * user-triggered and infrequent, so a rare concurrent-modification race is tolerable — on
-     * throw we just drop this one container rather than failing the whole scan.
+     * Answers a {@link FindQuery} in one pass: the query's index lookups pick the candidate chests
+     * (every observed or tagged chest in range if nothing narrows it), and each candidate's facts
+     * are gathered once and tested once. Chests seen holding something are {@link MatchType#KNOWN}
+     * or {@link MatchType#KNOWN_STALE}; the rest matched on their tag, which is also a fact.
+     * The search reaches as far as the query's {@code within:} allows, or {@code defaultRadius}.
      */
-    private static void readServerContents(ServerLevel serverLevel, BlockPos pos, Set<Item> out) {
-        try {
-            BlockEntity blockEntity = serverLevel.getBlockEntity(pos);
-            if (blockEntity instanceof Container container) {
-                int size = container.getContainerSize();
-                for (int i = 0; i < size; i++) {
-                    ItemStack stack = container.getItem(i);
-                    if (!stack.isEmpty()) {
-                        out.add(stack.getItem());
-                    }
-                }
-            }
-        } catch (RuntimeException ignored) {
-            // tolerate the rare race; the container just won't contribute this scan
-        }
-    }
-
-    public List<FindMatch> scanByTag(Minecraft client, String categoryId, int radius) {
+    public List<FindMatch> scanQuery(Minecraft client, FindQuery query, int defaultRadius) {
         if (client == null || client.level == null || client.player == null) {
             return List.of();
         }
 
-        Level world = client.level;
         Player player = client.player;
-        Identifier dimensionId = McCompat.dimensionId(world);
-        double maxDistanceSq = (double) radius * radius;
+        Identifier dimensionId = McCompat.dimensionId(client.level);
+        double radius = query.radiusBound().orElse(defaultRadius);
+        double x = player.getX();
+        double y = player.getY();
+        double z = player.getZ();
+        ObservedIndexStore observed = LatchLabelClientState.observedIndexStore();
+
+        Set<ChestKey> candidates = query.candidates(
+                items -> observed.keysContainingAny(items, dimensionId, x, y, z, radius),
+                categoryId -> Set.copyOf(categoryKeysInRange(player, dimensionId, categoryId, (int) Math.ceil(radius)))
+        ).orElseGet(() -> {
+            Set<ChestKey> all = new HashSet<>(observed.keysWithin(dimensionId, x, y, z, radius));
+            all.addAll(LatchLabelClientState.tagStore().tagsWithin(dimensionId, x, y, z, radius).keySet());
+            return all;
+        });
 
         List<FindMatch> matches = new ArrayList<>();
-        for (var entry : LatchLabelClientState.tagStore().snapshotTags().entrySet()) {
-            if (!categoryId.equals(entry.getValue())) {
+        for (ChestKey key : candidates) {
+            double distance = distance(player, key);
+            if (!key.dimensionId().equals(dimensionId) || distance > radius) {
                 continue;
             }
-            ChestKey key = entry.getKey();
-            if (!inScope(key, dimensionId, player, maxDistanceSq)) {
+            Optional<Set<Item>> items = observed.allItemsFor(key);
+            boolean stale = items.isPresent() && observed.isStale(key);
+            String categoryId = LatchLabelClientState.tagStore().getTag(key).orElse(null);
+            if (!query.test(new FindQuery.ChestFacts(items.orElse(Set.of()), stale, categoryId, distance))) {
                 continue;
             }
-            matches.add(new FindMatch(key, MatchType.KNOWN, distance(player, key)));
+            MatchType matchType = stale ? MatchType.KNOWN_STALE : MatchType.KNOWN;
+            NestedHolder nestedIn = items.isPresent() && !query.items().isEmpty()
+                    ? observed.nestedHolder(key, query.items()).orElse(null)
+                    : null;
+            matches.add(new FindMatch(key, matchType, distance, nestedIn));
         }
 
-        matches.sort(Comparator.comparingDouble(FindMatch::distance));
+        matches.sort(Comparator.comparing(FindMatch::matchType).thenComparingDouble(FindMatch::distance));
         return List.copyOf(matches);
     }
 
-    private static Set<ChestKey> candidateKeys() {
-        Set<ChestKey> keys = new LinkedHashSet<>(LatchLabelClientState.observedIndexStore().keys());
-        keys.addAll(LatchLabelClientState.tagStore().snapshotTags().keySet());
-        return keys;
-    }
-
-    private static boolean inScope(ChestKey key, Identifier dimensionId, Player player, double maxDistanceSq) {
-        return key.dimensionId().equals(dimensionId)
-                && player.distanceToSqr(key.pos().getX() + 0.5, key.pos().getY() + 0.5, key.pos().getZ() + 0.5) <= maxDistanceSq;
-    }
-
-    private static boolean containsAny(Set<Item> items, Item targetItem, Set<Item> matchSet) {
-        if (items.contains(targetItem)) {
-            return true;
-        }
-        for (Item item : items) {
-            if (matchSet.contains(item)) {
-                return true;
+    /** Tagged chests of one category within radius, read from the tag store's category index. */
+    private static List<ChestKey> categoryKeysInRange(Player player, Identifier dimensionId, String categoryId, int radius) {
+        double maxDistanceSq = (double) radius * radius;
+        List<ChestKey> keys = new ArrayList<>();
+        for (ChestKey key : LatchLabelClientState.tagStore().keysForCategory(categoryId)) {
+            if (key.dimensionId().equals(dimensionId)
+                    && player.distanceToSqr(key.pos().getX() + 0.5, key.pos().getY() + 0.5, key.pos().getZ() + 0.5) <= maxDistanceSq) {
+                keys.add(key);
             }
         }
-        return false;
-    }
-
-    private static boolean isTaggedWith(ChestKey key, String categoryId) {
-        return LatchLabelClientState.tagStore().getTag(key).filter(categoryId::equals).isPresent();
+        return keys;
     }
 
     private static double distance(Player player, ChestKey key) {
@@ -257,6 +243,43 @@ public final class FindScanService {
         NONE
     }
 
-    public record FindMatch(ChestKey chestKey, MatchType matchType, double distance) {
+    /**
+     * One item to look for: the item itself, the variants that count as it, and the category its
+     * chests are tagged with ({@code null} if none), for the {@link MatchType#LIKELY} guesses.
+     */
+    public record FindTarget(Item item, Set<Item> matchSet, String categoryId) {
+        public FindTarget {
+            matchSet = Set.copyOf(matchSet);
+        }
+
+        /** The item and its variants. */
+        Set<Item> items() {
+            Set<Item> items = new HashSet<>(matchSet);
+            items.add(item);
+            return items;
+        }
+    }
+
+    /**
+     * {@code nestedIn} is the shulker box or bundle holding the item, or {@code null} if it lies
+     * loose in the chest. {@code item} is the {@link FindTarget} item the match answers, or
+     * {@code null} for matches not tied to an item (tag search, book export preview).
+     */
+    public record FindMatch(ChestKey chestKey, MatchType matchType, double distance, NestedHolder nestedIn, Item item) {
+        public FindMatch(ChestKey chestKey, MatchType matchType, double distance) {
+            this(chestKey, matchType, distance, null, null);
+        }
+
+        public FindMatch(ChestKey chestKey, MatchType matchType, double distance, NestedHolder nestedIn) {
+            this(chestKey, matchType, distance, nestedIn, null);
+        }
+
+        MatchKey matchKey() {
+            return new MatchKey(chestKey, item);
+        }
+    }
+
+    /** Results hold at most one match per chest and item. */
+    record MatchKey(ChestKey chestKey, Item item) {
     }
 }
@@ -0,0 +1,100 @@
+package com.latchandlabel.client.find;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A {@code /find} scan in progress, in single-player on the integrated server thread. Chunks are
+ * scanned nearest first; matches queue up here and {@link FindResultState#pollSearch()} moves
+ * them into the results on the client thread each tick, so the HUD fills in while the scan runs.
+ * {@link #result()} completes with every match once the scan is done. Cancelling stops the scan
+ * at the next chunk.
+ */
+public final class FindSearch {
+    private final AtomicInteger scannedChunks = new AtomicInteger();
+    private final Queue<FindScanService.FindMatch> found = new ConcurrentLinkedQueue<>();
+    private final CompletableFuture<List<FindScanService.FindMatch>> result = new CompletableFuture<>();
+    private final Consumer<List<FindScanService.FindMatch>> onComplete;
+    private volatile int totalChunks;
+    private volatile boolean cancelled;
+
+    FindSearch(Consumer<List<FindScanService.FindMatch>> onComplete) {
+        this.onComplete = onComplete;
+    }
+
+    /** A search answered up front, e.g. from the observed index; done as soon as it is polled. */
+    static FindSearch completed(List<FindScanService.FindMatch> matches, Consumer<List<FindScanService.FindMatch>> onComplete) {
+        FindSearch search = new FindSearch(onComplete);
+        search.found.addAll(matches);
+        search.finish(matches);
+        return search;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        result.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** True once the scan finished, failed or was cancelled. Matches may still be queued. */
+    public boolean isDone() {
+        return cancelled || result.isDone();
+    }
+
+    /** Share of the chunks in range scanned so far, 0 to 1; 0 until the chunks are counted. */
+    public float progress() {
+        if (result.isDone()) {
+            return 1.0f;
+        }
+        int total = totalChunks;
+        return total == 0 ? 0.0f : Math.min(1.0f, scannedChunks.get() / (float) total);
+    }
+
+    /** Every match of the scan, completed when it is done; cancelled with the search. */
+    public CompletableFuture<List<FindScanService.FindMatch>> result() {
+        return result;
+    }
+
+    void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    void addMatch(FindScanService.FindMatch match) {
+        found.add(match);
+    }
+
+    void chunkScanned() {
+        scannedChunks.incrementAndGet();
+    }
+
+    void finish(List<FindScanService.FindMatch> matches) {
+        result.complete(List.copyOf(matches));
+    }
+
+    void fail(Throwable error) {
+        result.completeExceptionally(error);
+    }
+
+    List<FindScanService.FindMatch> drainFound() {
+        List<FindScanService.FindMatch> drained = new ArrayList<>();
+        for (FindScanService.FindMatch match = found.poll(); match != null; match = found.poll()) {
+            drained.add(match);
+        }
+        return drained;
+    }
+
+    /** Called on the client thread once the last matches are in the results. */
+    void complete(List<FindScanService.FindMatch> results) {
+        if (onComplete != null) {
+            onComplete.accept(results);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.latchandlabel.client.find;
+
+import com.latchandlabel.client.LatchLabel;
+import com.latchandlabel.client.McCompat;
+import com.latchandlabel.client.model.ChestKey;
+import com.latchandlabel.client.store.ObservedIndexStore.NestedHolder;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.TickTask;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.Container;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-player {@code /find} scan run on the integrated server thread, where the containers
+ * live, so every read sees a consistent container. Only chunks the {@link ChunkContainerRegistry}
+ * knows to hold storage are visited. Each run scans them, nearest first, until
+ * {@link #SLICE_BUDGET_NANOS} is spent, then queues itself again with
+ * {@link MinecraftServer#schedule}. The server runs queued tasks in its spare time before the
+ * next tick, so a large radius spreads over several ticks instead of lengthening one. Not
+ * {@link MinecraftServer#execute}: on the server thread that runs the task inline, so the next
+ * slice would start inside this one and the time box would never yield.
+ *
+ * <p>Each container is read once and checked against every target of the query. Matches stream
+ * into the {@link FindSearch} as chunks finish; the full list completes {@link FindSearch#result()}.
+ */
+final class IntegratedServerScan implements Runnable {
+    private static final long SLICE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final MinecraftServer server;
+    private final ServerLevel level;
+    private final Identifier dimensionId;
+    private final double originX;
+    private final double originY;
+    private final double originZ;
+    private final int radius;
+    private final List<FindScanService.FindTarget> targets;
+    // LIKELY matches for chests tagged with a target's category within radius, found on the client thread.
+    private final List<FindScanService.FindMatch> taggedGuesses;
+    private final FindSearch search;
+    private final Map<FindScanService.MatchKey, FindScanService.FindMatch> matches = new LinkedHashMap<>();
+    private List<long[]> chunks;
+    private int nextChunk;
+    private boolean inSlice;
+
+    IntegratedServerScan(MinecraftServer server, ServerLevel level, double originX, double originY, double originZ,
+            int radius, List<FindScanService.FindTarget> targets, List<FindScanService.FindMatch> taggedGuesses,
+            FindSearch search) {
+        this.server = server;
+        this.level = level;
+        this.dimensionId = McCompat.dimensionId(level);
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.radius = radius;
+        this.targets = targets;
+        this.taggedGuesses = taggedGuesses;
+        this.search = search;
+    }
+
+    void start() {
+        server.execute(this);
+    }
+
+    @Override
+    public void run() {
+        // One run is one slice; a continuation that ran inline would nest the next slice here.
+        if (inSlice) {
+            throw new IllegalStateException("Find scan slice re-entered; continuations must be queued");
+        }
+        inSlice = true;
+        try {
+            long deadline = System.nanoTime() + SLICE_BUDGET_NANOS;
+            if (chunks == null) {
+                planChunks();
+            }
+            while (nextChunk < chunks.size()) {
+                if (search.isCancelled()) {
+                    return;
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    server.schedule(new TickTask(server.getTickCount(), this));
+                    return;
+                }
+                // A chunk unloaded since planning has no entries left and is simply skipped.
+                scanChunk(chunks.get(nextChunk++)[0]);
+                search.chunkScanned();
+            }
+            List<FindScanService.FindMatch> result = new ArrayList<>(matches.values());
+            result.sort(Comparator.comparing(FindScanService.FindMatch::matchType)
+                    .thenComparingDouble(FindScanService.FindMatch::distance));
+            search.finish(result);
+        } catch (RuntimeException e) {
+            LatchLabel.LOGGER.warn("[Find] Integrated server scan failed", e);
+            search.fail(e);
+        } finally {
+            inSlice = false;
+        }
+    }
+
+    /** Lists the chunks in range holding storage, nearest first, and reports tagged chests in unloaded chunks as guesses. */
+    private void planChunks() {
+        int playerChunkX = Math.floorDiv((int) Math.floor(originX), 16);
+        int playerChunkZ = Math.floorDiv((int) Math.floor(originZ), 16);
+        int minChunkX = Math.floorDiv((int) Math.floor(originX - radius), 16);
+        int maxChunkX = Math.floorDiv((int) Math.floor(originX + radius), 16);
+        int minChunkZ = Math.floorDiv((int) Math.floor(originZ - radius), 16);
+        int maxChunkZ = Math.floorDiv((int) Math.floor(originZ + radius), 16);
+        chunks = new ArrayList<>();
+        for (long chunk : ChunkContainerRegistry.chunksWithin(dimensionId, minChunkX, maxChunkX, minChunkZ, maxChunkZ)) {
+            long dx = ChunkContainerRegistry.chunkX(chunk) - playerChunkX;
+            long dz = ChunkContainerRegistry.chunkZ(chunk) - playerChunkZ;
+            chunks.add(new long[]{chunk, dx * dx + dz * dz});
+        }
+        // Nearest first, so the closest matches show up before the scan reaches the edge.
+        chunks.sort(Comparator.comparingLong(chunk -> chunk[1]));
+        search.setTotalChunks(chunks.size());
+
+        // Tagged chests we can't read (unloaded) stay honest guesses.
+        for (FindScanService.FindMatch guess : taggedGuesses) {
+            BlockPos pos = guess.chestKey().pos();
+            if (!level.getChunkSource().hasChunk(pos.getX() >> 4, pos.getZ() >> 4)) {
+                report(guess);
+            }
+        }
+    }
+
+    /** Reports the chunk's containers holding any target; both halves of a double chest merge under the canonical key. */
+    private void scanChunk(long chunk) {
+        double maxDistanceSq = (double) radius * radius;
+        Map<ChestKey, Set<Item>> contentsByKey = new LinkedHashMap<>();
+        Map<ChestKey, Map<NestedHolder, Set<Item>>> nestedByKey = new HashMap<>();
+        Map<ChestKey, Double> distByKey = new HashMap<>();
+        for (ChunkContainerRegistry.Entry container : ChunkContainerRegistry.containersIn(dimensionId, chunk)) {
+            if (container.blockEntity().isRemoved()) {
+                continue;
+            }
+            double distance = distance(container.blockEntity().getBlockPos());
+            if (distance * distance > maxDistanceSq) {
+                continue;
+            }
+            ChestKey key = container.key();
+            Set<Item> items = contentsByKey.computeIfAbsent(key, k -> new LinkedHashSet<>());
+            Map<NestedHolder, Set<Item>> nested = nestedByKey.computeIfAbsent(key, k -> new LinkedHashMap<>());
+            if (container.blockEntity() instanceof Container contents) {
+                readContents(contents, items, nested);
+            }
+            distByKey.merge(key, distance, Math::min);
+        }
+
+        for (Map.Entry<ChestKey, Set<Item>> entry : contentsByKey.entrySet()) {
+            ChestKey key = entry.getKey();
+            double distance = distByKey.getOrDefault(key, 0.0);
+            for (FindScanService.FindTarget target : targets) {
+                if (containsAny(entry.getValue(), target)) {
+                    report(new FindScanService.FindMatch(key, FindScanService.MatchType.KNOWN, distance, null, target.item()));
+                    continue;
+                }
+                NestedContents.holderOf(nestedByKey.get(key), target.item(), target.matchSet())
+                        .ifPresent(holder -> report(new FindScanService.FindMatch(
+                                key, FindScanService.MatchType.KNOWN, distance, holder, target.item())));
+            }
+        }
+    }
+
+    // The other half of a double chest in another chunk may report the same key; keep the nearer one.
+    private void report(FindScanService.FindMatch match) {
+        matches.merge(match.matchKey(), match, (a, b) -> a.distance() <= b.distance() ? a : b);
+        search.addMatch(match);
+    }
+
+    /** Reads the container's item types into {@code out}, and the contents of any shulker boxes or bundles in it into {@code nested}. */
+    private static void readContents(Container container, Set<Item> out, Map<NestedHolder, Set<Item>> nested) {
+        int size = container.getContainerSize();
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = container.getItem(i);
+            if (!stack.isEmpty()) {
+                NestedContents.collect(stack, out, nested);
+            }
+        }
+    }
+
+    private static boolean containsAny(Set<Item> items, FindScanService.FindTarget target) {
+        if (items.contains(target.item())) {
+            return true;
+        }
+        for (Item item : items) {
+            if (target.matchSet().contains(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double distance(BlockPos pos) {
+        double dx = pos.getX() + 0.5 - originX;
+        double dy = pos.getY() + 0.5 - originY;
+        double dz = pos.getZ() + 0.5 - originZ;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
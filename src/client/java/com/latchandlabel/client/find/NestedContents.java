@@ -0,0 +1,67 @@
+package com.latchandlabel.client.find;
+
+import com.latchandlabel.client.store.ObservedIndexStore.NestedHolder;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.component.BundleContents;
+import net.minecraft.world.item.component.ItemContainerContents;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Reads the items packed inside shulker boxes ({@link DataComponents#CONTAINER}) and bundles
+ * ({@link DataComponents#BUNDLE_CONTENTS}) so {@code /find} can see through them. A bundle inside a
+ * shulker is opened too; its items are credited to the shulker, which is what the player would
+ * pick up and open.
+ */
+final class NestedContents {
+    private NestedContents() {
+    }
+
+    /** Adds {@code stack}'s item to {@code items} and whatever it carries to {@code nested} under its holder. */
+    static void collect(ItemStack stack, Set<Item> items, Map<NestedHolder, Set<Item>> nested) {
+        items.add(stack.getItem());
+        Set<Item> inner = new LinkedHashSet<>();
+        contained(stack).forEach(child -> {
+            inner.add(child.getItem());
+            contained(child).forEach(grandchild -> inner.add(grandchild.getItem()));
+        });
+        if (!inner.isEmpty()) {
+            nested.computeIfAbsent(holder(stack), unused -> new LinkedHashSet<>()).addAll(inner);
+        }
+    }
+
+    /** The first holder in {@code nested} carrying the target or one of its variants. */
+    static Optional<NestedHolder> holderOf(Map<NestedHolder, Set<Item>> nested, Item targetItem, Set<Item> matchSet) {
+        for (Map.Entry<NestedHolder, Set<Item>> entry : nested.entrySet()) {
+            Set<Item> items = entry.getValue();
+            if (items.contains(targetItem) || items.stream().anyMatch(matchSet::contains)) {
+                return Optional.of(entry.getKey());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Stream<ItemStack> contained(ItemStack stack) {
+        ItemContainerContents container = stack.get(DataComponents.CONTAINER);
+        if (container != null) {
+            return container.nonEmptyItemCopyStream();
+        }
+        BundleContents bundle = stack.get(DataComponents.BUNDLE_CONTENTS);
+        if (bundle != null) {
+            return bundle.itemCopyStream().filter(child -> !child.isEmpty());
+        }
+        return Stream.empty();
+    }
+
+    private static NestedHolder holder(ItemStack stack) {
+        Component customName = stack.get(DataComponents.CUSTOM_NAME);
+        return new NestedHolder(stack.getItem(), customName == null ? null : customName.getString());
+    }
+}
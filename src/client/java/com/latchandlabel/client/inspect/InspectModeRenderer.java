@@ -44,6 +44,8 @@ public final class InspectModeRenderer {
     private static final float HELD_MATCH_ALPHA = 0.95f;
     private static final double LOD_MID_DISTANCE = 24.0;
     private static final double FRUSTUM_MARGIN = 0.06;
+    // A normalized double chest's box center sits up to a block from the tagged half's center.
+    private static final double INDEX_QUERY_MARGIN = 1.0;
     private static final double MATCH_PULSE_SPEED_RADIANS = 6.0;
     private static final double MARKER_BOB_AMPLITUDE = 0.06;
 
@@ -69,7 +71,9 @@ public final class InspectModeRenderer {
         long frameParity = world.getGameTime() & 1L;
         Frustum frustum = context.levelState().cameraRenderState.cullFrustum;
 
-        Map<ChestKey, String> tags = LatchLabelClientState.tagStore().snapshotTags();
+        Map<ChestKey, String> tags = LatchLabelClientState.tagStore().snapshot().tagsWithin(dimensionId,
+                client.player.getX(), client.player.getY(), client.player.getZ(),
+                InspectSettings.inspectRange() + INDEX_QUERY_MARGIN);
         // Held/inventory matches only apply while actively inspecting; always-on shows plain borders only.
         Optional<String> heldItemCategoryId = inspect
                 ? categoryIdFor(client.player.getMainHandItem())
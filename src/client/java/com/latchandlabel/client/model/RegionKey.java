@@ -0,0 +1,51 @@
+package com.latchandlabel.client.model;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A 512×512-block storage region in one dimension, the unit scoped data is sharded by on disk.
+ * Matches vanilla's region grid, so a shard covers 32×32 chunks.
+ */
+public record RegionKey(Identifier dimensionId, int regionX, int regionZ) {
+    public static final int REGION_SHIFT = 9;
+
+    public RegionKey {
+        Objects.requireNonNull(dimensionId, "dimensionId");
+    }
+
+    public static RegionKey of(ChestKey key) {
+        return containing(key.dimensionId(), key.pos());
+    }
+
+    public static RegionKey containing(Identifier dimensionId, BlockPos pos) {
+        return new RegionKey(dimensionId, pos.getX() >> REGION_SHIFT, pos.getZ() >> REGION_SHIFT);
+    }
+
+    /** Regions overlapping the horizontal square of {@code radius} blocks around {@code center}. */
+    public static List<RegionKey> around(Identifier dimensionId, BlockPos center, int radius) {
+        int minX = (center.getX() - radius) >> REGION_SHIFT;
+        int maxX = (center.getX() + radius) >> REGION_SHIFT;
+        int minZ = (center.getZ() - radius) >> REGION_SHIFT;
+        int maxZ = (center.getZ() + radius) >> REGION_SHIFT;
+        List<RegionKey> regions = new ArrayList<>((maxX - minX + 1) * (maxZ - minZ + 1));
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                regions.add(new RegionKey(dimensionId, x, z));
+            }
+        }
+        return regions;
+    }
+
+    /** {@code <root>/<namespace>/<path>/r.<x>.<z><suffix>}, mirroring the dimension id on disk. */
+    public Path resolve(Path root, String suffix) {
+        return root.resolve(dimensionId.getNamespace())
+                .resolve(dimensionId.getPath())
+                .resolve("r." + regionX + "." + regionZ + suffix);
+    }
+}
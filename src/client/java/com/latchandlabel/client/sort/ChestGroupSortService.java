@@ -247,16 +247,11 @@ public final class ChestGroupSortService {
         }
         List<ChestKey> group = new ArrayList<>();
         Vec3 origin = client.player.position();
-        for (Map.Entry<ChestKey, String> entry : LatchLabelClientState.tagStore().snapshotTags().entrySet()) {
-            if (!categoryId.equals(entry.getValue())) {
-                continue;
-            }
-            ChestKey key = entry.getKey();
-            if (!key.dimensionId().equals(clickedChest.dimensionId())) {
-                continue;
-            }
-            if (key.pos().distToCenterSqr(origin) <= GROUP_RADIUS * GROUP_RADIUS) {
-                group.add(key);
+        Map<ChestKey, String> nearby = LatchLabelClientState.tagStore()
+                .tagsWithin(clickedChest.dimensionId(), origin.x, origin.y, origin.z, GROUP_RADIUS);
+        for (Map.Entry<ChestKey, String> entry : nearby.entrySet()) {
+            if (categoryId.equals(entry.getValue())) {
+                group.add(entry.getKey());
             }
         }
         sortFillOrder(group);
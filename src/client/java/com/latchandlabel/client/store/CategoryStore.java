@@ -5,6 +5,7 @@ import net.minecraft.resources.Identifier;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
@@ -13,13 +14,26 @@ import java.util.Optional;
 /**
  * In-memory store for user-defined {@link Category} definitions.
  * Categories are kept sorted by their {@code order} field. All public
- * methods are synchronized for thread safety. Register a change listener
- * to be notified when the store is mutated (used for persistence triggers).
+ * methods are synchronized for thread safety. Every mutation is posted to the
+ * {@link StoreEventBus} as a {@link StoreEvent.CategoryChanged} (or
+ * {@link StoreEvent.CategoriesReplaced} for a wholesale replace).
  */
 public final class CategoryStore {
     private final List<Category> categories = new ArrayList<>();
-    private Runnable changeListener = () -> {
-    };
+    private final StoreEventBus events;
+
+    public CategoryStore() {
+        this(new StoreEventBus());
+    }
+
+    public CategoryStore(StoreEventBus events) {
+        this.events = Objects.requireNonNull(events, "events");
+    }
+
+    /** The bus this store posts its changes to. */
+    public StoreEventBus events() {
+        return events;
+    }
 
     public synchronized Optional<Category> getById(String categoryId) {
         Objects.requireNonNull(categoryId, "categoryId");
@@ -41,7 +55,7 @@ public final class CategoryStore {
         categories.addAll(nextCategories.stream()
                 .sorted(Comparator.comparingInt(Category::order))
                 .toList());
-        notifyChanged();
+        events.post(new StoreEvent.CategoriesReplaced());
     }
 
     /** Updates the display details of an existing category. Returns false if nothing changed. */
@@ -68,15 +82,16 @@ public final class CategoryStore {
                 return false;
             }
 
-            categories.set(i, new Category(
+            Category updated = new Category(
                     current.id(),
                     normalizedName,
                     normalizedColor,
                     iconItemId,
                     current.order(),
                     current.visible()
-            ));
-            notifyChanged();
+            );
+            categories.set(i, updated);
+            events.post(new StoreEvent.CategoryChanged(categoryId, current, updated));
             return true;
         }
 
@@ -112,24 +127,26 @@ public final class CategoryStore {
         Category created = new Category(uniqueId, normalizedName, color & 0x00FFFFFF, iconItemId, nextOrder, true);
         categories.add(created);
         categories.sort(Comparator.comparingInt(Category::order));
-        notifyChanged();
+        events.post(new StoreEvent.CategoryChanged(uniqueId, null, created));
         return created;
     }
 
     public synchronized boolean deleteCategory(String categoryId) {
         Objects.requireNonNull(categoryId, "categoryId");
 
-        boolean removed = categories.removeIf(category -> category.id().equals(categoryId));
-        if (removed) {
-            notifyChanged();
+        boolean removed = false;
+        Iterator<Category> it = categories.iterator();
+        while (it.hasNext()) {
+            Category current = it.next();
+            if (current.id().equals(categoryId)) {
+                it.remove();
+                events.post(new StoreEvent.CategoryChanged(categoryId, current, null));
+                removed = true;
+            }
         }
         return removed;
     }
 
-    public synchronized void setChangeListener(Runnable changeListener) {
-        this.changeListener = Objects.requireNonNull(changeListener, "changeListener");
-    }
-
     private boolean containsId(String categoryId) {
         return categories.stream().anyMatch(category -> category.id().equals(categoryId));
     }
@@ -162,8 +179,4 @@ public final class CategoryStore {
         }
         return sb.substring(start, end);
     }
-
-    private void notifyChanged() {
-        changeListener.run();
-    }
 }
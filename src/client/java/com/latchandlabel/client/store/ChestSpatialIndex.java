@@ -0,0 +1,228 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chest keys bucketed by (dimension, chunk), so radius, nearest and box queries visit only the
+ * chunk cells overlapping the query instead of every key in the base. Distances are measured to
+ * the block center, matching how callers rank chests against the player.
+ *
+ * <p>Not thread-safe; the owning store keeps it in step with its own map under its lock. A
+ * {@link #copy} that is never mutated may be read from any thread once safely published.
+ */
+public final class ChestSpatialIndex {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final Map<Identifier, Map<Long, Set<ChestKey>>> cellsByDimension = new HashMap<>();
+    private int size;
+
+    public void add(ChestKey key) {
+        Set<ChestKey> cell = cellsByDimension
+                .computeIfAbsent(key.dimensionId(), unused -> new HashMap<>())
+                .computeIfAbsent(cellKey(key.pos()), unused -> new HashSet<>());
+        if (cell.add(key)) {
+            size++;
+        }
+    }
+
+    public void remove(ChestKey key) {
+        Map<Long, Set<ChestKey>> cells = cellsByDimension.get(key.dimensionId());
+        if (cells == null) {
+            return;
+        }
+        long cellKey = cellKey(key.pos());
+        Set<ChestKey> cell = cells.get(cellKey);
+        if (cell == null || !cell.remove(key)) {
+            return;
+        }
+        size--;
+        if (cell.isEmpty()) {
+            cells.remove(cellKey);
+            if (cells.isEmpty()) {
+                cellsByDimension.remove(key.dimensionId());
+            }
+        }
+    }
+
+    public void clear() {
+        cellsByDimension.clear();
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** An independent copy sharing the keys but none of the cells. */
+    public ChestSpatialIndex copy() {
+        ChestSpatialIndex copy = new ChestSpatialIndex();
+        cellsByDimension.forEach((dimensionId, cells) -> {
+            Map<Long, Set<ChestKey>> copiedCells = new HashMap<>();
+            cells.forEach((cellKey, cell) -> copiedCells.put(cellKey, new HashSet<>(cell)));
+            copy.cellsByDimension.put(dimensionId, copiedCells);
+        });
+        copy.size = size;
+        return copy;
+    }
+
+    /** Keys in {@code dimensionId} whose block center lies within {@code radius} of (x, y, z). */
+    public List<ChestKey> within(Identifier dimensionId, double x, double y, double z, double radius) {
+        List<ChestKey> result = new ArrayList<>();
+        Map<Long, Set<ChestKey>> cells = cellsByDimension.get(dimensionId);
+        if (cells == null || radius < 0.0) {
+            return result;
+        }
+        double radiusSq = radius * radius;
+        int minCellX = Math.floorDiv((int) Math.floor(x - radius), CHUNK_SIZE);
+        int maxCellX = Math.floorDiv((int) Math.floor(x + radius), CHUNK_SIZE);
+        int minCellZ = Math.floorDiv((int) Math.floor(z - radius), CHUNK_SIZE);
+        int maxCellZ = Math.floorDiv((int) Math.floor(z + radius), CHUNK_SIZE);
+        for (Set<ChestKey> cell : overlapping(cells, minCellX, maxCellX, minCellZ, maxCellZ)) {
+            for (ChestKey key : cell) {
+                if (distanceSq(key, x, y, z) <= radiusSq) {
+                    result.add(key);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} keys nearest to (x, y, z) and no farther than {@code maxRadius}, closest
+     * first. Walks chunk rings outward and stops once no unvisited ring can hold anything closer.
+     */
+    public List<ChestKey> nearest(Identifier dimensionId, double x, double y, double z, int limit, double maxRadius) {
+        Map<Long, Set<ChestKey>> cells = cellsByDimension.get(dimensionId);
+        if (cells == null || limit <= 0 || maxRadius < 0.0) {
+            return List.of();
+        }
+        double maxRadiusSq = maxRadius * maxRadius;
+        int centerCellX = Math.floorDiv((int) Math.floor(x), CHUNK_SIZE);
+        int centerCellZ = Math.floorDiv((int) Math.floor(z), CHUNK_SIZE);
+        int maxRing = (int) Math.ceil(maxRadius / CHUNK_SIZE) + 1;
+
+        List<Ranked> found = new ArrayList<>();
+        int visitedKeys = 0;
+        for (int ring = 0; ring <= maxRing && visitedKeys < size; ring++) {
+            for (int cellX = centerCellX - ring; cellX <= centerCellX + ring; cellX++) {
+                boolean edgeColumn = cellX == centerCellX - ring || cellX == centerCellX + ring;
+                int step = edgeColumn ? 1 : Math.max(1, 2 * ring);
+                for (int cellZ = centerCellZ - ring; cellZ <= centerCellZ + ring; cellZ += step) {
+                    Set<ChestKey> cell = cells.get(packCell(cellX, cellZ));
+                    if (cell == null) {
+                        continue;
+                    }
+                    visitedKeys += cell.size();
+                    for (ChestKey key : cell) {
+                        double distanceSq = distanceSq(key, x, y, z);
+                        if (distanceSq <= maxRadiusSq) {
+                            found.add(new Ranked(key, distanceSq));
+                        }
+                    }
+                }
+            }
+            // Anything in ring + 1 is at least ring * 16 blocks away horizontally.
+            if (found.size() >= limit) {
+                found.sort(Comparator.comparingDouble(Ranked::distanceSq));
+                double reach = (double) ring * CHUNK_SIZE;
+                if (found.get(limit - 1).distanceSq() <= reach * reach) {
+                    break;
+                }
+            }
+        }
+
+        found.sort(Comparator.comparingDouble(Ranked::distanceSq));
+        List<ChestKey> result = new ArrayList<>(Math.min(limit, found.size()));
+        for (int i = 0; i < found.size() && i < limit; i++) {
+            result.add(found.get(i).key());
+        }
+        return result;
+    }
+
+    /** Keys in {@code dimensionId} inside the inclusive block box spanned by {@code min} and {@code max}. */
+    public List<ChestKey> inBox(Identifier dimensionId, BlockPos min, BlockPos max) {
+        List<ChestKey> result = new ArrayList<>();
+        Map<Long, Set<ChestKey>> cells = cellsByDimension.get(dimensionId);
+        if (cells == null) {
+            return result;
+        }
+        int minX = Math.min(min.getX(), max.getX());
+        int maxX = Math.max(min.getX(), max.getX());
+        int minY = Math.min(min.getY(), max.getY());
+        int maxY = Math.max(min.getY(), max.getY());
+        int minZ = Math.min(min.getZ(), max.getZ());
+        int maxZ = Math.max(min.getZ(), max.getZ());
+        for (Set<ChestKey> cell : overlapping(cells, minX >> CHUNK_SHIFT, maxX >> CHUNK_SHIFT,
+                minZ >> CHUNK_SHIFT, maxZ >> CHUNK_SHIFT)) {
+            for (ChestKey key : cell) {
+                BlockPos pos = key.pos();
+                if (pos.getX() >= minX && pos.getX() <= maxX
+                        && pos.getY() >= minY && pos.getY() <= maxY
+                        && pos.getZ() >= minZ && pos.getZ() <= maxZ) {
+                    result.add(key);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Squared distance from (x, y, z) to the center of the key's block. */
+    public static double distanceSq(ChestKey key, double x, double y, double z) {
+        BlockPos pos = key.pos();
+        double dx = pos.getX() + 0.5 - x;
+        double dy = pos.getY() + 0.5 - y;
+        double dz = pos.getZ() + 0.5 - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * The non-empty cells in the given cell rectangle. A query wider than the populated area
+     * walks the populated cells instead, so cost never exceeds the dimension's cell count.
+     */
+    private static List<Set<ChestKey>> overlapping(Map<Long, Set<ChestKey>> cells,
+            int minCellX, int maxCellX, int minCellZ, int maxCellZ) {
+        long area = ((long) maxCellX - minCellX + 1) * ((long) maxCellZ - minCellZ + 1);
+        List<Set<ChestKey>> result = new ArrayList<>();
+        if (area > cells.size()) {
+            for (Map.Entry<Long, Set<ChestKey>> entry : cells.entrySet()) {
+                int cellX = (int) (entry.getKey() >> 32);
+                int cellZ = (int) (long) entry.getKey();
+                if (cellX >= minCellX && cellX <= maxCellX && cellZ >= minCellZ && cellZ <= maxCellZ) {
+                    result.add(entry.getValue());
+                }
+            }
+            return result;
+        }
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                Set<ChestKey> cell = cells.get(packCell(cellX, cellZ));
+                if (cell != null) {
+                    result.add(cell);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long cellKey(BlockPos pos) {
+        return packCell(pos.getX() >> CHUNK_SHIFT, pos.getZ() >> CHUNK_SHIFT);
+    }
+
+    private static long packCell(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private record Ranked(ChestKey key, double distanceSq) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.latchandlabel.client.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense, stable int ids to a small set of values (dimension ids, category ids) so
+ * {@link PackedTagMap} can store them as primitives. Ids are never reused or released; the value
+ * sets involved are a handful of dimensions and at most a few hundred categories.
+ *
+ * <p>Not thread-safe; guarded by the owning store's lock.
+ */
+final class Interner<T> {
+    private final Map<T, Integer> ids = new HashMap<>();
+    private final List<T> values = new ArrayList<>();
+
+    /** The id of {@code value}, assigning the next one if it is new. */
+    int intern(T value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        int next = values.size();
+        values.add(value);
+        ids.put(value, next);
+        return next;
+    }
+
+    /** The id of {@code value}, or -1 if it was never interned. Does not allocate. */
+    int idOf(T value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    T valueOf(int id) {
+        return values.get(id);
+    }
+
+    /** An independent copy with the same ids. */
+    Interner<T> copy() {
+        Interner<T> copy = new Interner<>();
+        copy.ids.putAll(ids);
+        copy.values.addAll(values);
+        return copy;
+    }
+}
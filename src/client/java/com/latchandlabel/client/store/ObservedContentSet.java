@@ -0,0 +1,51 @@
+package com.latchandlabel.client.store;
+
+import java.util.Arrays;
+
+/**
+ * An interned, immutable set of item ids as stored in {@link ObservedIndexStore}. Storage walls are
+ * mostly single-item chests, so identical contents are canonicalized to one instance per scope and
+ * written to disk once as a set definition that chest records refer to by {@link #id()}.
+ *
+ * <p>Equality is by contents so the instance can key the scope's weak canonicalizing table.
+ */
+final class ObservedContentSet {
+    private final int id;
+    private final int[] itemIds;
+    private final int hash;
+    // Journal generation this set was last defined in; guarded by the owning store's lock.
+    private int definedGeneration = -1;
+
+    ObservedContentSet(int id, int[] itemIds) {
+        this.id = id;
+        this.itemIds = itemIds;
+        this.hash = Arrays.hashCode(itemIds);
+    }
+
+    int id() {
+        return id;
+    }
+
+    /** Sorted ascending; never mutate. */
+    int[] itemIds() {
+        return itemIds;
+    }
+
+    int definedGeneration() {
+        return definedGeneration;
+    }
+
+    void markDefined(int generation) {
+        definedGeneration = generation;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ObservedContentSet set && Arrays.equals(itemIds, set.itemIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,345 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.LatchLabel;
+import com.latchandlabel.client.data.VarInts;
+import com.latchandlabel.client.model.ChestKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary record log backing {@link ObservedIndexStore}. A scope is persisted as a snapshot file
+ * plus an append-only journal; both use the same record stream, so loading is simply "replay
+ * the snapshot, then replay the journal". Records are full-state and keyed, which makes replaying
+ * a record twice harmless — that is what lets compaction crash at any point without losing data.
+ *
+ * <p>Records are encoded into an in-memory buffer on the mutating thread and drained as immutable
+ * deltas for the store's I/O worker, which is the only thread that touches the files.
+ *
+ * <p>Every file starts with {@link #MAGIC} and {@link #FORMAT_VERSION}. A torn tail (the client
+ * died mid-append) ends replay at the last complete record and is reported to the sink, since
+ * records appended after it would be unreadable. Item lists are stored as sorted ids
+ * from the scope's {@link ObservedItemDictionary}, delta-encoded as varints, and only once per
+ * distinct {@link ObservedContentSet}: chest records refer to a content set by id. Definitions
+ * ({@code D} for items, {@code C} for content sets) always precede the first record using them.
+ * A chest record is followed by one {@code N} record per shulker or bundle it held, naming the
+ * holder item and its content set; the {@code R} record resets the chest's nested list.
+ */
+final class ObservedIndexJournal {
+    static final int MAGIC = 0x4C4C4F49; // "LLOI"
+    static final int FORMAT_VERSION = 4;
+    // Version 3 differs only in lacking N records, so it replays as-is.
+    private static final int MIN_READABLE_VERSION = 3;
+
+    private static final byte OP_DEFINE = 'D';
+    private static final byte OP_CONTENT_SET = 'C';
+    private static final byte OP_RECORD = 'R';
+    private static final byte OP_NESTED = 'N';
+    private static final byte OP_STALE = 'S';
+    private static final byte OP_EVICT = 'E';
+
+    private final Path file;
+    // Encoding buffer, touched only under the owning store's lock.
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private int pendingRecords;
+    // File side, written only by the store's I/O worker.
+    private volatile long bytesOnDisk;
+
+    ObservedIndexJournal(Path file) {
+        this.file = file;
+        long size = 0L;
+        try {
+            size = Files.exists(file) ? Files.size(file) : 0L;
+        } catch (IOException ignored) {
+            // treated as empty; the next append rewrites the header
+        }
+        this.bytesOnDisk = size;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /** Receives replayed records in file order. */
+    interface Sink {
+        void define(int itemId, String rawItemId);
+
+        void defineContentSet(int setId, int[] itemIds);
+
+        void record(ChestKey key, int setId, long observedAt, long staleSince);
+
+        /** One holder (shulker box, bundle) inside the chest of the preceding {@code record}. */
+        void nested(ChestKey key, int holderItemId, String customName, int setId);
+
+        void stale(ChestKey key, long staleSince);
+
+        void evict(ChestKey key);
+
+        /** Replay stopped at a torn tail; the file must be rewritten before anything is appended to it. */
+        void tornTail();
+    }
+
+    void appendDefine(int itemId, String rawItemId) {
+        try {
+            writeDefine(pendingOut, itemId, rawItemId);
+            pendingRecords++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed encoding observed item id", e);
+        }
+    }
+
+    void appendContentSet(int setId, int[] itemIds) {
+        try {
+            writeContentSet(pendingOut, setId, itemIds);
+            pendingRecords++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed encoding observed content set", e);
+        }
+    }
+
+    void appendRecord(ChestKey key, int setId, long observedAt, long staleSince) {
+        try {
+            writeRecord(pendingOut, key, setId, observedAt, staleSince);
+            pendingRecords++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed encoding observed record", e);
+        }
+    }
+
+    void appendNested(ChestKey key, int holderItemId, String customName, int setId) {
+        try {
+            writeNested(pendingOut, key, holderItemId, customName, setId);
+            pendingRecords++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed encoding observed nested contents", e);
+        }
+    }
+
+    void appendStale(ChestKey key, long staleSince) {
+        try {
+            pendingOut.writeByte(OP_STALE);
+            pendingOut.writeUTF(key.toStringKey());
+            pendingOut.writeLong(staleSince);
+            pendingRecords++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed encoding observed stale mark", e);
+        }
+    }
+
+    void appendEvict(ChestKey key) {
+        try {
+            pendingOut.writeByte(OP_EVICT);
+            pendingOut.writeUTF(key.toStringKey());
+            pendingRecords++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed encoding observed eviction", e);
+        }
+    }
+
+    int pendingRecords() {
+        return pendingRecords;
+    }
+
+    int pendingBytes() {
+        return pending.size();
+    }
+
+    long bytesOnDisk() {
+        return bytesOnDisk;
+    }
+
+    /** Hands the encoded-but-unwritten records to the caller as an immutable delta and clears the buffer. */
+    byte[] drainPending() {
+        byte[] delta = pending.toByteArray();
+        pending.reset();
+        pendingRecords = 0;
+        return delta;
+    }
+
+    /** Appends a drained delta to the journal file, writing the header if the file is new. I/O worker only. */
+    void write(byte[] delta) throws IOException {
+        if (delta.length == 0) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        long written = 0L;
+        try (OutputStream raw = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw))) {
+            if (bytesOnDisk == 0L) {
+                writeHeader(out);
+            }
+            out.write(delta);
+            out.flush();
+            written = out.size();
+        }
+        bytesOnDisk += written;
+    }
+
+    /** Deletes the journal once a snapshot covering all of it is in place. I/O worker only. */
+    void truncate() throws IOException {
+        Files.deleteIfExists(file);
+        bytesOnDisk = 0L;
+    }
+
+    static void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+    }
+
+    static void writeDefine(DataOutput out, int itemId, String rawItemId) throws IOException {
+        out.writeByte(OP_DEFINE);
+        VarInts.write(out, itemId);
+        out.writeUTF(rawItemId);
+    }
+
+    /** {@code itemIds} must be sorted ascending; they are written as varint gaps. */
+    static void writeContentSet(DataOutput out, int setId, int[] itemIds) throws IOException {
+        out.writeByte(OP_CONTENT_SET);
+        VarInts.write(out, setId);
+        VarInts.write(out, itemIds.length);
+        int previous = 0;
+        for (int id : itemIds) {
+            VarInts.write(out, id - previous);
+            previous = id;
+        }
+    }
+
+    static void writeRecord(DataOutput out, ChestKey key, int setId, long observedAt, long staleSince)
+            throws IOException {
+        out.writeByte(OP_RECORD);
+        out.writeUTF(key.toStringKey());
+        out.writeLong(observedAt);
+        out.writeLong(staleSince);
+        VarInts.write(out, setId);
+    }
+
+    /** {@code customName} is empty when the holder has none. */
+    static void writeNested(DataOutput out, ChestKey key, int holderItemId, String customName, int setId)
+            throws IOException {
+        out.writeByte(OP_NESTED);
+        out.writeUTF(key.toStringKey());
+        VarInts.write(out, holderItemId);
+        out.writeUTF(customName);
+        VarInts.write(out, setId);
+    }
+
+    /**
+     * Replays {@code file} into {@code sink}. Missing files are a no-op; a torn tail stops replay
+     * and calls {@link Sink#tornTail}. Returns {@code false} if the file is from another format version and was not read.
+     */
+    static boolean replay(Path file, Sink sink) throws IOException {
+        if (!Files.exists(file)) {
+            return true;
+        }
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            int magic;
+            int version;
+            try {
+                magic = in.readInt();
+                version = in.readInt();
+            } catch (EOFException empty) {
+                // Not even a whole header; appending would not write one.
+                sink.tornTail();
+                return true;
+            }
+            if (magic != MAGIC) {
+                throw new IOException("Unrecognized observed index file header in " + file);
+            }
+            if (version < MIN_READABLE_VERSION || version > FORMAT_VERSION) {
+                return false;
+            }
+            while (true) {
+                int op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException end) {
+                    return true;
+                }
+                try {
+                    readOp(in, op, sink, file);
+                } catch (EOFException torn) {
+                    LatchLabel.LOGGER.debug("[ObservedIndex] Torn record at end of {}, ignoring", file);
+                    sink.tornTail();
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static void readOp(DataInput in, int op, Sink sink, Path file) throws IOException {
+        switch (op) {
+            case OP_DEFINE -> {
+                int itemId = VarInts.read(in);
+                sink.define(itemId, in.readUTF());
+            }
+            case OP_CONTENT_SET -> {
+                int setId = VarInts.read(in);
+                int count = VarInts.read(in);
+                int[] itemIds = new int[count];
+                int previous = 0;
+                for (int i = 0; i < count; i++) {
+                    previous += VarInts.read(in);
+                    itemIds[i] = previous;
+                }
+                sink.defineContentSet(setId, itemIds);
+            }
+            case OP_RECORD -> {
+                String rawKey = in.readUTF();
+                long observedAt = in.readLong();
+                long staleSince = in.readLong();
+                int setId = VarInts.read(in);
+                ChestKey key = parseKey(rawKey);
+                if (key != null) {
+                    sink.record(key, setId, observedAt, staleSince);
+                }
+            }
+            case OP_NESTED -> {
+                String rawKey = in.readUTF();
+                int holderItemId = VarInts.read(in);
+                String customName = in.readUTF();
+                int setId = VarInts.read(in);
+                ChestKey key = parseKey(rawKey);
+                if (key != null) {
+                    sink.nested(key, holderItemId, customName, setId);
+                }
+            }
+            case OP_STALE -> {
+                String rawKey = in.readUTF();
+                long staleSince = in.readLong();
+                ChestKey key = parseKey(rawKey);
+                if (key != null) {
+                    sink.stale(key, staleSince);
+                }
+            }
+            case OP_EVICT -> {
+                ChestKey key = parseKey(in.readUTF());
+                if (key != null) {
+                    sink.evict(key);
+                }
+            }
+            default -> throw new IOException("Unknown observed index op " + op + " in " + file);
+        }
+    }
+
+    private static ChestKey parseKey(String rawKey) {
+        try {
+            return ChestKey.fromStringKey(rawKey);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -1,32 +1,48 @@
 package com.latchandlabel.client.store;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.latchandlabel.client.LatchLabel;
+import com.latchandlabel.client.config.ObservedIndexSettings;
 import com.latchandlabel.client.model.ChestKey;
+import com.latchandlabel.client.model.RegionKey;
 import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.core.BlockPos;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.Identifier;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.Items;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -35,38 +51,147 @@ import java.util.function.Supplier;
  * that chest, so this index is the authoritative source for content-based {@code /find}.
  *
  * <p>Observed data is disposable — reopening a chest rebuilds it — so this store keeps its
- * own {@code scopes/<scope>/observed.json} files rather than going through the versioned,
- * migrated tag/category persistence. Bounded to {@link #MAX_PER_SCOPE} chests per scope,
- * evicting the least-recently-recorded.
+ * own files under {@code scopes/<scope>/observed/} rather than going through the versioned,
+ * migrated tag/category persistence. Each scope is sharded by dimension and 512×512 region
+ * ({@link RegionKey}); a shard is loaded on the I/O worker when a chunk in its region arrives
+ * ({@link #prefetch}) or when a lookup or write first needs it, and dropped again after
+ * {@link #SHARD_IDLE_MS} without access once its writes are out. The client thread never reads
+ * shard files: a lookup on a shard still on disk answers as if the chest were unknown and queues
+ * the load, and a write to one is kept and applied once it is loaded. The one exception is the
+ * one-time split of old whole-scope files, see below. Content queries only visit shards around
+ * the query.
+ * Only the active scope and the {@link ObservedIndexSettings#retainedInactiveScopes() last few}
+ * others stay resident; older scopes are flushed and unloaded, and reload from disk when the
+ * player returns to that world or server.
+ *
+ * <p>Bounded per scope by {@link ObservedIndexSettings}: a chest cap and an optional
+ * estimated-memory budget, both counted over loaded shards. Past either limit, eviction drops
+ * the least valuable entries first — weighed by age and estimated heap cost, stale ones counting
+ * extra — in one batch down to a little under the limit. Only {@link #record} enforces them:
+ * loading a shard, whether by prefetch, lookup or splitting old files, never evicts, since a read
+ * must not journal evictions of chests in other regions. A scope loaded over its limits is trimmed
+ * by the next record.
+ *
+ * <p>Items are interned per shard in an {@link ObservedItemDictionary}, so each entry holds a
+ * sorted {@code int[]} of item ids rather than a {@code Set<Item>}, and identical id arrays are
+ * hash-consed into one {@link ObservedContentSet} through a weak canonicalizing table — a wall of
+ * cobblestone chests shares a single instance in memory and a single definition on disk. Each
+ * shard also keeps an inverted item-id → chests posting index, maintained alongside the entries
+ * on every record/eviction, so content queries ({@link #keysContainingAny}) cost the number of
+ * hits rather than the number of chests ever observed. Items seen inside shulker boxes and bundles
+ * are kept per holder alongside the chest's own contents and posted under the chest too, so a
+ * chest of shulkers answers for what they carry ({@link #nestedHolder} says which one).
+ *
+ * <p>On disk a shard is an {@code r.<x>.<z>.snapshot} plus an append-only {@code .journal}
+ * (see {@link ObservedIndexJournal}). Mutations only encode one small record in memory and return;
+ * a single I/O worker drains the buffered delta after {@link #WRITE_COALESCE_MS}, so a burst of
+ * opens (the sort bot walking 64 chests) becomes one append, and only shards that changed are
+ * written. Once a journal passes {@link #COMPACT_THRESHOLD_BYTES} the worker writes a fresh
+ * snapshot from an immutable copy of the shard's entries instead. Older whole-scope files
+ * ({@code observed.json}, {@code observed.snapshot}/{@code .journal}) are split into shards the
+ * first time the scope is used.
  */
 public final class ObservedIndexStore {
-    private static final int MAX_PER_SCOPE = 4096;
+    // Rough heap cost of one entry: key + BlockPos + Entry + map and chunk-cell nodes, plus one posting-set node per item.
+    // Content sets are shared across chests, so they are left out of the per-entry estimate.
+    private static final int ENTRY_BASE_BYTES = 160;
+    private static final int POSTING_BYTES_PER_ITEM = 40;
+    private static final int NESTED_HOLDER_BYTES = 48;
+    private static final double STALE_EVICTION_WEIGHT = 4.0;
+    // Walk postings while they hold at most 1/4 of a shard; past that the radius's chunk cells are cheaper.
+    private static final int POSTING_SCAN_DIVISOR = 4;
+    // Evict down to limit - limit/16 so the candidate sort runs once per batch, not once per record.
+    private static final int EVICTION_SLACK_DIVISOR = 16;
     private static final String SCOPES_DIR_NAME = "scopes";
-    private static final String FILE_NAME = "observed.json";
-    private static final int CURRENT_VERSION = 1;
-    // ponytail: 2s save throttle + shutdown-hook flush; losing <2s of observations just means reopening a chest.
-    private static final long SAVE_THROTTLE_MS = 2_000L;
-
-    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final String SHARDS_DIR_NAME = "observed";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    // Whole-scope layouts from before sharding.
+    private static final String LEGACY_FILE_NAME = "observed.json";
+    private static final String UNSHARDED_SNAPSHOT_FILE_NAME = "observed.snapshot";
+    private static final String UNSHARDED_JOURNAL_FILE_NAME = "observed.journal";
+    private static final long COMPACT_THRESHOLD_BYTES = 256L * 1024L;
+    // ponytail: 2s write coalescing + shutdown-hook flush; losing <2s of observations just means reopening a chest.
+    private static final long WRITE_COALESCE_MS = 2_000L;
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MS = 5_000L;
+    private static final long SHARD_IDLE_MS = 5L * 60L * 1000L;
+    private static final long IDLE_SWEEP_INTERVAL_MS = 60_000L;
 
     private final Path scopesDir;
     private final Supplier<String> activeScopeIdSupplier;
-    private final Map<String, ScopeIndex> byScope = new HashMap<>();
+    // Access-ordered, so the eldest entry is the least recently used scope.
+    private final LinkedHashMap<String, ScopeShards> byScope = new LinkedHashMap<>(16, 0.75f, true);
+    // Scopes dropped from byScope whose final writes are still queued; revived if asked for meanwhile.
+    private final Map<String, ScopeShards> unloadingScopes = new HashMap<>();
+    private final ScheduledExecutorService ioWorker;
+    private final Thread shutdownFlush;
 
     public ObservedIndexStore(Supplier<String> activeScopeIdSupplier) {
+        this(activeScopeIdSupplier, FabricLoader.getInstance().getConfigDir().resolve(LatchLabel.MOD_ID));
+    }
+
+    ObservedIndexStore(Supplier<String> activeScopeIdSupplier, Path configDir) {
         this.activeScopeIdSupplier = activeScopeIdSupplier;
-        this.scopesDir = FabricLoader.getInstance().getConfigDir()
-                .resolve(LatchLabel.MOD_ID).resolve(SCOPES_DIR_NAME);
-        Runtime.getRuntime().addShutdownHook(new Thread(this::flushAll, "latchlabel-observed-flush"));
+        this.scopesDir = configDir.resolve(SCOPES_DIR_NAME);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "latchlabel-observed-io");
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.ioWorker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.ioWorker.scheduleWithFixedDelay(this::unloadIdleShardsSafely,
+                IDLE_SWEEP_INTERVAL_MS, IDLE_SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        this.shutdownFlush = new Thread(this::flushAll, "latchlabel-observed-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownFlush);
     }
 
     public synchronized void record(ChestKey key, Set<Item> items) {
-        if (key == null || items == null || items.isEmpty()) {
+        record(key, items, Map.of());
+    }
+
+    /**
+     * Records a chest's top-level {@code items} plus, per shulker box or bundle in it, the items
+     * packed inside. Nested items answer content queries for the chest like top-level ones do;
+     * {@link #nestedHolder} tells them apart. An empty chest drops its entry.
+     *
+     * <p>Observations are diffed against the stored entry: if nothing changed and the entry isn't
+     * stale, only its in-memory age is refreshed — nothing is journaled and its position is kept —
+     * so re-observing an open chest on every slot update costs no disk churn.
+     */
+    public synchronized void record(ChestKey key, Set<Item> items, Map<NestedHolder, Set<Item>> nested) {
+        if (key == null || items == null) {
+            return;
+        }
+        ScopeShards scope = scope(activeScopeId());
+        // Copied: the change may wait for the shard to load.
+        Set<Item> observedItems = Set.copyOf(items);
+        Map<NestedHolder, Set<Item>> observedNested = new LinkedHashMap<>();
+        if (nested != null) {
+            nested.forEach((holder, holderItems) -> observedNested.put(holder, Set.copyOf(holderItems)));
+        }
+        long now = System.currentTimeMillis();
+        withShard(scope, RegionKey.of(key), shard -> recordInto(scope, shard, key, observedItems, observedNested, now));
+    }
+
+    private void recordInto(ScopeShards scope, ShardIndex shard, ChestKey key, Set<Item> items,
+            Map<NestedHolder, Set<Item>> nested, long now) {
+        Entry existing = shard.entries.get(key);
+        if (items.isEmpty()) {
+            if (existing != null) {
+                shard.forget(key);
+                scheduleWrite(shard);
+            }
             return;
         }
         // Fresh observation always clears any staleness flag.
-        ScopeIndex index = scope(activeScopeId());
-        index.put(key, new Entry(Set.copyOf(items), System.currentTimeMillis(), 0L));
+        Entry observed = shard.entry(items, nested, now, 0L);
+        if (existing != null && !existing.stale() && existing.sameContents(observed)) {
+            shard.entries.put(key, observed); // existing key: keeps its map position
+            return;
+        }
+        shard.put(key, observed);
+        enforceBudget(scope);
+        scheduleWrite(shard);
     }
 
     /**
@@ -76,71 +201,728 @@ public final class ObservedIndexStore {
      */
     public synchronized void markStale(ChestKey key) {
         if (key != null) {
-            scope(activeScopeId()).markStale(key);
+            withShard(scope(activeScopeId()), RegionKey.of(key), shard -> {
+                shard.markStale(key);
+                scheduleWrite(shard);
+            });
         }
     }
 
+    /** Whether the chest is known and stale; false while its shard is still loading. */
     public synchronized boolean isStale(ChestKey key) {
-        return key != null && scope(activeScopeId()).isStale(key);
+        ShardIndex shard = key == null ? null : loadedShard(key);
+        return shard != null && shard.isStale(key);
     }
 
-    /** Chests recorded in the active scope. */
-    public synchronized Set<ChestKey> keys() {
-        return Set.copyOf(scope(activeScopeId()).entries.keySet());
+    /**
+     * Chests in the active scope whose block center is within {@code radius} of (x, y, z) and whose
+     * observed contents include at least one of {@code items}. Each region shard in range answers
+     * from whichever is smaller: its posting lists for the items, or its chunk cells overlapping the
+     * radius (common items in a dense base). Either way cost scales with the hits or the area searched.
+     * Shards still loading contribute nothing yet.
+     */
+    public synchronized Set<ChestKey> keysContainingAny(Set<Item> items, Identifier dimensionId,
+            double x, double y, double z, double radius) {
+        if (items == null || items.isEmpty()) {
+            return Set.of();
+        }
+        ScopeShards scope = scope(activeScopeId());
+        double radiusSq = radius * radius;
+        BlockPos center = new BlockPos((int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z));
+        Set<ChestKey> result = new HashSet<>();
+        for (RegionKey region : RegionKey.around(dimensionId, center, (int) Math.ceil(radius))) {
+            ShardIndex shard = loadedShard(scope, region);
+            if (shard == null) {
+                continue;
+            }
+            int[] ids = shard.dictionary.lookup(items);
+            int postingTotal = 0;
+            for (int id : ids) {
+                Set<ChestKey> posting = shard.posting(id);
+                postingTotal += posting == null ? 0 : posting.size();
+            }
+            if (postingTotal == 0) {
+                continue;
+            }
+            if (postingTotal <= shard.entries.size() / POSTING_SCAN_DIVISOR) {
+                for (int id : ids) {
+                    Set<ChestKey> posting = shard.posting(id);
+                    if (posting == null) {
+                        continue;
+                    }
+                    for (ChestKey key : posting) {
+                        if (ChestSpatialIndex.distanceSq(key, x, y, z) <= radiusSq) {
+                            result.add(key);
+                        }
+                    }
+                }
+                continue;
+            }
+            for (ChestKey key : shard.cells.within(dimensionId, x, y, z, radius)) {
+                if (ObservedItemDictionary.intersects(shard.entries.get(key).itemIds(), ids)) {
+                    result.add(key);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Every observed chest in the active scope whose block center is within {@code radius} of (x, y, z), in loaded shards. */
+    public synchronized Set<ChestKey> keysWithin(Identifier dimensionId, double x, double y, double z, double radius) {
+        ScopeShards scope = scope(activeScopeId());
+        BlockPos center = new BlockPos((int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z));
+        Set<ChestKey> result = new HashSet<>();
+        for (RegionKey region : RegionKey.around(dimensionId, center, (int) Math.ceil(radius))) {
+            ShardIndex shard = loadedShard(scope, region);
+            if (shard != null) {
+                result.addAll(shard.cells.within(dimensionId, x, y, z, radius));
+            }
+        }
+        return result;
     }
 
+    /** Whether the chest's observed contents include any of {@code items}: a merge of two sorted id arrays. */
+    public synchronized boolean containsAny(ChestKey key, Set<Item> items) {
+        if (key == null || items == null || items.isEmpty()) {
+            return false;
+        }
+        ShardIndex shard = loadedShard(key);
+        Entry entry = shard == null ? null : shard.entries.get(key);
+        return entry != null && ObservedItemDictionary.intersects(entry.itemIds(), shard.dictionary.lookup(items));
+    }
+
+    /**
+     * The shulker box or bundle holding one of {@code items} in this chest, or empty if the chest
+     * holds one loose (or none at all). A chest matching only through nesting always has a holder.
+     */
+    public synchronized Optional<NestedHolder> nestedHolder(ChestKey key, Set<Item> items) {
+        if (key == null || items == null || items.isEmpty()) {
+            return Optional.empty();
+        }
+        ShardIndex shard = loadedShard(key);
+        Entry entry = shard == null ? null : shard.entries.get(key);
+        if (entry == null || entry.nested().isEmpty()) {
+            return Optional.empty();
+        }
+        int[] ids = shard.dictionary.lookup(items);
+        if (ObservedItemDictionary.intersects(entry.contents().itemIds(), ids)) {
+            return Optional.empty();
+        }
+        for (NestedSet nested : entry.nested()) {
+            Item holder = shard.dictionary.item(nested.holderItemId());
+            if (holder != null && ObservedItemDictionary.intersects(nested.contents().itemIds(), ids)) {
+                return Optional.of(new NestedHolder(holder, nested.customName()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Top-level items last seen in the chest; nested contents are left out. */
     public synchronized Optional<Set<Item>> itemsFor(ChestKey key) {
-        Entry entry = scope(activeScopeId()).entries.get(key);
-        return entry == null ? Optional.empty() : Optional.of(entry.items());
+        ShardIndex shard = loadedShard(key);
+        Entry entry = shard == null ? null : shard.entries.get(key);
+        return entry == null ? Optional.empty() : Optional.of(Set.copyOf(shard.dictionary.decode(entry.contents().itemIds())));
+    }
+
+    /** Everything last seen in the chest, loose or inside a shulker box or bundle. */
+    public synchronized Optional<Set<Item>> allItemsFor(ChestKey key) {
+        ShardIndex shard = loadedShard(key);
+        Entry entry = shard == null ? null : shard.entries.get(key);
+        return entry == null ? Optional.empty() : Optional.of(Set.copyOf(shard.dictionary.decode(entry.itemIds())));
+    }
+
+    /**
+     * Loads the shard for the region containing {@code pos} on the I/O worker, so it is resident by
+     * the time the player opens or searches for chests there. Called as chunks arrive; a no-op once
+     * the shard is loaded or already being loaded.
+     */
+    public synchronized void prefetch(Identifier dimensionId, BlockPos pos) {
+        loadedShard(scope(activeScopeId()), RegionKey.containing(dimensionId, pos));
+    }
+
+    /** Per loaded scope: resident shards, chests indexed, and distinct content sets they share. */
+    public synchronized List<ScopeStats> scopeStats() {
+        List<ScopeStats> stats = new ArrayList<>();
+        for (ScopeShards scope : byScope.values()) {
+            int chests = 0;
+            int distinctContentSets = 0;
+            for (ShardIndex shard : scope.shards.values()) {
+                Set<ObservedContentSet> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Entry entry : shard.entries.values()) {
+                    distinct.add(entry.contents());
+                }
+                chests += shard.entries.size();
+                distinctContentSets += distinct.size();
+            }
+            stats.add(new ScopeStats(scope.scopeId, scope.shards.size(), chests, distinctContentSets));
+        }
+        return stats;
+    }
+
+    /**
+     * How far disk writes trail memory: records and bytes encoded but not yet handed to the I/O
+     * worker, and the age of the oldest of them. A lag that keeps growing past
+     * {@link #WRITE_COALESCE_MS} means the worker can't keep up.
+     */
+    public synchronized WriteBacklog writeBacklog() {
+        int records = 0;
+        int bytes = 0;
+        long oldestPendingMs = 0L;
+        for (ShardIndex shard : allShards()) {
+            records += shard.journal.pendingRecords();
+            bytes += shard.journal.pendingBytes();
+            if (shard.oldestPendingMs != 0L && (oldestPendingMs == 0L || shard.oldestPendingMs < oldestPendingMs)) {
+                oldestPendingMs = shard.oldestPendingMs;
+            }
+        }
+        long lagMs = oldestPendingMs == 0L ? 0L : System.currentTimeMillis() - oldestPendingMs;
+        return new WriteBacklog(records, bytes, lagMs);
+    }
+
+    /**
+     * Writes out every loaded shard's pending delta on the I/O worker and waits for it. The shards
+     * are listed on the worker, after the loads queued before this call, so writes waiting for
+     * those loads are included. Runs from the shutdown hook; must not hold the store lock while
+     * waiting, since the worker needs it to drain.
+     */
+    public void flushAll() {
+        try {
+            ioWorker.submit(() -> {
+                List<ShardIndex> shards;
+                synchronized (this) {
+                    shards = allShards();
+                }
+                shards.forEach(this::writeOut);
+            }).get(SHUTDOWN_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception ex) {
+            LatchLabel.LOGGER.warn("Failed flushing observed index: {}", ex.toString());
+        }
+    }
+
+    /** Flushes and stops the I/O worker. The game never closes the store; it flushes from the shutdown hook. */
+    void close() {
+        flushAll();
+        ioWorker.shutdown();
+        Runtime.getRuntime().removeShutdownHook(shutdownFlush);
+    }
+
+    /** Waits until the shard loads queued so far are installed. */
+    void awaitLoads() throws Exception {
+        ioWorker.submit(() -> { }).get(SHUTDOWN_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Schedules one coalesced write for {@code shard} unless one is already queued. Caller holds the lock. */
+    private void scheduleWrite(ShardIndex shard) {
+        if (shard.writeScheduled || (shard.journal.pendingRecords() == 0 && !shard.forceSnapshot)) {
+            return;
+        }
+        shard.writeScheduled = true;
+        ioWorker.schedule(() -> writeOut(shard), WRITE_COALESCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * I/O worker body: takes the pending delta (or, past the compaction threshold, an immutable copy
+     * of all entries) under the lock, then does the file work without it so the client thread never
+     * waits on disk. Returns whether the shard's files now hold everything it had in memory.
+     */
+    private boolean writeOut(ShardIndex shard) {
+        byte[] delta;
+        List<Map.Entry<ChestKey, Entry>> snapshot = null;
+        List<String> itemNames = null;
+        List<ObservedContentSet> contentSets = null;
+        synchronized (this) {
+            shard.writeScheduled = false;
+            shard.oldestPendingMs = 0L;
+            delta = shard.journal.drainPending();
+            if (shard.forceSnapshot || shard.journal.bytesOnDisk() + delta.length >= COMPACT_THRESHOLD_BYTES) {
+                snapshot = shard.copyEntries();
+                itemNames = shard.dictionary.snapshotNames();
+                contentSets = shard.startJournalGeneration(snapshot);
+            }
+            shard.forceSnapshot = false;
+        }
+        try {
+            if (snapshot != null) {
+                // The copy already contains everything in the journal plus this delta.
+                ShardIndex.writeSnapshot(shard.snapshotFile, itemNames, contentSets, snapshot);
+                shard.journal.truncate();
+            } else {
+                shard.journal.write(delta);
+            }
+            return true;
+        } catch (Exception ex) {
+            LatchLabel.LOGGER.warn("Failed writing observed index {}: {}", shard.snapshotFile, ex.getMessage());
+            synchronized (this) {
+                // Definitions in the lost write may be referenced later; rebuild everything next time.
+                shard.forceSnapshot = true;
+            }
+            return false;
+        }
     }
 
-    public synchronized void flushAll() {
-        for (ScopeIndex index : byScope.values()) {
-            index.saveNow();
+    private void unloadIdleShardsSafely() {
+        try {
+            unloadIdleShards();
+        } catch (Exception ex) {
+            LatchLabel.LOGGER.warn("Failed unloading idle observed index shards: {}", ex.toString());
         }
     }
 
+    /**
+     * Drops shards nobody has touched for {@link #SHARD_IDLE_MS} and whose writes are out; they
+     * reload from disk on next use. Runs on the I/O worker, so no {@link #writeOut} is mid-flight.
+     */
+    private synchronized void unloadIdleShards() {
+        long cutoff = System.currentTimeMillis() - SHARD_IDLE_MS;
+        int unloaded = 0;
+        for (ScopeShards scope : byScope.values()) {
+            unloaded += unloadQuietShards(scope, cutoff);
+        }
+        // Retry scopes whose unload write failed earlier.
+        Iterator<ScopeShards> it = unloadingScopes.values().iterator();
+        while (it.hasNext()) {
+            ScopeShards scope = it.next();
+            unloaded += unloadQuietShards(scope, Long.MAX_VALUE);
+            if (scope.shards.isEmpty()) {
+                it.remove();
+            } else {
+                scope.shards.values().forEach(this::scheduleWrite);
+            }
+        }
+        if (unloaded > 0) {
+            LatchLabel.LOGGER.debug("[ObservedIndex] Unloaded {} idle shards", unloaded);
+        }
+    }
+
+    /** Drops the scope's shards last touched before {@code cutoff} that have nothing left to write. */
+    private static int unloadQuietShards(ScopeShards scope, long cutoff) {
+        int unloaded = 0;
+        Iterator<ShardIndex> it = scope.shards.values().iterator();
+        while (it.hasNext()) {
+            ShardIndex shard = it.next();
+            if (shard.lastAccessMs < cutoff && shard.quiet()) {
+                it.remove();
+                unloaded++;
+            }
+        }
+        return unloaded;
+    }
+
+    /**
+     * Unloads least-recently-used scopes beyond the active one plus
+     * {@link ObservedIndexSettings#retainedInactiveScopes()}. Their shards are written out on the
+     * I/O worker first; until then the scope waits in {@link #unloadingScopes}, so switching back
+     * quickly revives it instead of reading files that are about to change.
+     */
+    private void trimScopes() {
+        int limit = 1 + ObservedIndexSettings.retainedInactiveScopes();
+        Iterator<ScopeShards> it = byScope.values().iterator();
+        while (byScope.size() > limit && it.hasNext()) {
+            ScopeShards scope = it.next();
+            it.remove();
+            scope.resident = false;
+            unloadingScopes.put(scope.scopeId, scope);
+            List<ShardIndex> shards = List.copyOf(scope.shards.values());
+            LatchLabel.LOGGER.debug("[ObservedIndex] Unloading scope {} ({} shards)", scope.scopeId, shards.size());
+            ioWorker.execute(() -> {
+                shards.forEach(this::writeOut);
+                synchronized (this) {
+                    if (unloadingScopes.get(scope.scopeId) == scope) {
+                        unloadQuietShards(scope, Long.MAX_VALUE);
+                        if (scope.shards.isEmpty()) {
+                            unloadingScopes.remove(scope.scopeId);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts the least valuable entries across the scope's loaded shards while over the chest cap
+     * or memory budget, journaling each eviction. Value falls with age and with estimated size;
+     * stale entries count {@link #STALE_EVICTION_WEIGHT} times worse, since their contents may
+     * already be wrong.
+     */
+    private void enforceBudget(ScopeShards scope) {
+        int maxChests = ObservedIndexSettings.maxChestsPerScope();
+        long maxBytes = ObservedIndexSettings.memoryBudgetMb() * 1024L * 1024L;
+        int chests = 0;
+        long bytes = 0L;
+        for (ShardIndex shard : scope.shards.values()) {
+            chests += shard.entries.size();
+            bytes += shard.estimatedBytes;
+        }
+        if (chests <= maxChests && (maxBytes == 0L || bytes <= maxBytes)) {
+            return;
+        }
+        int targetChests = maxChests - maxChests / EVICTION_SLACK_DIVISOR;
+        long targetBytes = maxBytes - maxBytes / EVICTION_SLACK_DIVISOR;
+        long now = System.currentTimeMillis();
+        List<EvictionCandidate> candidates = new ArrayList<>(chests);
+        for (ShardIndex shard : scope.shards.values()) {
+            for (Map.Entry<ChestKey, Entry> e : shard.entries.entrySet()) {
+                candidates.add(new EvictionCandidate(shard, e.getKey(), evictionWeight(e.getValue(), now)));
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(EvictionCandidate::weight).reversed());
+        Set<ShardIndex> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        int evicted = 0;
+        for (EvictionCandidate candidate : candidates) {
+            if (chests <= targetChests && (maxBytes == 0L || bytes <= targetBytes)) {
+                break;
+            }
+            ShardIndex shard = candidate.shard();
+            bytes -= entryBytes(shard.entries.get(candidate.key()));
+            chests--;
+            shard.forget(candidate.key());
+            touched.add(shard);
+            evicted++;
+        }
+        touched.forEach(this::scheduleWrite);
+        LatchLabel.LOGGER.debug("[ObservedIndex] Evicted {} chests from scope {} ({} left, ~{} KB)",
+                evicted, scope.scopeId, chests, bytes / 1024L);
+    }
+
+    private static double evictionWeight(Entry entry, long now) {
+        double weight = (double) Math.max(1L, now - entry.observedAt()) * entryBytes(entry);
+        return entry.stale() ? weight * STALE_EVICTION_WEIGHT : weight;
+    }
+
+    private static long entryBytes(Entry entry) {
+        return ENTRY_BASE_BYTES + (long) entry.itemIds().length * POSTING_BYTES_PER_ITEM
+                + (long) entry.nested().size() * NESTED_HOLDER_BYTES;
+    }
+
     private String activeScopeId() {
         String scopeId = activeScopeIdSupplier.get();
         return scopeId == null || scopeId.isBlank() ? TagStore.DEFAULT_SCOPE_ID : scopeId;
     }
 
-    private ScopeIndex scope(String scopeId) {
-        return byScope.computeIfAbsent(scopeId, id -> ScopeIndex.load(scopesDir.resolve(id).resolve(FILE_NAME)));
+    private ScopeShards scope(String scopeId) {
+        ScopeShards scope = byScope.get(scopeId);
+        if (scope == null) {
+            scope = unloadingScopes.remove(scopeId);
+            if (scope != null) {
+                scope.resident = true;
+                byScope.put(scopeId, scope);
+            } else {
+                scope = new ScopeShards(scopeId, scopesDir.resolve(scopeId));
+                byScope.put(scopeId, scope);
+                migrateUnsharded(scope);
+            }
+            trimScopes();
+        }
+        return scope;
+    }
+
+    private ShardIndex loadedShard(ChestKey key) {
+        return loadedShard(scope(activeScopeId()), RegionKey.of(key));
+    }
+
+    /** The region's shard if it is loaded; otherwise null, with its load queued on the I/O worker. Never reads disk. */
+    private ShardIndex loadedShard(ScopeShards scope, RegionKey region) {
+        ShardIndex shard = scope.shards.get(region);
+        if (shard == null) {
+            requestLoad(scope, region);
+            return null;
+        }
+        shard.lastAccessMs = System.currentTimeMillis();
+        return shard;
+    }
+
+    /** Applies {@code change} to the region's shard now if it is loaded, else once the I/O worker has loaded it. */
+    private void withShard(ScopeShards scope, RegionKey region, Consumer<ShardIndex> change) {
+        ShardIndex shard = loadedShard(scope, region);
+        if (shard != null) {
+            change.accept(shard);
+        } else {
+            scope.pendingChanges.computeIfAbsent(region, unused -> new ArrayList<>()).add(change);
+        }
+    }
+
+    /** Queues a load of the region's shard unless one is already queued. Caller holds the lock. */
+    private void requestLoad(ScopeShards scope, RegionKey region) {
+        if (!scope.loading.add(region)) {
+            return;
+        }
+        ioWorker.execute(() -> {
+            ShardIndex shard = ShardIndex.load(scope.shardsDir, region);
+            synchronized (this) {
+                scope.loading.remove(region);
+                List<Consumer<ShardIndex>> changes = scope.pendingChanges.remove(region);
+                if (!scope.resident) {
+                    // Unloaded meanwhile; observed data is disposable, reopening the chests records them again.
+                    if (changes != null) {
+                        LatchLabel.LOGGER.debug("[ObservedIndex] Dropped {} changes to {} in unloaded scope {}",
+                                changes.size(), region, scope.scopeId);
+                    }
+                    return;
+                }
+                // The old-file split may have loaded (and changed) the shard meanwhile; that copy wins.
+                ShardIndex target = scope.shards.get(region);
+                if (target == null) {
+                    install(scope, region, shard);
+                    target = shard;
+                }
+                if (changes != null) {
+                    for (Consumer<ShardIndex> change : changes) {
+                        change.accept(target);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the region's shard on the calling thread if it is not loaded yet. Only for
+     * {@link #migrateUnsharded}, which already reads a whole scope's old files in one go, once per
+     * scope after upgrading; everything else goes through {@link #loadedShard} or {@link #withShard}.
+     */
+    private ShardIndex loadNow(ScopeShards scope, RegionKey region) {
+        ShardIndex shard = scope.shards.get(region);
+        if (shard == null) {
+            shard = ShardIndex.load(scope.shardsDir, region);
+            install(scope, region, shard);
+        }
+        shard.lastAccessMs = System.currentTimeMillis();
+        return shard;
+    }
+
+    private void install(ScopeShards scope, RegionKey region, ShardIndex shard) {
+        shard.lastAccessMs = System.currentTimeMillis();
+        scope.shards.put(region, shard);
+        scheduleWrite(shard);
+    }
+
+    private List<ShardIndex> allShards() {
+        List<ShardIndex> shards = new ArrayList<>();
+        for (ScopeShards scope : byScope.values()) {
+            shards.addAll(scope.shards.values());
+        }
+        for (ScopeShards scope : unloadingScopes.values()) {
+            shards.addAll(scope.shards.values());
+        }
+        return shards;
     }
 
-    private record Entry(Set<Item> items, long observedAt, long staleSince) {
+    /**
+     * Splits a scope's whole-scope files (legacy {@code observed.json}, or the unsharded snapshot +
+     * journal) into region shards. Entries are re-recorded into their shards' journals; the worker
+     * writes those out and only then deletes the old files. A shard entry that is already newer
+     * wins, so a crash before the delete just repeats the split harmlessly.
+     */
+    private void migrateUnsharded(ScopeShards scope) {
+        Path legacyFile = scope.dir.resolve(LEGACY_FILE_NAME);
+        Path snapshotFile = scope.dir.resolve(UNSHARDED_SNAPSHOT_FILE_NAME);
+        Path journalFile = scope.dir.resolve(UNSHARDED_JOURNAL_FILE_NAME);
+        boolean hasUnsharded = Files.exists(snapshotFile) || Files.exists(journalFile);
+        if (!hasUnsharded && !Files.exists(legacyFile)) {
+            return;
+        }
+        ShardIndex whole = new ShardIndex(snapshotFile, journalFile);
+        if (hasUnsharded) {
+            whole.readFiles();
+        } else {
+            whole.readLegacyFile(legacyFile);
+        }
+        Set<ShardIndex> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<ChestKey, Entry> e : whole.entries.entrySet()) {
+            Entry entry = e.getValue();
+            ShardIndex shard = loadNow(scope, RegionKey.of(e.getKey()));
+            Entry existing = shard.entries.get(e.getKey());
+            if (existing == null || existing.observedAt() < entry.observedAt()) {
+                Set<Item> items = whole.dictionary.decode(entry.contents().itemIds());
+                Map<NestedHolder, Set<Item>> nested = new LinkedHashMap<>();
+                for (NestedSet set : entry.nested()) {
+                    Item holder = whole.dictionary.item(set.holderItemId());
+                    if (holder != null) {
+                        nested.put(new NestedHolder(holder, set.customName()), whole.dictionary.decode(set.contents().itemIds()));
+                    }
+                }
+                shard.put(e.getKey(), shard.entry(items, nested, entry.observedAt(), entry.staleSince()));
+                targets.add(shard);
+            }
+        }
+        LatchLabel.LOGGER.info("[ObservedIndex] Splitting {} chests from {} into {} region shards",
+                whole.entries.size(), scope.dir, targets.size());
+        List<ShardIndex> written = List.copyOf(targets);
+        ioWorker.execute(() -> {
+            boolean allWritten = true;
+            for (ShardIndex shard : written) {
+                allWritten &= writeOut(shard);
+            }
+            if (!allWritten) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(legacyFile);
+                Files.deleteIfExists(snapshotFile);
+                Files.deleteIfExists(journalFile);
+            } catch (IOException ex) {
+                LatchLabel.LOGGER.warn("Failed removing unsharded observed index in {}: {}", scope.dir, ex.getMessage());
+            }
+        });
+    }
+
+    /** Disk-write lag across loaded shards; see {@link #writeBacklog()}. */
+    public record WriteBacklog(int pendingRecords, int pendingBytes, long lagMs) {
+    }
+
+    /** Residency and dedup counters for one loaded scope; see {@link #scopeStats()}. */
+    public record ScopeStats(String scopeId, int loadedShards, int chests, int distinctContentSets) {
+        public double dedupRatio() {
+            return distinctContentSets == 0 ? 1.0 : (double) chests / distinctContentSets;
+        }
+    }
+
+    /**
+     * A shulker box or bundle found inside an observed chest: the holder's item (which carries its
+     * color) and its custom name, or {@code null} if it has none.
+     */
+    public record NestedHolder(Item holder, String customName) {
+        public NestedHolder {
+            Objects.requireNonNull(holder, "holder");
+            customName = customName == null || customName.isBlank() ? null : customName;
+        }
+    }
+
+    /**
+     * {@code contents} is the shard's canonical instance, shared by every chest with identical items;
+     * {@code nested} lists the holders inside the chest, usually none. {@code itemIds} are the sorted
+     * ids of everything in the chest, loose or nested: what the postings index. They are merged once
+     * here, since queries and eviction weighing read them for every chest they touch.
+     */
+    private record Entry(ObservedContentSet contents, List<NestedSet> nested, long observedAt, long staleSince,
+                         int[] itemIds) {
+        Entry(ObservedContentSet contents, List<NestedSet> nested, long observedAt, long staleSince) {
+            this(contents, nested, observedAt, staleSince, mergedItemIds(contents, nested));
+        }
+
+        private static int[] mergedItemIds(ObservedContentSet contents, List<NestedSet> nested) {
+            int[] all = contents.itemIds();
+            for (NestedSet set : nested) {
+                all = ObservedItemDictionary.union(all, set.contents().itemIds());
+            }
+            return all;
+        }
+
+        /** Same loose and nested contents; content sets are canonical, so identity suffices for the loose ones. */
+        boolean sameContents(Entry other) {
+            return contents == other.contents && nested.equals(other.nested);
+        }
+
+        Entry withStaleSince(long staleSince) {
+            return new Entry(contents, nested, observedAt, staleSince, itemIds);
+        }
+
         boolean stale() {
             return staleSince != 0L;
         }
     }
 
-    private static final class ScopeIndex {
-        private final Path file;
-        private final LinkedHashMap<ChestKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, false) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<ChestKey, Entry> eldest) {
-                return size() > MAX_PER_SCOPE;
-            }
-        };
-        private long lastSaveMs = 0L;
-        private boolean dirty = false;
+    /** One holder's contents inside an {@link Entry}; {@code customName} is {@code null} when unnamed. */
+    private record NestedSet(int holderItemId, String customName, ObservedContentSet contents) {
+    }
+
+    private record EvictionCandidate(ShardIndex shard, ChestKey key, double weight) {
+    }
+
+    /** The loaded shards of one scope. Guarded by the store lock. */
+    private static final class ScopeShards {
+        private final String scopeId;
+        private final Path dir;
+        private final Path shardsDir;
+        private final Map<RegionKey, ShardIndex> shards = new HashMap<>();
+        // Regions the I/O worker is loading.
+        private final Set<RegionKey> loading = new HashSet<>();
+        // Writes to regions still loading, applied in order once loaded.
+        private final Map<RegionKey, List<Consumer<ShardIndex>>> pendingChanges = new HashMap<>();
+        // False while unloading; a load finishing then must not install into it.
+        private boolean resident = true;
+
+        private ScopeShards(String scopeId, Path dir) {
+            this.scopeId = scopeId;
+            this.dir = dir;
+            this.shardsDir = dir.resolve(SHARDS_DIR_NAME);
+        }
+    }
+
+    /** One region's entries, dictionary, postings and files. */
+    private static final class ShardIndex implements ObservedIndexJournal.Sink {
+        private final Path snapshotFile;
+        private final ObservedIndexJournal journal;
+        private final LinkedHashMap<ChestKey, Entry> entries = new LinkedHashMap<>();
+        // Sum of entryBytes over entries; see ENTRY_BASE_BYTES.
+        private long estimatedBytes = 0L;
+        private final ObservedItemDictionary dictionary = new ObservedItemDictionary();
+        // Inverted index, indexed by item id: chests whose entry lists that id. Kept in lockstep with entries.
+        private final List<Set<ChestKey>> postings = new ArrayList<>();
+        // The same keys bucketed by chunk, for radius queries.
+        private final ChestSpatialIndex cells = new ChestSpatialIndex();
+        // Weak canonicalizing table: a content set lives as long as some entry references it.
+        private final WeakHashMap<ObservedContentSet, WeakReference<ObservedContentSet>> contentSets = new WeakHashMap<>();
+        private int nextContentSetId = 0;
+        // Bumped whenever a snapshot replaces the journal; a set must be (re)defined once per generation.
+        private int journalGeneration = 0;
+        // File set id -> canonical set, only while replaying.
+        private Map<Integer, ObservedContentSet> replayContentSets;
+        // Write-queue state, guarded by the store lock.
+        private boolean writeScheduled = false;
+        private boolean forceSnapshot = false;
+        private long oldestPendingMs = 0L;
+        private long lastAccessMs = 0L;
+        private boolean replaying = false;
+
+        private ShardIndex(Path snapshotFile, Path journalFile) {
+            this.snapshotFile = snapshotFile;
+            this.journal = new ObservedIndexJournal(journalFile);
+        }
+
+        private static ShardIndex load(Path shardsDir, RegionKey region) {
+            ShardIndex shard = new ShardIndex(region.resolve(shardsDir, SNAPSHOT_SUFFIX), region.resolve(shardsDir, JOURNAL_SUFFIX));
+            shard.readFiles();
+            return shard;
+        }
 
-        private ScopeIndex(Path file) {
-            this.file = file;
+        /** Nothing encoded, queued or owed to disk. */
+        private boolean quiet() {
+            return !writeScheduled && !forceSnapshot && journal.pendingRecords() == 0;
         }
 
-        private static ScopeIndex load(Path file) {
-            ScopeIndex index = new ScopeIndex(file);
-            index.readFile();
-            return index;
+        private void notePending() {
+            if (oldestPendingMs == 0L) {
+                oldestPendingMs = System.currentTimeMillis();
+            }
         }
 
         private void put(ChestKey key, Entry entry) {
-            entries.remove(key); // reinsert at tail so re-observed chests count as most-recent
+            Entry previous = entries.remove(key); // reinsert at tail so snapshots stay in observation order
+            if (previous != null) {
+                unindex(key, previous.itemIds());
+                estimatedBytes -= entryBytes(previous);
+            }
             entries.put(key, entry);
-            dirty = true;
-            maybeSave();
+            index(key, entry.itemIds());
+            cells.add(key);
+            estimatedBytes += entryBytes(entry);
+            if (!replaying) {
+                ObservedContentSet contents = entry.contents();
+                define(contents);
+                journal.appendRecord(key, contents.id(), entry.observedAt(), entry.staleSince());
+                for (NestedSet nested : entry.nested()) {
+                    define(nested.contents());
+                    journal.appendNested(key, nested.holderItemId(), nullToEmpty(nested.customName()), nested.contents().id());
+                }
+                notePending();
+            }
+        }
+
+        /** Drops {@code key} and journals the eviction. */
+        private void forget(ChestKey key) {
+            evict(key);
+            journal.appendEvict(key);
+            notePending();
         }
 
         private void markStale(ChestKey key) {
@@ -148,10 +930,16 @@ public final class ObservedIndexStore {
             if (e == null || e.stale()) {
                 return;
             }
-            // In-place value update: keeps LRU position (unlike put's remove+reinsert).
-            entries.put(key, new Entry(e.items(), e.observedAt(), System.currentTimeMillis()));
-            dirty = true;
-            maybeSave();
+            long now = System.currentTimeMillis();
+            applyStale(key, e, now);
+            journal.appendStale(key, now);
+            notePending();
+        }
+
+        private void applyStale(ChestKey key, Entry e, long staleSince) {
+            // In-place value update: keeps map position and observedAt. Items are
+            // unchanged, so the posting index stays valid — stale chests still answer queries.
+            entries.put(key, e.withStaleSince(staleSince));
         }
 
         private boolean isStale(ChestKey key) {
@@ -159,43 +947,271 @@ public final class ObservedIndexStore {
             return e != null && e.stale();
         }
 
-        private void maybeSave() {
-            if (System.currentTimeMillis() - lastSaveMs >= SAVE_THROTTLE_MS) {
-                saveNow();
+        /** Journals {@code contents}' definition unless the current journal generation already has it. */
+        private void define(ObservedContentSet contents) {
+            if (contents.definedGeneration() != journalGeneration) {
+                journal.appendContentSet(contents.id(), contents.itemIds());
+                contents.markDefined(journalGeneration);
             }
         }
 
-        private void readFile() {
-            if (!Files.exists(file)) {
-                return;
+        private Entry entry(Set<Item> items, Map<NestedHolder, Set<Item>> nested, long observedAt, long staleSince) {
+            List<NestedSet> nestedSets = new ArrayList<>(nested.size());
+            for (Map.Entry<NestedHolder, Set<Item>> e : nested.entrySet()) {
+                if (!e.getValue().isEmpty()) {
+                    nestedSets.add(new NestedSet(idFor(e.getKey().holder()), e.getKey().customName(), encode(e.getValue())));
+                }
             }
-            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-                JsonElement parsed = JsonParser.parseReader(reader);
-                if (parsed == null || !parsed.isJsonObject()) {
-                    return;
+            return new Entry(encode(items), List.copyOf(nestedSets), observedAt, staleSince);
+        }
+
+        /** Canonical content set for {@code items}, assigning (and journaling) ids for items new to this scope. */
+        private ObservedContentSet encode(Set<Item> items) {
+            int[] ids = new int[items.size()];
+            int n = 0;
+            for (Item item : items) {
+                ids[n++] = idFor(item);
+            }
+            Arrays.sort(ids, 0, n);
+            return intern(nextContentSetId, n == ids.length ? ids : Arrays.copyOf(ids, n));
+        }
+
+        private int idFor(Item item) {
+            int id = dictionary.idOf(item);
+            if (id < 0) {
+                id = dictionary.add(item);
+                if (!replaying) {
+                    journal.appendDefine(id, dictionary.name(id));
                 }
-                JsonObject chests = parsed.getAsJsonObject().getAsJsonObject("c");
-                if (chests == null) {
-                    return;
+            }
+            return id;
+        }
+
+        /** Returns the canonical set equal to {@code itemIds}, registering a new one under {@code id} if none is live. */
+        private ObservedContentSet intern(int id, int[] itemIds) {
+            ObservedContentSet probe = new ObservedContentSet(id, itemIds);
+            WeakReference<ObservedContentSet> ref = contentSets.get(probe);
+            ObservedContentSet canonical = ref == null ? null : ref.get();
+            if (canonical != null) {
+                return canonical;
+            }
+            contentSets.put(probe, new WeakReference<>(probe));
+            nextContentSetId = Math.max(nextContentSetId, id + 1);
+            return probe;
+        }
+
+        /**
+         * Starts a new journal generation for a snapshot of {@code snapshot}: the sets it references
+         * count as defined by the snapshot, anything else gets redefined on next use.
+         */
+        private List<ObservedContentSet> startJournalGeneration(List<Map.Entry<ChestKey, Entry>> snapshot) {
+            journalGeneration++;
+            Set<ObservedContentSet> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<ChestKey, Entry> e : snapshot) {
+                distinct.add(e.getValue().contents());
+                for (NestedSet nested : e.getValue().nested()) {
+                    distinct.add(nested.contents());
+                }
+            }
+            distinct.forEach(contents -> contents.markDefined(journalGeneration));
+            return List.copyOf(distinct);
+        }
+
+        private Set<ChestKey> posting(int id) {
+            return id < postings.size() ? postings.get(id) : null;
+        }
+
+        private void index(ChestKey key, int[] itemIds) {
+            for (int id : itemIds) {
+                while (postings.size() <= id) {
+                    postings.add(null);
                 }
-                for (Map.Entry<String, JsonElement> e : chests.entrySet()) {
-                    ChestKey key;
-                    try {
-                        key = ChestKey.fromStringKey(e.getKey());
-                    } catch (IllegalArgumentException ex) {
+                Set<ChestKey> posting = postings.get(id);
+                if (posting == null) {
+                    posting = new HashSet<>();
+                    postings.set(id, posting);
+                }
+                posting.add(key);
+            }
+        }
+
+        private void unindex(ChestKey key, int[] itemIds) {
+            for (int id : itemIds) {
+                Set<ChestKey> posting = posting(id);
+                if (posting != null && posting.remove(key) && posting.isEmpty()) {
+                    postings.set(id, null);
+                }
+            }
+        }
+
+        @Override
+        public void define(int itemId, String rawItemId) {
+            dictionary.define(itemId, rawItemId);
+        }
+
+        @Override
+        public void defineContentSet(int setId, int[] itemIds) {
+            // Drop ids whose item no longer resolves (mod removed); the dictionary keeps their slots.
+            int[] resolved = Arrays.stream(itemIds).filter(id -> dictionary.item(id) != null).toArray();
+            if (resolved.length == 0) {
+                LatchLabel.LOGGER.warn("[ObservedIndex] All {} items of content set {} missing from registry — chests using it dropped (mod removed?)",
+                        itemIds.length, setId);
+                replayContentSets.put(setId, null);
+                return;
+            }
+            ObservedContentSet canonical = intern(setId, resolved);
+            // Already on disk in the current lineage, so live records may refer to it directly.
+            canonical.markDefined(journalGeneration);
+            replayContentSets.put(setId, canonical);
+        }
+
+        @Override
+        public void record(ChestKey key, int setId, long observedAt, long staleSince) {
+            ObservedContentSet contents = replayContentSets.get(setId);
+            if (contents == null) {
+                evict(key);
+                return;
+            }
+            put(key, new Entry(contents, List.of(), observedAt, staleSince));
+        }
+
+        @Override
+        public void nested(ChestKey key, int holderItemId, String customName, int setId) {
+            Entry e = entries.get(key);
+            ObservedContentSet contents = replayContentSets.get(setId);
+            if (e == null || contents == null || dictionary.item(holderItemId) == null) {
+                return;
+            }
+            List<NestedSet> nested = new ArrayList<>(e.nested());
+            nested.add(new NestedSet(holderItemId, customName.isEmpty() ? null : customName, contents));
+            Entry updated = new Entry(e.contents(), List.copyOf(nested), e.observedAt(), e.staleSince());
+            unindex(key, e.itemIds());
+            estimatedBytes -= entryBytes(e);
+            entries.put(key, updated);
+            index(key, updated.itemIds());
+            estimatedBytes += entryBytes(updated);
+        }
+
+        @Override
+        public void stale(ChestKey key, long staleSince) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                applyStale(key, e, staleSince);
+            }
+        }
+
+        @Override
+        public void evict(ChestKey key) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                unindex(key, removed.itemIds());
+                cells.remove(key);
+                estimatedBytes -= entryBytes(removed);
+            }
+        }
+
+        @Override
+        public void tornTail() {
+            // Records appended after the torn bytes would be unreadable; rewrite both files from what was read.
+            forceSnapshot = true;
+        }
+
+        private List<Map.Entry<ChestKey, Entry>> copyEntries() {
+            List<Map.Entry<ChestKey, Entry>> copy = new ArrayList<>(entries.size());
+            for (Map.Entry<ChestKey, Entry> e : entries.entrySet()) {
+                copy.add(Map.entry(e.getKey(), e.getValue()));
+            }
+            return copy;
+        }
+
+        private void readFiles() {
+            long startedAt = System.nanoTime();
+            boolean current = true;
+            replaying = true;
+            replayContentSets = new HashMap<>();
+            try {
+                current = ObservedIndexJournal.replay(snapshotFile, this)
+                        && ObservedIndexJournal.replay(journal.file(), this);
+            } catch (Exception ex) {
+                LatchLabel.LOGGER.warn("Failed reading observed index {}: {}", snapshotFile, ex.getMessage());
+                // Keep what was read, but rewrite the files rather than append after the bad bytes.
+                forceSnapshot = true;
+            } finally {
+                replaying = false;
+                replayContentSets = null;
+            }
+            if (!current) {
+                // Older binary format: observed data is disposable, so start over and let the worker
+                // replace both files rather than append new-format records to an old-format journal.
+                entries.clear();
+                postings.clear();
+                cells.clear();
+                contentSets.clear();
+                estimatedBytes = 0L;
+                forceSnapshot = true;
+                LatchLabel.LOGGER.info("[ObservedIndex] Discarding observed index in an older format at {}", snapshotFile);
+            } else if (!entries.isEmpty()) {
+                LatchLabel.LOGGER.debug("[ObservedIndex] Read {} in {} ms ({} chests)", snapshotFile,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), entries.size());
+            }
+        }
+
+        /**
+         * Reads the pre-journal {@code observed.json} format, for {@link #migrateUnsharded}. Streams
+         * each chest straight into the shard rather than building the whole JSON tree first.
+         */
+        private void readLegacyFile(Path legacyFile) {
+            long startedAt = System.nanoTime();
+            replaying = true;
+            try (JsonReader reader = new JsonReader(Files.newBufferedReader(legacyFile, StandardCharsets.UTF_8))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("c") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
                         continue;
                     }
-                    if (!e.getValue().isJsonObject()) {
-                        continue;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        readLegacyChest(reader, reader.nextName());
                     }
-                    JsonObject obj = e.getValue().getAsJsonObject();
-                    long t = obj.has("t") ? obj.get("t").getAsLong() : System.currentTimeMillis();
-                    long staleSince = obj.has("s") ? obj.get("s").getAsLong() : 0L;
-                    Set<Item> items = new LinkedHashSet<>();
-                    JsonArray arr = obj.getAsJsonArray("i");
-                    if (arr != null) {
-                        for (JsonElement idEl : arr) {
-                            Identifier id = Identifier.tryParse(idEl.getAsString());
+                    reader.endObject();
+                }
+                reader.endObject();
+                LatchLabel.LOGGER.debug("[ObservedIndex] Read {} in {} ms ({} chests)", legacyFile,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), entries.size());
+            } catch (Exception ex) {
+                LatchLabel.LOGGER.warn("Failed reading observed index {}: {}", legacyFile, ex.getMessage());
+            } finally {
+                replaying = false;
+            }
+        }
+
+        private void readLegacyChest(JsonReader reader, String rawKey) throws IOException {
+            ChestKey key;
+            try {
+                key = ChestKey.fromStringKey(rawKey);
+            } catch (IllegalArgumentException ex) {
+                reader.skipValue();
+                return;
+            }
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                return;
+            }
+            long t = System.currentTimeMillis();
+            long staleSince = 0L;
+            Set<Item> items = new LinkedHashSet<>();
+            int listed = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "t" -> t = reader.nextLong();
+                    case "s" -> staleSince = reader.nextLong();
+                    case "i" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            listed++;
+                            Identifier id = Identifier.tryParse(reader.nextString());
                             if (id == null || !BuiltInRegistries.ITEM.containsKey(id)) {
                                 continue;
                             }
@@ -204,53 +1220,49 @@ public final class ObservedIndexStore {
                                 items.add(item);
                             }
                         }
+                        reader.endArray();
                     }
-                    if (!items.isEmpty()) {
-                        entries.put(key, new Entry(Set.copyOf(items), t, staleSince));
-                    } else if (arr != null && !arr.isEmpty()) {
-                        LatchLabel.LOGGER.warn("[ObservedIndex] All {} items for chest {} missing from registry — entry dropped (mod removed?)",
-                                arr.size(), e.getKey());
-                    }
+                    default -> reader.skipValue();
                 }
-            } catch (Exception ex) {
-                LatchLabel.LOGGER.warn("Failed reading observed index {}: {}", file, ex.getMessage());
+            }
+            reader.endObject();
+            if (!items.isEmpty()) {
+                put(key, new Entry(encode(items), List.of(), t, staleSince));
+            } else if (listed > 0) {
+                LatchLabel.LOGGER.warn("[ObservedIndex] All {} items for chest {} missing from registry — entry dropped (mod removed?)",
+                        listed, rawKey);
             }
         }
 
-        private void saveNow() {
-            if (!dirty) {
-                return;
-            }
-            JsonObject root = new JsonObject();
-            root.addProperty("v", CURRENT_VERSION);
-            JsonObject chests = new JsonObject();
-            for (Map.Entry<ChestKey, Entry> e : entries.entrySet()) {
-                JsonObject obj = new JsonObject();
-                obj.addProperty("t", e.getValue().observedAt());
-                if (e.getValue().stale()) {
-                    obj.addProperty("s", e.getValue().staleSince());
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+
+        private static void writeSnapshot(Path file, List<String> itemNames, List<ObservedContentSet> contentSets,
+                List<Map.Entry<ChestKey, Entry>> entries) throws IOException {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream raw = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw))) {
+                ObservedIndexJournal.writeHeader(out);
+                for (int id = 0; id < itemNames.size(); id++) {
+                    if (itemNames.get(id) != null) {
+                        ObservedIndexJournal.writeDefine(out, id, itemNames.get(id));
+                    }
                 }
-                JsonArray arr = new JsonArray();
-                for (Item item : e.getValue().items()) {
-                    arr.add(BuiltInRegistries.ITEM.getKey(item).toString());
+                for (ObservedContentSet contents : contentSets) {
+                    ObservedIndexJournal.writeContentSet(out, contents.id(), contents.itemIds());
                 }
-                obj.add("i", arr);
-                chests.add(e.getKey().toStringKey(), obj);
-            }
-            root.add("c", chests);
-
-            try {
-                Files.createDirectories(file.getParent());
-                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
-                try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
-                    GSON.toJson(root, writer);
+                for (Map.Entry<ChestKey, Entry> e : entries) {
+                    Entry entry = e.getValue();
+                    ObservedIndexJournal.writeRecord(out, e.getKey(), entry.contents().id(), entry.observedAt(), entry.staleSince());
+                    for (NestedSet nested : entry.nested()) {
+                        ObservedIndexJournal.writeNested(out, e.getKey(), nested.holderItemId(),
+                                nullToEmpty(nested.customName()), nested.contents().id());
+                    }
                 }
-                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
-                lastSaveMs = System.currentTimeMillis();
-                dirty = false;
-            } catch (IOException ex) {
-                LatchLabel.LOGGER.warn("Failed writing observed index {}: {}", file, ex.getMessage());
             }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 }
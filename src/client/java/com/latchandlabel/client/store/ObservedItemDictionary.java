@@ -0,0 +1,146 @@
+package com.latchandlabel.client.store;
+
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-scope item ↔ small-int dictionary for {@link ObservedIndexStore}. Ids are dense, assigned in
+ * first-seen order, and persisted alongside the scope by item identifier rather than registry raw
+ * id, so they survive registry reordering. An id whose identifier no longer resolves (mod removed)
+ * keeps its slot with a {@code null} item so later ids don't shift.
+ *
+ * <p>Not thread-safe; guarded by the owning store's lock.
+ */
+final class ObservedItemDictionary {
+    private final List<String> names = new ArrayList<>();
+    private final List<Item> items = new ArrayList<>();
+    private final Map<Item, Integer> idsByItem = new HashMap<>();
+
+    int size() {
+        return names.size();
+    }
+
+    /** Id for {@code item}, or -1 if it has never been assigned one. */
+    int idOf(Item item) {
+        Integer id = idsByItem.get(item);
+        return id == null ? -1 : id;
+    }
+
+    /** Assigns the next id to {@code item}; caller has checked {@link #idOf} first. */
+    int add(Item item) {
+        int id = names.size();
+        names.add(BuiltInRegistries.ITEM.getKey(item).toString());
+        items.add(item);
+        idsByItem.put(item, id);
+        return id;
+    }
+
+    /** Restores a persisted id → identifier mapping during replay. */
+    void define(int id, String rawItemId) {
+        while (names.size() <= id) {
+            names.add(null);
+            items.add(null);
+        }
+        Item item = resolve(rawItemId);
+        names.set(id, rawItemId);
+        items.set(id, item);
+        if (item != null) {
+            idsByItem.put(item, id);
+        }
+    }
+
+    String name(int id) {
+        return names.get(id);
+    }
+
+    /** Item for {@code id}, or {@code null} if the id is unknown or no longer resolves. */
+    Item item(int id) {
+        return id >= 0 && id < items.size() ? items.get(id) : null;
+    }
+
+    List<String> snapshotNames() {
+        return List.copyOf(names);
+    }
+
+    /** Sorted ids of the assigned items among {@code query}; items never seen in this scope are skipped. */
+    int[] lookup(Set<Item> query) {
+        int[] ids = new int[query.size()];
+        int n = 0;
+        for (Item item : query) {
+            int id = idOf(item);
+            if (id >= 0) {
+                ids[n++] = id;
+            }
+        }
+        int[] result = Arrays.copyOf(ids, n);
+        Arrays.sort(result);
+        return result;
+    }
+
+    Set<Item> decode(int[] ids) {
+        Set<Item> decoded = new LinkedHashSet<>();
+        for (int id : ids) {
+            Item item = item(id);
+            if (item != null) {
+                decoded.add(item);
+            }
+        }
+        return decoded;
+    }
+
+    /** True if two sorted id arrays share an element; a linear merge, no allocation. */
+    static boolean intersects(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                return true;
+            }
+            if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /** Sorted union of two sorted id arrays, by linear merge; returns {@code a} when {@code b} adds nothing. */
+    static int[] union(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j == b.length || (i < a.length && a[i] <= b[j])) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        return n == a.length ? a : Arrays.copyOf(merged, n);
+    }
+
+    private static Item resolve(String rawItemId) {
+        Identifier id = rawItemId == null ? null : Identifier.tryParse(rawItemId);
+        if (id == null || !BuiltInRegistries.ITEM.containsKey(id)) {
+            return null;
+        }
+        Item item = BuiltInRegistries.ITEM.getValue(id);
+        return item == Items.AIR ? null : item;
+    }
+}
@@ -0,0 +1,224 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Chest key → category id map stored as three parallel primitive arrays: interned dimension
+ * index, {@link BlockPos#asLong() packed position} and interned category index. Open addressing
+ * with linear probing and backward-shift deletion, so a tag costs 16 bytes of table (at the load
+ * factor, roughly 24) instead of a {@code HashMap} node, a {@link ChestKey} and a {@link BlockPos}.
+ * Lookups do not allocate; {@link ChestKey}s are only materialized when iterating.
+ *
+ * <p>Not thread-safe; {@link TagStore} guards it with its lock.
+ */
+final class PackedTagMap {
+    private static final int FREE = -1;
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.65f;
+
+    private final Interner<Identifier> dimensions;
+    private final Interner<String> categories;
+    private int[] dimensionIds;
+    private long[] positions;
+    // Category id per slot, FREE for an empty slot.
+    private int[] categoryIds;
+    private int size;
+    private int resizeAt;
+
+    PackedTagMap(Interner<Identifier> dimensions, Interner<String> categories) {
+        this.dimensions = dimensions;
+        this.categories = categories;
+        allocate(MIN_CAPACITY);
+    }
+
+    private PackedTagMap(PackedTagMap source) {
+        this.dimensions = source.dimensions.copy();
+        this.categories = source.categories.copy();
+        this.dimensionIds = source.dimensionIds.clone();
+        this.positions = source.positions.clone();
+        this.categoryIds = source.categoryIds.clone();
+        this.size = source.size;
+        this.resizeAt = source.resizeAt;
+    }
+
+    /**
+     * A copy with its own interners, so nothing the owning store does later touches it. Never
+     * mutated, it can be read from any thread once safely published.
+     */
+    PackedTagMap frozenCopy() {
+        return new PackedTagMap(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    String get(ChestKey key) {
+        int dimensionId = dimensions.idOf(key.dimensionId());
+        if (dimensionId < 0) {
+            return null;
+        }
+        int slot = find(dimensionId, key.pos().asLong());
+        return slot < 0 ? null : categories.valueOf(categoryIds[slot]);
+    }
+
+    /** Sets the key's category and returns the previous one, or null. */
+    String put(ChestKey key, String categoryId) {
+        int dimensionId = dimensions.intern(key.dimensionId());
+        long position = key.pos().asLong();
+        int category = categories.intern(categoryId);
+        int mask = categoryIds.length - 1;
+        int slot = slotFor(dimensionId, position, mask);
+        while (categoryIds[slot] != FREE) {
+            if (dimensionIds[slot] == dimensionId && positions[slot] == position) {
+                String previous = categories.valueOf(categoryIds[slot]);
+                categoryIds[slot] = category;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        dimensionIds[slot] = dimensionId;
+        positions[slot] = position;
+        categoryIds[slot] = category;
+        if (++size > resizeAt) {
+            allocate(categoryIds.length << 1);
+        }
+        return null;
+    }
+
+    /** Removes the key and returns its category, or null if it was absent. */
+    String remove(ChestKey key) {
+        int dimensionId = dimensions.idOf(key.dimensionId());
+        if (dimensionId < 0) {
+            return null;
+        }
+        int slot = find(dimensionId, key.pos().asLong());
+        if (slot < 0) {
+            return null;
+        }
+        String removed = categories.valueOf(categoryIds[slot]);
+        shiftBackFrom(slot);
+        size--;
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(categoryIds, FREE);
+        size = 0;
+    }
+
+    void forEach(BiConsumer<ChestKey, String> action) {
+        for (int slot = 0; slot < categoryIds.length; slot++) {
+            if (categoryIds[slot] != FREE) {
+                action.accept(keyAt(slot), categories.valueOf(categoryIds[slot]));
+            }
+        }
+    }
+
+    /** A mutable {@link HashMap} copy with materialized keys. */
+    Map<ChestKey, String> toMap() {
+        Map<ChestKey, String> result = new HashMap<>(Math.max(MIN_CAPACITY, (int) (size / 0.75f) + 1));
+        forEach(result::put);
+        return result;
+    }
+
+    /** Number of slots, for walking them with {@link #occupied}, {@link #keyAt} and {@link #categoryAt}. */
+    int capacity() {
+        return categoryIds.length;
+    }
+
+    boolean occupied(int slot) {
+        return categoryIds[slot] != FREE;
+    }
+
+    ChestKey keyAt(int slot) {
+        return new ChestKey(dimensions.valueOf(dimensionIds[slot]), BlockPos.of(positions[slot]));
+    }
+
+    String categoryAt(int slot) {
+        return categories.valueOf(categoryIds[slot]);
+    }
+
+    private int find(int dimensionId, long position) {
+        int mask = categoryIds.length - 1;
+        int slot = slotFor(dimensionId, position, mask);
+        while (categoryIds[slot] != FREE) {
+            if (dimensionIds[slot] == dimensionId && positions[slot] == position) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Backward-shift deletion: pulls later members of the probe run into the hole so lookups never need tombstones. */
+    private void shiftBackFrom(int hole) {
+        int mask = categoryIds.length - 1;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (categoryIds[slot] == FREE) {
+                break;
+            }
+            int home = slotFor(dimensionIds[slot], positions[slot], mask);
+            // Move the entry back only if its home does not lie cyclically in (hole, slot].
+            boolean homeAfterHole = hole <= slot ? home > hole && home <= slot : home > hole || home <= slot;
+            if (homeAfterHole) {
+                continue;
+            }
+            dimensionIds[hole] = dimensionIds[slot];
+            positions[hole] = positions[slot];
+            categoryIds[hole] = categoryIds[slot];
+            hole = slot;
+        }
+        categoryIds[hole] = FREE;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldDimensionIds = dimensionIds;
+        long[] oldPositions = positions;
+        int[] oldCategoryIds = categoryIds;
+
+        dimensionIds = new int[capacity];
+        positions = new long[capacity];
+        categoryIds = new int[capacity];
+        Arrays.fill(categoryIds, FREE);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        if (oldCategoryIds == null) {
+            return;
+        }
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCategoryIds.length; i++) {
+            if (oldCategoryIds[i] == FREE) {
+                continue;
+            }
+            int slot = slotFor(oldDimensionIds[i], oldPositions[i], mask);
+            while (categoryIds[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            dimensionIds[slot] = oldDimensionIds[i];
+            positions[slot] = oldPositions[i];
+            categoryIds[slot] = oldCategoryIds[i];
+        }
+    }
+
+    private static int slotFor(int dimensionId, long position, int mask) {
+        long h = position ^ ((long) dimensionId * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,161 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.resources.Identifier;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The read-only tag map of a {@link TagStore.Snapshot}: a frozen {@link PackedTagMap} of the
+ * active scope plus the chests changed since it was frozen. Publishing after a mutation copies
+ * only those changes; the store refreezes the base once they outgrow the square root of the
+ * scope, so a publish costs O(√n) amortized rather than a copy of every tag. Lookups do not
+ * allocate; {@link ChestKey}s are only materialized when iterating.
+ *
+ * <p>A spatial index frozen with the base answers radius queries ({@link #within}) without the
+ * store lock; the few changed chests are checked directly.
+ */
+final class SnapshotTagMap extends AbstractMap<ChestKey, String> {
+    private final PackedTagMap base;
+    private final ChestSpatialIndex baseIndex;
+    // Chests changed since base was frozen: their category now, or null if untagged since.
+    private final Map<ChestKey, String> changes;
+    private final int size;
+    private Set<Map.Entry<ChestKey, String>> entrySet;
+
+    SnapshotTagMap(PackedTagMap base, ChestSpatialIndex baseIndex, Map<ChestKey, String> changes, int size) {
+        this.base = base;
+        this.baseIndex = baseIndex;
+        this.changes = changes;
+        this.size = size;
+    }
+
+    /** The frozen base; shared by consecutive snapshots until the store refreezes. */
+    PackedTagMap base() {
+        return base;
+    }
+
+    /** How many chests this snapshot overlays on its base. */
+    int changeCount() {
+        return changes.size();
+    }
+
+    /** Tags in {@code dimensionId} whose block center is within {@code radius} of (x, y, z). */
+    Map<ChestKey, String> within(Identifier dimensionId, double x, double y, double z, double radius) {
+        Map<ChestKey, String> result = new LinkedHashMap<>();
+        for (ChestKey key : baseIndex.within(dimensionId, x, y, z, radius)) {
+            if (!changes.containsKey(key)) {
+                result.put(key, base.get(key));
+            }
+        }
+        double radiusSq = radius * radius;
+        changes.forEach((key, categoryId) -> {
+            if (categoryId != null && key.dimensionId().equals(dimensionId)
+                    && ChestSpatialIndex.distanceSq(key, x, y, z) <= radiusSq) {
+                result.put(key, categoryId);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof ChestKey chestKey)) {
+            return null;
+        }
+        return changes.containsKey(chestKey) ? changes.get(chestKey) : base.get(chestKey);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super ChestKey, ? super String> action) {
+        base.forEach((key, categoryId) -> {
+            if (!changes.containsKey(key)) {
+                action.accept(key, categoryId);
+            }
+        });
+        changes.forEach((key, categoryId) -> {
+            if (categoryId != null) {
+                action.accept(key, categoryId);
+            }
+        });
+    }
+
+    @Override
+    public Set<Map.Entry<ChestKey, String>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<ChestKey, String>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /** Base slots not overridden by a change, then the changes that still carry a tag. */
+    private final class EntryIterator implements Iterator<Map.Entry<ChestKey, String>> {
+        private final Iterator<Map.Entry<ChestKey, String>> changed = changes.entrySet().iterator();
+        private int slot;
+        private Map.Entry<ChestKey, String> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<ChestKey, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<ChestKey, String> result = next;
+            next = null;
+            return result;
+        }
+
+        private Map.Entry<ChestKey, String> advance() {
+            while (slot < base.capacity()) {
+                int current = slot++;
+                if (base.occupied(current)) {
+                    ChestKey key = base.keyAt(current);
+                    if (!changes.containsKey(key)) {
+                        return Map.entry(key, base.categoryAt(current));
+                    }
+                }
+            }
+            while (changed.hasNext()) {
+                Map.Entry<ChestKey, String> change = changed.next();
+                if (change.getValue() != null) {
+                    return Map.entry(change.getKey(), change.getValue());
+                }
+            }
+            return null;
+        }
+    }
+}
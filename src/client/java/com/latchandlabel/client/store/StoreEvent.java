@@ -0,0 +1,54 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.model.Category;
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.resources.Identifier;
+
+/**
+ * A single change made to {@link TagStore}, {@link CategoryStore} or the item-category mapping
+ * service, posted to a {@link StoreEventBus}. Each event carries the delta, so subscribers can
+ * update what they derive from the stores instead of rebuilding it.
+ */
+public sealed interface StoreEvent {
+    /** A chest's tag in {@code scopeId} changed. {@code oldCategoryId} is null when it was untagged, {@code newCategoryId} when it was cleared. */
+    record TagChanged(String scopeId, ChestKey key, String oldCategoryId, String newCategoryId) implements StoreEvent {
+        public boolean cleared() {
+            return newCategoryId == null;
+        }
+    }
+
+    /** The last-used category of {@code scopeId} changed; {@code categoryId} is null when it was cleared. */
+    record LastUsedCategoryChanged(String scopeId, String categoryId) implements StoreEvent {
+    }
+
+    /** A category was created ({@code before} null), updated, or deleted ({@code after} null). */
+    record CategoryChanged(String categoryId, Category before, Category after) implements StoreEvent {
+    }
+
+    /** The whole category list was replaced, e.g. by a load or a book import. */
+    record CategoriesReplaced() implements StoreEvent {
+    }
+
+    /**
+     * An item's override changed. {@code newCategoryId} is null when the override was removed;
+     * {@code blocked} is true when the item's default mapping is now suppressed as well.
+     */
+    record OverrideChanged(Identifier itemId, String oldCategoryId, String newCategoryId, boolean blocked)
+            implements StoreEvent {
+    }
+
+    /**
+     * The active scope changed or was reloaded wholesale. Anything derived from the previous
+     * scope's tags, categories or overrides should be dropped.
+     */
+    record ScopeSwitched(String previousScopeId, String scopeId) implements StoreEvent {
+    }
+
+    /**
+     * The rest of {@code scopeId} finished loading after {@link ScopeSwitched} and {@code added}
+     * tags were merged in; they are not edits. Anything derived from the scope's tags should be
+     * refreshed.
+     */
+    record TagsLoaded(String scopeId, int added) implements StoreEvent {
+    }
+}
@@ -0,0 +1,55 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.LatchLabel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Collects {@link StoreEvent}s from the stores and hands them to subscribers in batches.
+ * Stores {@link #post} from whatever thread mutated them, usually while holding their own lock;
+ * {@link #flush} runs once at the end of every client tick and delivers everything posted since
+ * the last flush, in posting order, on the client thread. A tick that changed nothing costs one
+ * empty check.
+ */
+public final class StoreEventBus {
+    private final List<Consumer<List<StoreEvent>>> subscribers = new CopyOnWriteArrayList<>();
+    private final Object pendingLock = new Object();
+    private List<StoreEvent> pending = new ArrayList<>();
+
+    /** Registers {@code subscriber} for every later batch. Returns a handle that unsubscribes it. */
+    public Runnable subscribe(Consumer<List<StoreEvent>> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public void post(StoreEvent event) {
+        Objects.requireNonNull(event, "event");
+        synchronized (pendingLock) {
+            pending.add(event);
+        }
+    }
+
+    /** Delivers the events posted since the last flush. A failing subscriber does not stop the others. */
+    public void flush() {
+        List<StoreEvent> batch;
+        synchronized (pendingLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = List.copyOf(pending);
+            pending = new ArrayList<>();
+        }
+        for (Consumer<List<StoreEvent>> subscriber : subscribers) {
+            try {
+                subscriber.accept(batch);
+            } catch (Exception e) {
+                LatchLabel.LOGGER.error("[StoreEvents] subscriber failed on a batch of {} events", batch.size(), e);
+            }
+        }
+    }
+}
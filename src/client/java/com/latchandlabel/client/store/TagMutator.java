@@ -0,0 +1,22 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.model.ChestKey;
+
+import java.util.Optional;
+
+/**
+ * Mutations of the active scope applied inside {@link TagStore#batch}. Each method behaves like
+ * its {@link TagStore} counterpart, but the effects are published once, when the batch commits,
+ * and undone if the batch throws. Only valid while the batch callback is running.
+ */
+public interface TagMutator {
+    /** The key's tag as of the changes made so far in this batch. */
+    Optional<String> getTag(ChestKey chestKey);
+
+    /** Tags the key and makes {@code categoryId} the last-used category, like {@link TagStore#setTag}. */
+    void setTag(ChestKey chestKey, String categoryId);
+
+    boolean clearTag(ChestKey chestKey);
+
+    void setLastUsedCategoryId(String categoryId);
+}
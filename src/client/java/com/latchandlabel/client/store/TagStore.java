@@ -3,33 +3,94 @@ package com.latchandlabel.client.store;
 import com.latchandlabel.client.LatchLabel;
 import com.latchandlabel.client.data.ScopeUtil;
 import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.resources.Identifier;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * In-memory store for container-to-category tag mappings, organized by scope.
  * Scopes allow per-world/server isolation of tags. Normal reads use the active
  * scope only; fallback scopes are loaded by the data manager for migration.
- * All public methods are synchronized for thread safety.
+ * Mutations are synchronized for thread safety.
+ *
+ * <p>Reads of the active scope go through an immutable {@link Snapshot} published via a volatile
+ * reference and replaced when a mutation touches the active scope's tags, so the per-frame and
+ * per-tick readers neither lock nor copy. Its tags are a {@link SnapshotTagMap}: a frozen copy of
+ * the packed scope shared between snapshots, plus the chests changed since it was frozen, so a
+ * publish does not copy the whole scope. Its {@link Snapshot#version() version} lets callers
+ * cache data derived from it.
+ *
+ * <p>Tags are held in {@link PackedTagMap}s keyed by interned dimension and packed position with
+ * interned category ids, so a tag costs a few primitive slots and lookups do not allocate; the
+ * public API stays {@link ChestKey}-based.
+ *
+ * <p>Each scope also keeps a category → keys reverse index ({@link #keysForCategory}), so finding
+ * or deleting one category's containers costs the number of matches.
+ *
+ * <p>The active scope's keys are mirrored in a {@link ChestSpatialIndex}, so radius lookups
+ * ({@link #tagsWithin}, {@link #nearestTags}) cost the area searched rather than the tag count.
+ * Each frozen snapshot base gets a copy of it, so {@link Snapshot#tagsWithin} serves per-frame
+ * radius queries without the lock, which a background scope load may hold for a while.
+ *
+ * <p>Every change is posted to the {@link StoreEventBus} as a {@link StoreEvent}: one
+ * {@link StoreEvent.TagChanged} per chest, and a {@link StoreEvent.ScopeSwitched} when the active
+ * scope changes or is reloaded.
+ *
+ * <p>A scope may be switched to before it is read ({@link #expectLoadedTags}, {@link #isLoading}),
+ * then loaded with {@link #replaceAllScopes}, possibly for the player's dimension only, and
+ * completed by {@link #mergeLoadedTags}. Changes made meanwhile win over what is read.
  */
 public final class TagStore {
     public static final String DEFAULT_SCOPE_ID = "global";
+    // Changes a snapshot overlays on its frozen base before the base is refrozen, at the least.
+    private static final int MIN_UNFROZEN_CHANGES = 64;
 
-    private final Map<String, Map<ChestKey, String>> tagsByScope = new HashMap<>();
+    private final Interner<Identifier> dimensions = new Interner<>();
+    private final Interner<String> categories = new Interner<>();
+    private final Map<String, PackedTagMap> tagsByScope = new HashMap<>();
     private final Map<String, String> lastUsedCategoryIdByScope = new HashMap<>();
-    private Runnable changeListener = () -> {
-    };
+    // scope -> category id -> keys tagged with it; kept in step with tagsByScope.
+    private final Map<String, Map<String, PackedTagMap>> keysByCategoryByScope = new HashMap<>();
+    private final StoreEventBus events;
     private String activeScopeId = DEFAULT_SCOPE_ID;
     private List<String> activeReadScopeIds = List.of(DEFAULT_SCOPE_ID);
+    private final ChestSpatialIndex activeIndex = new ChestSpatialIndex();
+    private volatile Snapshot published = new Snapshot(0L, DEFAULT_SCOPE_ID, Map.of());
+    // The active scope as last frozen for snapshots (null: refreeze on the next publish), its keys'
+    // spatial index as of then, and the chests changed in it since.
+    private PackedTagMap frozenActiveTags;
+    private ChestSpatialIndex frozenActiveIndex;
+    private final Set<ChestKey> changedSinceFrozen = new HashSet<>();
+    // Between expectLoadedTags and mergeLoadedTags: scopes still being read, with the keys and
+    // categories changed in them meanwhile, which late tags must not overwrite or bring back.
+    private final Map<String, LoadTracking> loadsInProgress = new HashMap<>();
+
+    public TagStore() {
+        this(new StoreEventBus());
+    }
+
+    public TagStore(StoreEventBus events) {
+        this.events = Objects.requireNonNull(events, "events");
+    }
+
+    /** The bus this store posts its changes to. */
+    public StoreEventBus events() {
+        return events;
+    }
 
     public synchronized Optional<String> getTag(ChestKey chestKey) {
         Objects.requireNonNull(chestKey, "chestKey");
-        Map<ChestKey, String> tags = tagsByScope.get(activeScopeId);
+        PackedTagMap tags = tagsByScope.get(activeScopeId);
         if (tags == null) {
             return Optional.empty();
         }
@@ -37,52 +98,108 @@ public final class TagStore {
     }
 
     public synchronized void setTag(ChestKey chestKey, String categoryId) {
-        Objects.requireNonNull(chestKey, "chestKey");
-        Objects.requireNonNull(categoryId, "categoryId");
-
-        if (categoryId.isBlank()) {
-            throw new IllegalArgumentException("categoryId must not be blank");
-        }
-
+        validateTag(chestKey, categoryId);
         LatchLabel.LOGGER.debug("[TagStore] setTag key={} category={} scope={}", chestKey, categoryId, activeScopeId);
-        Map<ChestKey, String> tags = tagsForActiveScope();
-        String previousCategoryId = tags.put(chestKey, categoryId);
-        boolean changed = !Objects.equals(previousCategoryId, categoryId);
-        String previousLastUsedCategoryId = lastUsedCategoryIdByScope.put(activeScopeId, categoryId);
-        if (!Objects.equals(previousLastUsedCategoryId, categoryId)) {
-            changed = true;
+        String previousCategoryId = putActiveTag(chestKey, categoryId);
+        if (!Objects.equals(previousCategoryId, categoryId)) {
+            publish();
+            events.post(new StoreEvent.TagChanged(activeScopeId, chestKey, previousCategoryId, categoryId));
         }
-        if (changed) {
-            notifyChanged();
+        String previousLastUsedCategoryId = putActiveLastUsed(categoryId);
+        if (!Objects.equals(previousLastUsedCategoryId, categoryId)) {
+            events.post(new StoreEvent.LastUsedCategoryChanged(activeScopeId, categoryId));
         }
     }
 
     public synchronized boolean clearTag(ChestKey chestKey) {
         Objects.requireNonNull(chestKey, "chestKey");
         LatchLabel.LOGGER.debug("[TagStore] clearTag key={}", chestKey);
-        Map<ChestKey, String> tags = tagsByScope.get(activeScopeId);
-        boolean removed = tags != null && tags.remove(chestKey) != null;
-        if (removed) {
-            notifyChanged();
+        String removedCategoryId = removeActiveTag(chestKey);
+        if (removedCategoryId == null) {
+            return false;
         }
-        return removed;
+        publish();
+        events.post(new StoreEvent.TagChanged(activeScopeId, chestKey, removedCategoryId, null));
+        return true;
     }
 
-    /** Returns a snapshot of tags in the active write scope only. */
-    public synchronized Map<ChestKey, String> snapshotTags() {
-        return snapshotActiveTags();
+    /**
+     * Applies {@code changes} to the active scope as one update: under one lock hold, with one
+     * snapshot publish and only the net per-chest {@link StoreEvent}s posted at the end. If
+     * {@code changes} throws, every change it made is undone, nothing is published, and the
+     * exception propagates.
+     */
+    public synchronized void batch(Consumer<TagMutator> changes) {
+        Objects.requireNonNull(changes, "changes");
+        Batch batch = new Batch();
+        try {
+            changes.accept(batch);
+        } catch (RuntimeException | Error e) {
+            batch.rollback();
+            throw e;
+        } finally {
+            batch.open = false;
+        }
+        batch.commit();
     }
 
-    public synchronized Map<ChestKey, String> snapshotActiveTags() {
-        return snapshotTagsForScope(activeScopeId);
+    /** Keys in the active scope tagged with {@code categoryId}; a copy sized by the matches, not the scope. */
+    public synchronized Set<ChestKey> keysForCategory(String categoryId) {
+        Map<String, PackedTagMap> byCategory = keysByCategoryByScope.get(activeScopeId);
+        PackedTagMap keys = byCategory == null || categoryId == null ? null : byCategory.get(categoryId);
+        if (keys == null) {
+            return Set.of();
+        }
+        List<ChestKey> result = new ArrayList<>(keys.size());
+        keys.forEach((key, unused) -> result.add(key));
+        return Set.copyOf(result);
     }
 
-    public synchronized Map<ChestKey, String> snapshotTagsForScope(String scopeId) {
-        Map<ChestKey, String> tags = tagsByScope.get(normalizeScopeId(scopeId));
+    /** Returns a snapshot of tags in the active write scope only. Lock-free; never copies. */
+    public Map<ChestKey, String> snapshotTags() {
+        return published.tags();
+    }
+
+    public Map<ChestKey, String> snapshotActiveTags() {
+        return published.tags();
+    }
+
+    /** The current published snapshot of the active scope. Lock-free; never copies. */
+    public Snapshot snapshot() {
+        return published;
+    }
+
+    /** Version of the published snapshot; changes whenever the active scope's tags (or the scope) change. */
+    public long version() {
+        return published.version();
+    }
+
+    public Map<ChestKey, String> snapshotTagsForScope(String scopeId) {
+        String normalizedScopeId = normalizeScopeId(scopeId);
+        Snapshot current = published;
+        if (current.scopeId().equals(normalizedScopeId)) {
+            return current.tags();
+        }
+        return copyTagsForScope(normalizedScopeId);
+    }
+
+    private synchronized Map<ChestKey, String> copyTagsForScope(String scopeId) {
+        PackedTagMap tags = tagsByScope.get(scopeId);
         if (tags == null || tags.isEmpty()) {
             return Map.of();
         }
-        return Map.copyOf(tags);
+        return Map.copyOf(tags.toMap());
+    }
+
+    /** Active-scope tags in {@code dimensionId} whose block center is within {@code radius} of (x, y, z). */
+    public synchronized Map<ChestKey, String> tagsWithin(Identifier dimensionId, double x, double y, double z, double radius) {
+        return tagsFor(activeIndex.within(dimensionId, x, y, z, radius));
+    }
+
+    /** Up to {@code limit} active-scope tags nearest to (x, y, z) within {@code maxRadius}, closest first. */
+    public synchronized Map<ChestKey, String> nearestTags(
+            Identifier dimensionId, double x, double y, double z, int limit, double maxRadius) {
+        return tagsFor(activeIndex.nearest(dimensionId, x, y, z, limit, maxRadius));
     }
 
     public synchronized void replaceAll(Map<ChestKey, String> tags, String lastUsedCategoryId) {
@@ -112,44 +229,46 @@ public final class TagStore {
 
     public synchronized void setLastUsedCategoryId(String categoryId) {
         String nextValue = (categoryId == null || categoryId.isBlank()) ? null : categoryId;
-        String previousValue = lastUsedCategoryIdByScope.get(activeScopeId);
+        String previousValue = putActiveLastUsed(nextValue);
         if (Objects.equals(previousValue, nextValue)) {
             return;
         }
-
-        if (nextValue == null) {
-            lastUsedCategoryIdByScope.remove(activeScopeId);
-        } else {
-            lastUsedCategoryIdByScope.put(activeScopeId, nextValue);
-        }
-        notifyChanged();
-    }
-
-    public synchronized void setChangeListener(Runnable changeListener) {
-        this.changeListener = Objects.requireNonNull(changeListener, "changeListener");
+        events.post(new StoreEvent.LastUsedCategoryChanged(activeScopeId, nextValue));
     }
 
     /** Removes all tag entries and last-used references for the given category across all scopes. */
     public synchronized void clearCategoryReferences(String categoryId) {
         Objects.requireNonNull(categoryId, "categoryId");
         LatchLabel.LOGGER.debug("[TagStore] clearCategoryReferences category={}", categoryId);
+        loadsInProgress.values().forEach(load -> load.cleared().add(categoryId));
 
-        boolean changed = false;
-        for (Map<ChestKey, String> tags : tagsByScope.values()) {
-            if (tags.entrySet().removeIf(entry -> categoryId.equals(entry.getValue()))) {
-                changed = true;
+        boolean activeChanged = false;
+        for (Map.Entry<String, Map<String, PackedTagMap>> scope : keysByCategoryByScope.entrySet()) {
+            PackedTagMap keys = scope.getValue().remove(categoryId);
+            if (keys == null) {
+                continue;
             }
+            boolean active = scope.getKey().equals(activeScopeId);
+            PackedTagMap tags = tagsByScope.get(scope.getKey());
+            keys.forEach((key, unused) -> {
+                tags.remove(key);
+                if (active) {
+                    activeIndex.remove(key);
+                    changedSinceFrozen.add(key);
+                }
+                events.post(new StoreEvent.TagChanged(scope.getKey(), key, categoryId, null));
+            });
+            activeChanged |= active;
+        }
+        if (activeChanged) {
+            publish();
         }
         for (Map.Entry<String, String> entry : Map.copyOf(lastUsedCategoryIdByScope).entrySet()) {
             if (Objects.equals(entry.getValue(), categoryId)) {
                 lastUsedCategoryIdByScope.remove(entry.getKey());
-                changed = true;
+                events.post(new StoreEvent.LastUsedCategoryChanged(entry.getKey(), null));
             }
         }
-
-        if (changed) {
-            notifyChanged();
-        }
     }
 
     public synchronized void setActiveScopeId(String scopeId) {
@@ -162,8 +281,13 @@ public final class TagStore {
         if (normalizedScopeId == null) {
             normalizedScopeId = DEFAULT_SCOPE_ID;
         }
+        String previousScopeId = activeScopeId;
         activeScopeId = normalizedScopeId;
-        tagsByScope.computeIfAbsent(activeScopeId, unused -> new HashMap<>());
+        tagsForActiveScope();
+        if (!previousScopeId.equals(activeScopeId)) {
+            rebuildActiveViews();
+            events.post(new StoreEvent.ScopeSwitched(previousScopeId, activeScopeId));
+        }
 
         LinkedHashSet<String> readScopes = new LinkedHashSet<>();
         readScopes.add(activeScopeId);
@@ -191,19 +315,34 @@ public final class TagStore {
         Objects.requireNonNull(tagsByScope, "tagsByScope");
         Objects.requireNonNull(lastUsedCategoryIdByScope, "lastUsedCategoryIdByScope");
 
+        String loadingScopeId = normalizeScopeId(activeScopeId);
+        LoadTracking load = loadingScopeId == null ? null : loadsInProgress.get(loadingScopeId);
+        loadsInProgress.clear();
+        Map<ChestKey, String> changes = new HashMap<>();
+        if (load != null) {
+            loadsInProgress.put(loadingScopeId, load);
+            PackedTagMap current = this.tagsByScope.get(loadingScopeId);
+            for (ChestKey key : load.changed()) {
+                changes.put(key, current == null ? null : current.get(key));
+            }
+        }
+
         this.tagsByScope.clear();
+        this.keysByCategoryByScope.clear();
         for (Map.Entry<String, Map<ChestKey, String>> entry : tagsByScope.entrySet()) {
             String scopeId = normalizeScopeId(entry.getKey());
             if (scopeId == null) {
                 continue;
             }
+            PackedTagMap packed = new PackedTagMap(dimensions, categories);
             Map<ChestKey, String> scopeTags = entry.getValue();
-            if (scopeTags == null || scopeTags.isEmpty()) {
-                this.tagsByScope.put(scopeId, new HashMap<>());
-                continue;
+            if (scopeTags != null) {
+                scopeTags.forEach(packed::put);
             }
-            this.tagsByScope.put(scopeId, new HashMap<>(scopeTags));
+            this.tagsByScope.put(scopeId, packed);
         }
+        this.tagsByScope.forEach((scopeId, scopeTags) ->
+                scopeTags.forEach((key, categoryId) -> indexCategory(scopeId, key, categoryId)));
 
         this.lastUsedCategoryIdByScope.clear();
         for (Map.Entry<String, String> entry : lastUsedCategoryIdByScope.entrySet()) {
@@ -218,11 +357,16 @@ public final class TagStore {
             this.lastUsedCategoryIdByScope.put(scopeId, categoryId);
         }
 
+        String previousScopeId = this.activeScopeId;
         this.activeScopeId = normalizeScopeId(activeScopeId);
         if (this.activeScopeId == null) {
             this.activeScopeId = DEFAULT_SCOPE_ID;
         }
-        this.tagsByScope.computeIfAbsent(this.activeScopeId, unused -> new HashMap<>());
+        tagsForActiveScope();
+        if (load != null) {
+            reapplyChangesDuringLoad(load, changes);
+        }
+        rebuildActiveViews();
 
         LinkedHashSet<String> readScopes = new LinkedHashSet<>();
         readScopes.add(this.activeScopeId);
@@ -236,16 +380,72 @@ public final class TagStore {
         }
         this.activeReadScopeIds = List.copyOf(readScopes);
 
-        int totalTags = this.tagsByScope.values().stream().mapToInt(Map::size).sum();
+        int totalTags = this.tagsByScope.values().stream().mapToInt(PackedTagMap::size).sum();
         LatchLabel.LOGGER.info("[TagStore] replaceAllScopes: {} scopes, {} total tags, active={}",
                 this.tagsByScope.size(), totalTags, this.activeScopeId);
-        notifyChanged();
+        events.post(new StoreEvent.ScopeSwitched(previousScopeId, this.activeScopeId));
+    }
+
+    /**
+     * Marks {@code scopeId} as loading: from now until {@link #mergeLoadedTags}, changed chests
+     * and cleared categories in it are remembered, and both a {@link #replaceAllScopes} of it and
+     * the merge keep them over what was read from disk. Calling it again for the same scope keeps
+     * what was remembered so far.
+     */
+    public synchronized void expectLoadedTags(String scopeId) {
+        String normalizedScopeId = normalizeScopeId(scopeId);
+        if (normalizedScopeId != null) {
+            loadsInProgress.computeIfAbsent(normalizedScopeId, unused -> new LoadTracking(new HashSet<>(), new HashSet<>()));
+        }
+    }
+
+    /** Whether the active scope is still being read from disk, so reads may be missing tags. */
+    public synchronized boolean isLoading() {
+        return loadsInProgress.containsKey(activeScopeId);
+    }
+
+    /**
+     * Adds the rest of a scope announced by {@link #expectLoadedTags}, skipping chests that are
+     * already tagged, were changed since, or carry a category cleared since. Returns how many tags
+     * were added, or -1 if the scope was replaced meanwhile and nothing was merged.
+     */
+    public synchronized int mergeLoadedTags(String scopeId, Map<ChestKey, String> tags) {
+        String normalizedScopeId = normalizeScopeId(scopeId);
+        LoadTracking load = normalizedScopeId == null ? null : loadsInProgress.remove(normalizedScopeId);
+        if (load == null) {
+            return -1;
+        }
+        PackedTagMap scopeTags = tagsByScope.computeIfAbsent(normalizedScopeId,
+                unused -> new PackedTagMap(dimensions, categories));
+        boolean active = normalizedScopeId.equals(activeScopeId);
+        int added = 0;
+        for (Map.Entry<ChestKey, String> entry : tags.entrySet()) {
+            ChestKey key = entry.getKey();
+            if (load.changed().contains(key) || load.cleared().contains(entry.getValue())
+                    || scopeTags.get(key) != null) {
+                continue;
+            }
+            scopeTags.put(key, entry.getValue());
+            indexCategory(normalizedScopeId, key, entry.getValue());
+            if (active) {
+                activeIndex.add(key);
+                changedSinceFrozen.add(key);
+            }
+            added++;
+        }
+        if (active && added > 0) {
+            publish();
+        }
+        LatchLabel.LOGGER.debug("[TagStore] mergeLoadedTags: {} of {} tags added to scope {}",
+                added, tags.size(), normalizedScopeId);
+        events.post(new StoreEvent.TagsLoaded(normalizedScopeId, added));
+        return added;
     }
 
     public synchronized Map<String, Map<ChestKey, String>> snapshotAllTagsByScope() {
         Map<String, Map<ChestKey, String>> result = new HashMap<>();
-        for (Map.Entry<String, Map<ChestKey, String>> entry : tagsByScope.entrySet()) {
-            result.put(entry.getKey(), Map.copyOf(entry.getValue()));
+        for (Map.Entry<String, PackedTagMap> entry : tagsByScope.entrySet()) {
+            result.put(entry.getKey(), Map.copyOf(entry.getValue().toMap()));
         }
         return Map.copyOf(result);
     }
@@ -254,15 +454,227 @@ public final class TagStore {
         return Map.copyOf(lastUsedCategoryIdByScope);
     }
 
-    private Map<ChestKey, String> tagsForActiveScope() {
-        return tagsByScope.computeIfAbsent(activeScopeId, unused -> new HashMap<>());
+    private Map<ChestKey, String> tagsFor(List<ChestKey> keys) {
+        PackedTagMap tags = tagsForActiveScope();
+        Map<ChestKey, String> result = new LinkedHashMap<>();
+        for (ChestKey key : keys) {
+            String categoryId = tags.get(key);
+            if (categoryId != null) {
+                result.put(key, categoryId);
+            }
+        }
+        return result;
+    }
+
+    private static void validateTag(ChestKey chestKey, String categoryId) {
+        Objects.requireNonNull(chestKey, "chestKey");
+        Objects.requireNonNull(categoryId, "categoryId");
+        if (categoryId.isBlank()) {
+            throw new IllegalArgumentException("categoryId must not be blank");
+        }
     }
 
-    private static String normalizeScopeId(String scopeId) {
-        return ScopeUtil.normalizeScopeId(scopeId, DEFAULT_SCOPE_ID);
+    /** Tags the key in the active scope and keeps the indexes in step. Returns the previous category. Caller holds the lock. */
+    private String putActiveTag(ChestKey chestKey, String categoryId) {
+        noteChangedDuringLoad(chestKey);
+        changedSinceFrozen.add(chestKey);
+        String previousCategoryId = tagsForActiveScope().put(chestKey, categoryId);
+        activeIndex.add(chestKey);
+        if (!Objects.equals(previousCategoryId, categoryId)) {
+            unindexCategory(activeScopeId, chestKey, previousCategoryId);
+            indexCategory(activeScopeId, chestKey, categoryId);
+        }
+        return previousCategoryId;
+    }
+
+    /** Untags the key in the active scope. Returns its category, or null if it had none. Caller holds the lock. */
+    private String removeActiveTag(ChestKey chestKey) {
+        noteChangedDuringLoad(chestKey);
+        changedSinceFrozen.add(chestKey);
+        PackedTagMap tags = tagsByScope.get(activeScopeId);
+        String removedCategoryId = tags == null ? null : tags.remove(chestKey);
+        if (removedCategoryId != null) {
+            unindexCategory(activeScopeId, chestKey, removedCategoryId);
+            activeIndex.remove(chestKey);
+        }
+        return removedCategoryId;
     }
 
-    private void notifyChanged() {
-        changeListener.run();
+    /** Puts changes made while the active scope was loading back over the freshly loaded tags. Caller holds the lock. */
+    private void reapplyChangesDuringLoad(LoadTracking load, Map<ChestKey, String> changes) {
+        for (String categoryId : load.cleared()) {
+            Map<String, PackedTagMap> byCategory = keysByCategoryByScope.get(activeScopeId);
+            PackedTagMap keys = byCategory == null ? null : byCategory.remove(categoryId);
+            if (keys != null) {
+                PackedTagMap tags = tagsForActiveScope();
+                keys.forEach((key, unused) -> tags.remove(key));
+            }
+        }
+        changes.forEach((key, categoryId) -> {
+            if (categoryId == null) {
+                removeActiveTag(key);
+            } else {
+                putActiveTag(key, categoryId);
+            }
+        });
+    }
+
+    private void noteChangedDuringLoad(ChestKey chestKey) {
+        LoadTracking load = loadsInProgress.get(activeScopeId);
+        if (load != null) {
+            load.changed().add(chestKey);
+        }
+    }
+
+    private String putActiveLastUsed(String categoryId) {
+        return categoryId == null
+                ? lastUsedCategoryIdByScope.remove(activeScopeId)
+                : lastUsedCategoryIdByScope.put(activeScopeId, categoryId);
+    }
+
+    /** Re-derives the spatial index and published snapshot after the active scope or all of its tags changed. */
+    private void rebuildActiveViews() {
+        activeIndex.clear();
+        tagsForActiveScope().forEach((key, unused) -> activeIndex.add(key));
+        frozenActiveTags = null;
+        publish();
+    }
+
+    private void indexCategory(String scopeId, ChestKey key, String categoryId) {
+        keysByCategoryByScope.computeIfAbsent(scopeId, unused -> new HashMap<>())
+                .computeIfAbsent(categoryId, unused -> new PackedTagMap(dimensions, categories))
+                .put(key, categoryId);
+    }
+
+    private void unindexCategory(String scopeId, ChestKey key, String categoryId) {
+        Map<String, PackedTagMap> byCategory = categoryId == null ? null : keysByCategoryByScope.get(scopeId);
+        PackedTagMap keys = byCategory == null ? null : byCategory.get(categoryId);
+        if (keys != null && keys.remove(key) != null && keys.isEmpty()) {
+            byCategory.remove(categoryId);
+        }
+    }
+
+    /**
+     * Swaps in a fresh snapshot of the active scope: the frozen base plus the chests changed since,
+     * refreezing the base first once those outgrow the square root of the scope. That keeps a
+     * publish at O(√n) amortized. Caller holds the lock.
+     */
+    private void publish() {
+        PackedTagMap tags = tagsForActiveScope();
+        int refreezeAt = Math.max(MIN_UNFROZEN_CHANGES, (int) Math.sqrt(tags.size()));
+        if (frozenActiveTags == null || changedSinceFrozen.size() > refreezeAt) {
+            frozenActiveTags = tags.frozenCopy();
+            frozenActiveIndex = activeIndex.copy();
+            changedSinceFrozen.clear();
+        }
+        Map<ChestKey, String> changes = new HashMap<>();
+        for (ChestKey key : changedSinceFrozen) {
+            changes.put(key, tags.get(key));
+        }
+        published = new Snapshot(published.version() + 1L, activeScopeId,
+                new SnapshotTagMap(frozenActiveTags, frozenActiveIndex, changes, tags.size()));
+    }
+
+    private PackedTagMap tagsForActiveScope() {
+        return tagsByScope.computeIfAbsent(activeScopeId, unused -> new PackedTagMap(dimensions, categories));
+    }
+
+    /**
+     * The mutator handed to {@link #batch}. Remembers the value each chest (and the last-used
+     * category) had before its first change, which is both the undo log and what the net
+     * events are diffed against.
+     */
+    private final class Batch implements TagMutator {
+        private final Map<ChestKey, String> originalTags = new LinkedHashMap<>();
+        private final String originalLastUsed = lastUsedCategoryIdByScope.get(activeScopeId);
+        private boolean open = true;
+
+        @Override
+        public Optional<String> getTag(ChestKey chestKey) {
+            Objects.requireNonNull(chestKey, "chestKey");
+            ensureOpen();
+            return Optional.ofNullable(tagsForActiveScope().get(chestKey));
+        }
+
+        @Override
+        public void setTag(ChestKey chestKey, String categoryId) {
+            validateTag(chestKey, categoryId);
+            ensureOpen();
+            String previousCategoryId = putActiveTag(chestKey, categoryId);
+            originalTags.putIfAbsent(chestKey, previousCategoryId);
+            putActiveLastUsed(categoryId);
+        }
+
+        @Override
+        public boolean clearTag(ChestKey chestKey) {
+            Objects.requireNonNull(chestKey, "chestKey");
+            ensureOpen();
+            String removedCategoryId = removeActiveTag(chestKey);
+            if (removedCategoryId == null) {
+                return false;
+            }
+            originalTags.putIfAbsent(chestKey, removedCategoryId);
+            return true;
+        }
+
+        @Override
+        public void setLastUsedCategoryId(String categoryId) {
+            ensureOpen();
+            putActiveLastUsed(categoryId == null || categoryId.isBlank() ? null : categoryId);
+        }
+
+        private void ensureOpen() {
+            if (!open) {
+                throw new IllegalStateException("TagMutator used after its batch ended");
+            }
+        }
+
+        private void rollback() {
+            originalTags.forEach((key, categoryId) -> {
+                if (categoryId == null) {
+                    removeActiveTag(key);
+                } else {
+                    putActiveTag(key, categoryId);
+                }
+            });
+            putActiveLastUsed(originalLastUsed);
+            LatchLabel.LOGGER.debug("[TagStore] batch rolled back {} tag changes", originalTags.size());
+        }
+
+        private void commit() {
+            PackedTagMap tags = tagsForActiveScope();
+            boolean tagsChanged = false;
+            for (Map.Entry<ChestKey, String> entry : originalTags.entrySet()) {
+                String current = tags.get(entry.getKey());
+                if (!Objects.equals(entry.getValue(), current)) {
+                    events.post(new StoreEvent.TagChanged(activeScopeId, entry.getKey(), entry.getValue(), current));
+                    tagsChanged = true;
+                }
+            }
+            if (tagsChanged) {
+                publish();
+            }
+            String lastUsed = lastUsedCategoryIdByScope.get(activeScopeId);
+            if (!Objects.equals(originalLastUsed, lastUsed)) {
+                events.post(new StoreEvent.LastUsedCategoryChanged(activeScopeId, lastUsed));
+            }
+        }
+    }
+
+    /** Immutable view of the active scope's tags as of {@code version}. */
+    public record Snapshot(long version, String scopeId, Map<ChestKey, String> tags) {
+        /** {@link TagStore#tagsWithin} as of this snapshot, for per-frame readers that must not take the store lock. */
+        public Map<ChestKey, String> tagsWithin(Identifier dimensionId, double x, double y, double z, double radius) {
+            return tags instanceof SnapshotTagMap snapshotTags
+                    ? snapshotTags.within(dimensionId, x, y, z, radius)
+                    : Map.of();
+        }
+    }
+
+    private record LoadTracking(Set<ChestKey> changed, Set<String> cleared) {
+    }
+
+    private static String normalizeScopeId(String scopeId) {
+        return ScopeUtil.normalizeScopeId(scopeId, DEFAULT_SCOPE_ID);
     }
 }
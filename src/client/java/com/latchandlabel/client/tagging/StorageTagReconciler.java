@@ -2,6 +2,7 @@ package com.latchandlabel.client.tagging;
 
 import com.latchandlabel.client.LatchLabel;
 import com.latchandlabel.client.model.ChestKey;
+import com.latchandlabel.client.store.TagMutator;
 import com.latchandlabel.client.store.TagStore;
 import com.latchandlabel.client.targeting.StorageKeyResolver;
 import com.latchandlabel.client.targeting.TrackableStorage;
@@ -104,12 +105,17 @@ public final class StorageTagReconciler {
             LatchLabel.LOGGER.debug("[Reconciler] {}: checked={} migrate={} remove={}",
                     context, tags.size(), toMigrate.size(), toRemove.size());
         }
-        for (Map.Entry<ChestKey, ChestKey> migration : toMigrate) {
-            migrateTag(migration.getKey(), migration.getValue());
-        }
-        for (ChestKey key : toRemove) {
-            tagStore.clearTag(key);
+        if (toMigrate.isEmpty() && toRemove.isEmpty()) {
+            return;
         }
+        tagStore.batch(mutator -> {
+            for (Map.Entry<ChestKey, ChestKey> migration : toMigrate) {
+                migrateTag(mutator, migration.getKey(), migration.getValue());
+            }
+            for (ChestKey key : toRemove) {
+                mutator.clearTag(key);
+            }
+        });
     }
 
     private Optional<ChestKey> resolveSplitFallback(Level world, ChestKey missingKey) {
@@ -149,27 +155,27 @@ public final class StorageTagReconciler {
         return Optional.of(candidate);
     }
 
-    private void migrateTag(ChestKey source, ChestKey destination) {
+    private static void migrateTag(TagMutator mutator, ChestKey source, ChestKey destination) {
         if (source.equals(destination)) {
             return;
         }
 
-        Optional<String> sourceCategory = tagStore.getTag(source);
+        Optional<String> sourceCategory = mutator.getTag(source);
         if (sourceCategory.isEmpty()) {
             return;
         }
 
-        Optional<String> destinationCategory = tagStore.getTag(destination);
+        Optional<String> destinationCategory = mutator.getTag(destination);
         if (destinationCategory.isEmpty()) {
             LatchLabel.LOGGER.debug("[Reconciler] migrateTag {} -> {} cat={}", source, destination, sourceCategory.get());
-            tagStore.setTag(destination, sourceCategory.get());
-            tagStore.clearTag(source);
+            mutator.setTag(destination, sourceCategory.get());
+            mutator.clearTag(source);
             return;
         }
 
         if (destinationCategory.get().equals(sourceCategory.get())) {
             LatchLabel.LOGGER.debug("[Reconciler] migrateTag {} -> {} (same cat, clearing source)", source, destination);
-            tagStore.clearTag(source);
+            mutator.clearTag(source);
         }
     }
 }
@@ -65,12 +65,14 @@ public final class StorageTagResolver {
             return;
         }
 
-        Optional<String> existingPreferred = tagStore.getTag(preferredKey);
-        if (existingPreferred.isEmpty()) {
-            tagStore.setTag(preferredKey, categoryId);
-        }
-        if (existingPreferred.isEmpty() || Objects.equals(existingPreferred.get(), categoryId)) {
-            tagStore.clearTag(sourceKey);
-        }
+        tagStore.batch(tags -> {
+            Optional<String> existingPreferred = tags.getTag(preferredKey);
+            if (existingPreferred.isEmpty()) {
+                tags.setTag(preferredKey, categoryId);
+            }
+            if (existingPreferred.isEmpty() || Objects.equals(existingPreferred.get(), categoryId)) {
+                tags.clearTag(sourceKey);
+            }
+        });
     }
 }
@@ -36,6 +36,19 @@ public final class StorageKeyResolver {
         return Optional.of(new ChestKey(world.dimension().identifier(), resolvedPos));
     }
 
+    /**
+     * Resolves the key from the container's own block state, without reading its neighbours: a
+     * double chest half maps to the lower of the two positions its state points at. Safe to call
+     * while chunks load, where reading across a chunk border could load the neighbouring chunk.
+     */
+    public static ChestKey keyForState(Identifier dimensionId, BlockPos pos, BlockState state) {
+        BlockPos resolvedPos = pos;
+        if (state.getBlock() instanceof ChestBlock && state.getValue(ChestBlock.TYPE) != ChestType.SINGLE) {
+            resolvedPos = lowerPos(pos, pos.relative(partnerDirection(state)));
+        }
+        return new ChestKey(dimensionId, resolvedPos.immutable());
+    }
+
     public static ChestKey normalizeForWorld(Level world, ChestKey key) {
         if (world == null || key == null) {
             return key;
@@ -122,10 +135,7 @@ public final class StorageKeyResolver {
         }
 
         Direction facing = state.getValue(ChestBlock.FACING);
-        Direction partnerDirection = chestType == ChestType.LEFT
-                ? facing.getClockWise()
-                : facing.getCounterClockWise();
-        BlockPos partnerPos = pos.relative(partnerDirection);
+        BlockPos partnerPos = pos.relative(partnerDirection(state));
         BlockState partnerState = world.getBlockState(partnerPos);
         if (!(partnerState.getBlock() instanceof ChestBlock)) {
             return Optional.empty();
@@ -140,6 +150,13 @@ public final class StorageKeyResolver {
         return Optional.of(partnerPos.immutable());
     }
 
+    private static Direction partnerDirection(BlockState state) {
+        Direction facing = state.getValue(ChestBlock.FACING);
+        return state.getValue(ChestBlock.TYPE) == ChestType.LEFT
+                ? facing.getClockWise()
+                : facing.getCounterClockWise();
+    }
+
     private static BlockPos lowerPos(BlockPos a, BlockPos b) {
         if (a.getX() != b.getX()) {
             return a.getX() <= b.getX() ? a : b;
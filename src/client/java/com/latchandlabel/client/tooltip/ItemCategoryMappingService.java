@@ -1,12 +1,16 @@
 package com.latchandlabel.client.tooltip;
 
+import com.latchandlabel.client.store.StoreEvent;
+import com.latchandlabel.client.store.StoreEventBus;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.Identifier;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -28,12 +32,24 @@ public final class ItemCategoryMappingService {
 
     private record OverrideSnapshot(Map<Identifier, String> overrides, Set<Identifier> blocked) {}
 
-    private Runnable changeListener = () -> {
-    };
+    private final StoreEventBus events;
     private Map<Identifier, String> defaultMappings = Map.of();
     private volatile OverrideSnapshot overrideSnapshot = new OverrideSnapshot(new LinkedHashMap<>(), new LinkedHashSet<>());
     private volatile Map<Identifier, String> mergedMappings = Map.of();
 
+    public ItemCategoryMappingService() {
+        this(new StoreEventBus());
+    }
+
+    public ItemCategoryMappingService(StoreEventBus events) {
+        this.events = Objects.requireNonNull(events, "events");
+    }
+
+    /** The bus override changes are posted to as {@link StoreEvent.OverrideChanged}. */
+    public StoreEventBus events() {
+        return events;
+    }
+
     public void initialize() {
         defaultMappings = ItemCategoryMappings.createDefaults();
         overrideSnapshot = new OverrideSnapshot(new LinkedHashMap<>(), new LinkedHashSet<>());
@@ -89,10 +105,10 @@ public final class ItemCategoryMappingService {
         Map<Identifier, String> newOverrides = new LinkedHashMap<>(snap.overrides());
         Set<Identifier> newBlocked = new LinkedHashSet<>(snap.blocked());
         newBlocked.remove(itemId);
-        newOverrides.put(itemId, normalizedCategoryId);
+        String previousCategoryId = newOverrides.put(itemId, normalizedCategoryId);
         overrideSnapshot = new OverrideSnapshot(newOverrides, newBlocked);
         rebuildMergedMappings();
-        notifyChanged();
+        events.post(new StoreEvent.OverrideChanged(itemId, previousCategoryId, normalizedCategoryId, false));
     }
 
     public boolean removeOverride(Identifier itemId) {
@@ -106,11 +122,11 @@ public final class ItemCategoryMappingService {
         }
         Map<Identifier, String> newOverrides = new LinkedHashMap<>(snap.overrides());
         Set<Identifier> newBlocked = new LinkedHashSet<>(snap.blocked());
-        newOverrides.remove(itemId);
+        String previousCategoryId = newOverrides.remove(itemId);
         newBlocked.remove(itemId);
         overrideSnapshot = new OverrideSnapshot(newOverrides, newBlocked);
         rebuildMergedMappings();
-        notifyChanged();
+        events.post(new StoreEvent.OverrideChanged(itemId, previousCategoryId, null, false));
         return true;
     }
 
@@ -122,11 +138,11 @@ public final class ItemCategoryMappingService {
         OverrideSnapshot snap = overrideSnapshot;
         Map<Identifier, String> newOverrides = new LinkedHashMap<>(snap.overrides());
         Set<Identifier> newBlocked = new LinkedHashSet<>(snap.blocked());
-        newOverrides.remove(itemId);
+        String previousCategoryId = newOverrides.remove(itemId);
         newBlocked.add(itemId);
         overrideSnapshot = new OverrideSnapshot(newOverrides, newBlocked);
         rebuildMergedMappings();
-        notifyChanged();
+        events.post(new StoreEvent.OverrideChanged(itemId, previousCategoryId, null, true));
     }
 
     public boolean isMappedToCategory(Identifier itemId, String categoryId) {
@@ -168,11 +184,20 @@ public final class ItemCategoryMappingService {
 
         OverrideSnapshot snap = overrideSnapshot;
         Map<Identifier, String> newOverrides = new LinkedHashMap<>(snap.overrides());
-        boolean changed = newOverrides.entrySet().removeIf(entry -> normalizedCategoryId.equals(entry.getValue()));
-        if (changed) {
+        List<Identifier> removed = new ArrayList<>();
+        newOverrides.entrySet().removeIf(entry -> {
+            boolean matches = normalizedCategoryId.equals(entry.getValue());
+            if (matches) {
+                removed.add(entry.getKey());
+            }
+            return matches;
+        });
+        if (!removed.isEmpty()) {
             overrideSnapshot = new OverrideSnapshot(newOverrides, new LinkedHashSet<>(snap.blocked()));
             rebuildMergedMappings();
-            notifyChanged();
+            for (Identifier itemId : removed) {
+                events.post(new StoreEvent.OverrideChanged(itemId, normalizedCategoryId, null, false));
+            }
         }
     }
 
@@ -192,10 +217,6 @@ public final class ItemCategoryMappingService {
         return immutableSetCopy(overrideSnapshot.blocked());
     }
 
-    public void setChangeListener(Runnable changeListener) {
-        this.changeListener = Objects.requireNonNull(changeListener, "changeListener");
-    }
-
     public static String normalizeCategoryId(String categoryId) {
         if (categoryId == null) {
             return null;
@@ -217,10 +238,6 @@ public final class ItemCategoryMappingService {
         mergedMappings = immutableMapCopy(defaults);
     }
 
-    private void notifyChanged() {
-        changeListener.run();
-    }
-
     private static <K, V> Map<K, V> immutableMapCopy(Map<K, V> source) {
         return Collections.unmodifiableMap(new LinkedHashMap<>(source));
     }
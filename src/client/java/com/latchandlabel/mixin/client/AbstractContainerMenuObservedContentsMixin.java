@@ -1,7 +1,9 @@
 package com.latchandlabel.mixin.client;
 
 import com.latchandlabel.client.find.ContainerObserver;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.AbstractContainerMenu;
+import net.minecraft.world.inventory.ContainerInput;
 import net.minecraft.world.item.ItemStack;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -16,4 +18,15 @@ public abstract class AbstractContainerMenuObservedContentsMixin {
     private void latchlabel$onInitializeContents(int revision, List<ItemStack> stacks, ItemStack cursorStack, CallbackInfo ci) {
         ContainerObserver.onContainerContents((AbstractContainerMenu) (Object) this);
     }
+
+    @Inject(method = "setItem", at = @At("TAIL"))
+    private void latchlabel$onSetItem(int slotId, int revision, ItemStack stack, CallbackInfo ci) {
+        ContainerObserver.onSlotChanged((AbstractContainerMenu) (Object) this, slotId);
+    }
+
+    // The player's own moves are predicted locally and usually never echoed back as slot updates.
+    @Inject(method = "clicked", at = @At("TAIL"))
+    private void latchlabel$onClicked(int slotId, int button, ContainerInput input, Player player, CallbackInfo ci) {
+        ContainerObserver.onClicked((AbstractContainerMenu) (Object) this);
+    }
 }
@@ -1,7 +1,10 @@
 package com.latchandlabel.client.data;
 
+import com.google.gson.JsonObject;
+import com.latchandlabel.client.config.StorageSettings;
 import com.latchandlabel.client.model.ChestKey;
 import com.latchandlabel.client.store.CategoryStore;
+import com.latchandlabel.client.store.StoreEventBus;
 import com.latchandlabel.client.store.TagStore;
 import com.latchandlabel.client.tooltip.ItemCategoryMappingService;
 import net.minecraft.resources.Identifier;
@@ -11,8 +14,12 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -92,6 +99,60 @@ final class ClientDataManagerTest {
         }
     }
 
+    @Test
+    void flushRewritesOnlyChangedTagShards() throws Exception {
+        ChestKey nearKey = FALLBACK_KEY;
+        ChestKey farKey = new ChestKey(Identifier.tryParse("minecraft:the_nether"), new BlockPos(-600, 64, 1030));
+        Path shardsDir = tempDir.resolve("scopes").resolve("primary").resolve("tags");
+        Path nearShard = shardsDir.resolve("minecraft").resolve("overworld").resolve("r.0.0.lls");
+        Path farShard = shardsDir.resolve("minecraft").resolve("the_nether").resolve("r.-2.2.lls");
+
+        TagStore tagStore = new TagStore();
+        ClientDataManager manager = new ClientDataManager(
+                new CategoryStore(),
+                tagStore,
+                new ItemCategoryMappingService(),
+                tempDir
+        );
+
+        try {
+            manager.initialize();
+            manager.setActiveScopeId("primary", List.of());
+            tagStore.setTag(nearKey, "custom_category");
+            manager.flushNow();
+            assertTrue(Files.exists(nearShard));
+
+            FileTime untouched = FileTime.fromMillis(1_000L);
+            Files.setLastModifiedTime(nearShard, untouched);
+            tagStore.setTag(farKey, "custom_category");
+            manager.flushNow();
+            assertTrue(Files.exists(farShard));
+            assertTrue(Files.getLastModifiedTime(nearShard).equals(untouched), "Unchanged shard must not be rewritten");
+
+            tagStore.clearTag(farKey);
+            manager.flushNow();
+            assertFalse(Files.exists(farShard), "Emptied shard must be removed");
+        } finally {
+            manager.close();
+        }
+
+        TagStore reloaded = new TagStore();
+        ClientDataManager reloadedManager = new ClientDataManager(
+                new CategoryStore(),
+                reloaded,
+                new ItemCategoryMappingService(),
+                tempDir
+        );
+        try {
+            reloadedManager.initialize();
+            reloadedManager.setActiveScopeId("primary", List.of());
+            assertTrue(reloaded.getTag(nearKey).isPresent());
+            assertFalse(reloaded.getTag(farKey).isPresent());
+        } finally {
+            reloadedManager.close();
+        }
+    }
+
     @Test
     void profiledMultiplayerScopeMigratesBaseServerData() throws Exception {
         Path baseScope = tempDir.resolve("scopes").resolve("mp_example.org_25565");
@@ -147,4 +208,240 @@ final class ClientDataManagerTest {
             manager.close();
         }
     }
+
+    @Test
+    void debouncedSaveJournalsTagChangesUntilCompaction() throws Exception {
+        ChestKey otherKey = new ChestKey(Identifier.tryParse("minecraft:overworld"), new BlockPos(40, 64, 8));
+        Path scopeDir = tempDir.resolve("scopes").resolve("primary");
+        Path shard = scopeDir.resolve("tags").resolve("minecraft").resolve("overworld").resolve("r.0.0.lls");
+        Path journal = scopeDir.resolve("tags.journal");
+        Path categories = scopeDir.resolve("categories_and_overrides.json");
+
+        StoreEventBus events = new StoreEventBus();
+        TagStore tagStore = new TagStore(events);
+        ClientDataManager manager = new ClientDataManager(
+                new CategoryStore(events),
+                tagStore,
+                new ItemCategoryMappingService(events),
+                tempDir
+        );
+
+        try {
+            manager.initialize();
+            manager.setActiveScopeId("primary", List.of());
+            tagStore.setTag(FALLBACK_KEY, "custom_category");
+            manager.flushNow();
+            assertTrue(Files.exists(shard));
+            assertFalse(Files.exists(journal));
+
+            FileTime untouched = FileTime.fromMillis(1_000L);
+            Files.setLastModifiedTime(shard, untouched);
+            Files.setLastModifiedTime(categories, untouched);
+            tagStore.setTag(otherKey, "wood");
+            tagStore.clearTag(FALLBACK_KEY);
+            events.flush();
+            manager.flushIncremental();
+            assertTrue(Files.exists(journal));
+            assertTrue(Files.getLastModifiedTime(shard).equals(untouched), "Journaled changes must not rewrite shards");
+            assertTrue(Files.getLastModifiedTime(categories).equals(untouched), "Unchanged categories must not be rewritten");
+
+            manager.reloadTagsFromDisk();
+            assertFalse(tagStore.getTag(FALLBACK_KEY).isPresent());
+            assertTrue(tagStore.getTag(otherKey).isPresent());
+
+            manager.flushNow();
+            assertFalse(Files.exists(journal), "Compaction must fold the journal into the shards");
+            manager.reloadTagsFromDisk();
+            assertFalse(tagStore.getTag(FALLBACK_KEY).isPresent());
+            assertTrue(tagStore.getTag(otherKey).isPresent());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void tornJournalTailIsCompactedBeforeTheNextAppend() throws Exception {
+        ChestKey journaledKey = new ChestKey(Identifier.tryParse("minecraft:overworld"), new BlockPos(40, 64, 8));
+        ChestKey laterKey = new ChestKey(Identifier.tryParse("minecraft:overworld"), new BlockPos(72, 64, 8));
+        Path journal = tempDir.resolve("scopes").resolve("primary").resolve("tags.journal");
+
+        StoreEventBus events = new StoreEventBus();
+        TagStore tagStore = new TagStore(events);
+        ClientDataManager manager = new ClientDataManager(
+                new CategoryStore(events),
+                tagStore,
+                new ItemCategoryMappingService(events),
+                tempDir
+        );
+
+        try {
+            manager.initialize();
+            manager.setActiveScopeId("primary", List.of());
+            tagStore.setTag(FALLBACK_KEY, "custom_category");
+            manager.flushNow();
+            tagStore.setTag(journaledKey, "wood");
+            events.flush();
+            manager.flushIncremental();
+            assertTrue(Files.exists(journal));
+
+            // The client died mid-append: an op byte and half of a key.
+            Files.write(journal, new byte[]{'T', 0, 40, 'm', 'i', 'n'}, StandardOpenOption.APPEND);
+            manager.reloadTagsFromDisk();
+            assertTrue(tagStore.getTag(journaledKey).isPresent(), "Records before the torn one must survive");
+            assertFalse(Files.exists(journal), "A torn journal must be compacted before it is appended to");
+
+            tagStore.setTag(laterKey, "ores");
+            events.flush();
+            manager.flushIncremental();
+            manager.reloadTagsFromDisk();
+            assertEquals("custom_category", tagStore.getTag(FALLBACK_KEY).orElseThrow());
+            assertEquals("wood", tagStore.getTag(journaledKey).orElseThrow());
+            assertEquals("ores", tagStore.getTag(laterKey).orElseThrow());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void jsonTagShardsMigrateToCompressedBinaryAndExportAsJson() throws Exception {
+        Path scopeDir = tempDir.resolve("scopes").resolve("primary");
+        Path shardDir = scopeDir.resolve("tags").resolve("minecraft").resolve("overworld");
+        Files.createDirectories(shardDir);
+        Files.writeString(scopeDir.resolve("tags.json"), """
+                {
+                  "version": 2,
+                  "lastUsedCategoryId": "custom_category"
+                }
+                """);
+        Files.writeString(shardDir.resolve("r.0.0.json"), """
+                {
+                  "version": 1,
+                  "tags": {
+                    "minecraft:overworld|4,64,8": "custom_category",
+                    "minecraft:overworld|3,-12,500": "wood"
+                  }
+                }
+                """);
+
+        StoreEventBus events = new StoreEventBus();
+        TagStore tagStore = new TagStore(events);
+        ClientDataManager manager = new ClientDataManager(
+                new CategoryStore(events),
+                tagStore,
+                new ItemCategoryMappingService(events),
+                tempDir
+        );
+
+        boolean compress = StorageSettings.compressTagShards();
+        StorageSettings.setCompressTagShards(true);
+        try {
+            manager.initialize();
+            manager.setActiveScopeId("primary", List.of());
+            Path binaryShard = shardDir.resolve("r.0.0.lls");
+            assertFalse(Files.exists(shardDir.resolve("r.0.0.json")), "JSON shards must be replaced on load");
+            assertTrue(Files.exists(binaryShard));
+            byte[] header = Files.readAllBytes(binaryShard);
+            assertEquals(0x1F, header[0] & 0xFF);
+            assertEquals(0x8B, header[1] & 0xFF);
+            assertFalse(Files.readString(scopeDir.resolve("tags.json")).contains("\n"), "Manifest must be compact");
+
+            manager.reloadTagsFromDisk();
+            assertEquals("custom_category", tagStore.getTag(FALLBACK_KEY).orElseThrow());
+            ChestKey deepKey = new ChestKey(Identifier.tryParse("minecraft:overworld"), new BlockPos(3, -12, 500));
+            assertEquals("wood", tagStore.getTag(deepKey).orElseThrow());
+
+            JsonObject exported = manager.exportTagsJson("primary");
+            assertEquals("custom_category", exported.get("lastUsedCategoryId").getAsString());
+            assertEquals("wood", exported.getAsJsonObject("tags").get("minecraft:overworld|3,-12,500").getAsString());
+            assertEquals(2, exported.getAsJsonObject("tags").size());
+        } finally {
+            StorageSettings.setCompressTagShards(compress);
+            manager.close();
+        }
+    }
+
+    @Test
+    void priorityDimensionLoadsFirstAndTheRestMergesUnderEdits() throws Exception {
+        Identifier nether = Identifier.tryParse("minecraft:the_nether");
+        ChestKey netherKey = new ChestKey(nether, new BlockPos(-600, 70, 1200));
+        ChestKey editedKey = new ChestKey(nether, new BlockPos(-601, 70, 1200));
+        StoreEventBus seedEvents = new StoreEventBus();
+        TagStore seedStore = new TagStore(seedEvents);
+        ClientDataManager seed = new ClientDataManager(
+                new CategoryStore(seedEvents), seedStore, new ItemCategoryMappingService(seedEvents), tempDir);
+        try {
+            seed.initialize();
+            seed.setActiveScopeId("primary", List.of());
+            seedStore.setTag(FALLBACK_KEY, "custom_category");
+            seedStore.setTag(netherKey, "ores");
+            seedStore.setTag(editedKey, "ores");
+        } finally {
+            seed.close();
+        }
+
+        StoreEventBus events = new StoreEventBus();
+        TagStore tagStore = new TagStore(events);
+        ClientDataManager manager = new ClientDataManager(
+                new CategoryStore(events), tagStore, new ItemCategoryMappingService(events), tempDir);
+        try {
+            manager.initialize();
+            manager.setActiveScopeId("primary", List.of(), Identifier.tryParse("minecraft:overworld"));
+            assertEquals("custom_category", tagStore.getTag(FALLBACK_KEY).orElseThrow());
+            tagStore.setTag(editedKey, "wood");
+
+            manager.completePendingTagLoad();
+            assertEquals("ores", tagStore.getTag(netherKey).orElseThrow());
+            assertEquals("wood", tagStore.getTag(editedKey).orElseThrow());
+
+            manager.flushNow();
+            manager.reloadTagsFromDisk();
+            assertEquals("ores", tagStore.getTag(netherKey).orElseThrow());
+            assertEquals("wood", tagStore.getTag(editedKey).orElseThrow());
+            assertEquals("custom_category", tagStore.getTag(FALLBACK_KEY).orElseThrow());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void preloadedScopeSwitchesInBackgroundAndKeepsEditsMadeWhileLoading() throws Exception {
+        ChestKey editedKey = new ChestKey(FALLBACK_KEY.dimensionId(), new BlockPos(5, 64, 8));
+        StoreEventBus seedEvents = new StoreEventBus();
+        TagStore seedStore = new TagStore(seedEvents);
+        ClientDataManager seed = new ClientDataManager(
+                new CategoryStore(seedEvents), seedStore, new ItemCategoryMappingService(seedEvents), tempDir);
+        try {
+            seed.initialize();
+            seed.setActiveScopeId("primary", List.of());
+            seedStore.setTag(FALLBACK_KEY, "custom_category");
+            seedStore.setTag(editedKey, "ores");
+        } finally {
+            seed.close();
+        }
+
+        StoreEventBus events = new StoreEventBus();
+        TagStore tagStore = new TagStore(events);
+        ClientDataManager manager = new ClientDataManager(
+                new CategoryStore(events), tagStore, new ItemCategoryMappingService(events), tempDir);
+        try {
+            manager.initialize();
+            manager.preloadScope("primary", List.of()).join();
+            // The switch uses the preloaded read, not what is on disk now.
+            Files.delete(tempDir.resolve("scopes").resolve("primary").resolve("tags.json"));
+
+            CompletableFuture<Void> loading = manager.switchActiveScope("primary", List.of(), null);
+            tagStore.setTag(editedKey, "wood");
+            loading.join();
+            assertFalse(tagStore.isLoading());
+            assertEquals("custom_category", tagStore.getTag(FALLBACK_KEY).orElseThrow());
+            assertEquals("wood", tagStore.getTag(editedKey).orElseThrow());
+
+            manager.flushNow();
+            manager.reloadTagsFromDisk();
+            assertEquals("custom_category", tagStore.getTag(FALLBACK_KEY).orElseThrow());
+            assertEquals("wood", tagStore.getTag(editedKey).orElseThrow());
+        } finally {
+            manager.close();
+        }
+    }
 }
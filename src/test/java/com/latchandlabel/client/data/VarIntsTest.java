@@ -0,0 +1,49 @@
+package com.latchandlabel.client.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class VarIntsTest {
+    @Test
+    void varintsRoundTripAcrossByteBoundaries() throws IOException {
+        int[] values = {0, 1, 127, 128, 299, 16_383, 16_384, 2_097_151, 2_097_152, Integer.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            VarInts.write(out, value);
+        }
+        assertEquals(1 + 1 + 1 + 2 + 2 + 2 + 3 + 3 + 4 + 5, bytes.size());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : values) {
+            assertEquals(value, VarInts.read(in));
+        }
+    }
+
+    @Test
+    void zigzagKeepsSmallNegativeDeltasShort() throws IOException {
+        int[] deltas = {0, -1, 1, -64, 63, -65, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int delta : deltas) {
+            assertEquals(delta, VarInts.unzigzag(VarInts.zigzag(delta)));
+            VarInts.write(out, VarInts.zigzag(delta));
+        }
+        assertEquals(1 + 1 + 1 + 1 + 1 + 2 + 5 + 5, bytes.size());
+    }
+
+    @Test
+    void overlongVarintIsRejected() {
+        byte[] bytes = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertThrows(IOException.class, () -> VarInts.read(in));
+    }
+}
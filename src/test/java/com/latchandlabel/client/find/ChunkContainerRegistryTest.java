@@ -0,0 +1,85 @@
+package com.latchandlabel.client.find;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.ChestBlock;
+import net.minecraft.world.level.block.entity.ChestBlockEntity;
+import net.minecraft.world.level.block.entity.SignBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.ChestType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class ChunkContainerRegistryTest {
+    private static final Identifier OVERWORLD = Identifier.tryParse("minecraft:overworld");
+    // Chunk (1, 0); its west neighbour at x = 17 is the other half once it becomes a double chest.
+    private static final BlockPos POS = new BlockPos(18, 64, 5);
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @BeforeEach
+    void reset() {
+        ChunkContainerRegistry.clear();
+    }
+
+    @Test
+    void containersAreKeyedByChunkAndRekeyedWhenTheirStateChanges() {
+        BlockState single = Blocks.CHEST.defaultBlockState().setValue(ChestBlock.FACING, Direction.NORTH);
+        ChestBlockEntity chest = new ChestBlockEntity(POS, single);
+        ChunkContainerRegistry.add(OVERWORLD, chest);
+        ChunkContainerRegistry.add(OVERWORLD, new ChestBlockEntity(new BlockPos(-1, 64, -1), single));
+        ChunkContainerRegistry.add(OVERWORLD, new SignBlockEntity(new BlockPos(20, 64, 5), Blocks.OAK_SIGN.defaultBlockState()));
+
+        long chunk = ChunkContainerRegistry.chunkKey(1, 0);
+        assertEquals(List.of(chunk), ChunkContainerRegistry.chunksWithin(OVERWORLD, 0, 2, 0, 0));
+        assertEquals(-1, ChunkContainerRegistry.chunkX(ChunkContainerRegistry.chunkKey(-1, -1)));
+        assertEquals(-1, ChunkContainerRegistry.chunkZ(ChunkContainerRegistry.chunkKey(-1, -1)));
+        List<ChunkContainerRegistry.Entry> containers = ChunkContainerRegistry.containersIn(OVERWORLD, chunk);
+        assertEquals(1, containers.size());
+        ChunkContainerRegistry.Entry entry = containers.get(0);
+        assertEquals(new ChestKey(OVERWORLD, POS), entry.key());
+
+        // A chest placed to the west joins it: facing north, this half is the right one.
+        chest.setBlockState(single.setValue(ChestBlock.TYPE, ChestType.RIGHT));
+        assertEquals(new ChestKey(OVERWORLD, POS.west()), entry.key());
+        chest.setBlockState(single);
+        assertEquals(new ChestKey(OVERWORLD, POS), entry.key());
+    }
+
+    @Test
+    void removingAStaleBlockEntityKeepsItsReplacement() {
+        BlockState single = Blocks.CHEST.defaultBlockState();
+        ChestBlockEntity original = new ChestBlockEntity(POS, single);
+        ChestBlockEntity replacement = new ChestBlockEntity(POS, single);
+        long chunk = ChunkContainerRegistry.chunkKey(1, 0);
+        ChunkContainerRegistry.add(OVERWORLD, original);
+        ChunkContainerRegistry.add(OVERWORLD, replacement);
+
+        ChunkContainerRegistry.remove(OVERWORLD, original);
+        assertEquals(1, ChunkContainerRegistry.containersIn(OVERWORLD, chunk).size());
+        assertSame(replacement, ChunkContainerRegistry.containersIn(OVERWORLD, chunk).get(0).blockEntity());
+
+        ChunkContainerRegistry.remove(OVERWORLD, replacement);
+        assertTrue(ChunkContainerRegistry.chunksWithin(OVERWORLD, 0, 2, 0, 0).isEmpty());
+
+        ChunkContainerRegistry.add(OVERWORLD, original);
+        ChunkContainerRegistry.removeChunk(OVERWORLD, chunk);
+        assertTrue(ChunkContainerRegistry.containersIn(OVERWORLD, chunk).isEmpty());
+    }
+}
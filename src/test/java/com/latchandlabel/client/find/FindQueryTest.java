@@ -0,0 +1,156 @@
+package com.latchandlabel.client.find;
+
+import com.latchandlabel.client.model.ChestKey;
+import com.mojang.brigadier.StringReader;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class FindQueryTest {
+    private static Item diamond;
+    private static Item oakLog;
+    private static Item birchLog;
+    private static FindQuery.Lookup lookup;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        diamond = Items.DIAMOND;
+        oakLog = Items.OAK_LOG;
+        birchLog = Items.BIRCH_LOG;
+        Map<String, Item> itemsById = Map.of("diamond", diamond, "oak_log", oakLog, "birch_log", birchLog);
+        Map<String, Set<Item>> tags = Map.of("minecraft:logs", Set.of(oakLog, birchLog), "minecraft:empty", Set.of());
+        Map<String, String> categories = Map.of("ores", "ores", "Wood", "wood");
+        lookup = new FindQuery.Lookup() {
+            @Override
+            public Optional<Item> item(String id) {
+                return Optional.ofNullable(itemsById.get(id));
+            }
+
+            @Override
+            public Optional<Set<Item>> itemTag(String id) {
+                return Optional.ofNullable(tags.get(id));
+            }
+
+            @Override
+            public Optional<String> category(String idOrName) {
+                return Optional.ofNullable(categories.get(idOrName));
+            }
+        };
+    }
+
+    @Test
+    void notBindsTighterThanAndWhichBindsTighterThanOr() {
+        FindQuery query = FindQuery.parse("item:diamond | item:oak_log & !stale", lookup);
+
+        assertTrue(query.test(chest(Set.of(diamond), true, null, 1.0)));
+        assertTrue(query.test(chest(Set.of(oakLog), false, null, 1.0)));
+        assertFalse(query.test(chest(Set.of(oakLog), true, null, 1.0)));
+
+        FindQuery negated = FindQuery.parse("!item:diamond & item:oak_log", lookup);
+        assertTrue(negated.test(chest(Set.of(oakLog), false, null, 1.0)));
+        assertFalse(negated.test(chest(Set.of(oakLog, diamond), false, null, 1.0)));
+    }
+
+    @Test
+    void parenthesesGroup() {
+        FindQuery query = FindQuery.parse("(item:diamond | item:oak_log) & !stale", lookup);
+
+        assertFalse(query.test(chest(Set.of(diamond), true, null, 1.0)));
+        assertTrue(query.test(chest(Set.of(diamond), false, null, 1.0)));
+        assertFalse(FindQuery.parse("!(stale | item:diamond)", lookup).test(chest(Set.of(diamond), false, null, 1.0)));
+    }
+
+    @Test
+    void eachTermTestsItsFact() {
+        assertTrue(FindQuery.parse("item:diamond", lookup).test(chest(Set.of(diamond), false, null, 1.0)));
+        assertFalse(FindQuery.parse("item:diamond", lookup).test(chest(Set.of(oakLog), false, null, 1.0)));
+
+        FindQuery logs = FindQuery.parse("tag:#minecraft:logs", lookup);
+        assertTrue(logs.test(chest(Set.of(birchLog), false, null, 1.0)));
+        assertFalse(logs.test(chest(Set.of(diamond), false, null, 1.0)));
+        assertEquals(Set.of(oakLog, birchLog), logs.items());
+        assertTrue(FindQuery.parse("tag:minecraft:logs", lookup).test(chest(Set.of(oakLog), false, null, 1.0)));
+
+        FindQuery ores = FindQuery.parse("category:ores", lookup);
+        assertTrue(ores.test(chest(Set.of(), false, "ores", 1.0)));
+        assertFalse(ores.test(chest(Set.of(), false, null, 1.0)));
+        assertEquals(Set.of("ores"), ores.categoryIds());
+        FindQuery byName = FindQuery.parse("category:Wood", lookup);
+        assertTrue(byName.test(chest(Set.of(), false, "wood", 1.0)));
+        assertEquals(Set.of("wood"), byName.categoryIds());
+
+        assertTrue(FindQuery.parse("stale", lookup).test(chest(Set.of(), true, null, 1.0)));
+        assertFalse(FindQuery.parse("STALE", lookup).test(chest(Set.of(), false, null, 1.0)));
+
+        FindQuery within = FindQuery.parse("within:16", lookup);
+        assertTrue(within.test(chest(Set.of(), false, null, 16.0)));
+        assertFalse(within.test(chest(Set.of(), false, null, 16.5)));
+    }
+
+    @Test
+    void radiusBoundAndCandidatesFollowTheOperators() {
+        assertEquals(OptionalDouble.of(16.0), FindQuery.parse("within:64 & item:diamond & within:16", lookup).radiusBound());
+        assertEquals(OptionalDouble.of(64.0), FindQuery.parse("within:64 | within:16", lookup).radiusBound());
+        assertEquals(OptionalDouble.empty(), FindQuery.parse("within:16 | item:diamond", lookup).radiusBound());
+
+        Identifier overworld = Identifier.tryParse("minecraft:overworld");
+        ChestKey withDiamond = new ChestKey(overworld, new BlockPos(0, 64, 0));
+        ChestKey ofOres = new ChestKey(overworld, new BlockPos(1, 64, 0));
+        FindQuery query = FindQuery.parse("item:diamond | category:ores & !stale", lookup);
+        assertEquals(Optional.of(Set.of(withDiamond, ofOres)), query.candidates(
+                items -> items.contains(diamond) ? Set.of(withDiamond) : Set.of(),
+                categoryId -> categoryId.equals("ores") ? Set.of(ofOres) : Set.of()));
+        assertEquals(Optional.empty(), FindQuery.parse("item:diamond | !category:ores", lookup)
+                .candidates(items -> Set.of(withDiamond), categoryId -> Set.of(ofOres)));
+    }
+
+    @Test
+    void malformedQueriesExplainWhatIsWrong() {
+        assertError("Expected a term at the end", "item:diamond &");
+        assertError("Expected a term at the end", "item:diamond | !");
+        assertError("Expected a term before '|'", "| item:diamond");
+        assertError("Unknown term: colour:red", "colour:red");
+        assertError("Missing ')'", "(item:diamond | stale");
+        assertError("Unexpected ')'", "item:diamond)");
+        assertError("Unknown item: emerald", "item:emerald");
+        assertError("Unknown or empty item tag: #minecraft:empty", "tag:#minecraft:empty");
+        assertError("Unknown category: food", "category:food");
+        assertError("'stale' takes no value", "stale:yes");
+        assertError("within needs a distance from 1 to 256, got: 0", "within:0");
+        assertError("within needs a distance from 1 to 256, got: far", "within:far");
+    }
+
+    @Test
+    void argumentTypeReadsOneWordKeepingSeparators() {
+        StringReader reader = new StringReader("minecraft:iron_ingot,#ores 32");
+
+        assertEquals("minecraft:iron_ingot,#ores", FindQueryArgumentType.query().parse(reader));
+        assertEquals(" 32", reader.getRemaining());
+    }
+
+    private static void assertError(String message, String input) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> FindQuery.parse(input, lookup));
+        assertEquals(message, error.getMessage());
+    }
+
+    private static FindQuery.ChestFacts chest(Set<Item> items, boolean stale, String categoryId, double distance) {
+        return new FindQuery.ChestFacts(items, stale, categoryId, distance);
+    }
+}
@@ -0,0 +1,313 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class ObservedIndexStoreTest {
+    private static final String SCOPE = "world";
+    private static final Identifier OVERWORLD = Identifier.tryParse("minecraft:overworld");
+    private static final ChestKey FIRST = new ChestKey(OVERWORLD, new BlockPos(1, 64, 1));
+    private static final ChestKey SECOND = new ChestKey(OVERWORLD, new BlockPos(2, 64, 1));
+    private static final ChestKey THIRD = new ChestKey(OVERWORLD, new BlockPos(3, 64, 1));
+    // Region r.1.0, so it lives in its own shard.
+    private static final ChestKey OTHER_REGION = new ChestKey(OVERWORLD, new BlockPos(600, 64, 1));
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @Test
+    void journalReplaysRecordsStaleMarksAndEvictions() throws Exception {
+        List<Item> items = items(3);
+        ObservedIndexStore store = open();
+        store.record(FIRST, Set.of(items.get(0), items.get(1)));
+        store.record(SECOND, Set.of(items.get(2)));
+        store.record(THIRD, Set.of(items.get(0)));
+        store.markStale(SECOND);
+        store.record(THIRD, Set.of());
+        store.close();
+
+        assertTrue(Files.exists(shardFile("r.0.0.journal")));
+        assertFalse(Files.exists(shardFile("r.0.0.snapshot")));
+        ObservedIndexStore reopened = openLoaded(FIRST);
+        try {
+            assertEquals(Optional.of(Set.of(items.get(0), items.get(1))), reopened.itemsFor(FIRST));
+            assertEquals(Optional.of(Set.of(items.get(2))), reopened.itemsFor(SECOND));
+            assertFalse(reopened.isStale(FIRST));
+            assertTrue(reopened.isStale(SECOND));
+            assertEquals(Optional.empty(), reopened.itemsFor(THIRD));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void compactedSnapshotReplaysWithTheJournalWrittenAfterIt() throws Exception {
+        List<Item> items = items(3);
+        ObservedIndexStore store = open();
+        // Alternating contents journal a record each time, enough to pass the compaction threshold.
+        for (int i = 0; i < 6000; i++) {
+            store.record(FIRST, Set.of(items.get(i % 2)));
+        }
+        store.flushAll();
+        assertTrue(Files.exists(shardFile("r.0.0.snapshot")));
+        assertFalse(Files.exists(shardFile("r.0.0.journal")));
+
+        store.record(SECOND, Set.of(items.get(2)));
+        store.markStale(FIRST);
+        store.close();
+        assertTrue(Files.exists(shardFile("r.0.0.journal")));
+
+        ObservedIndexStore reopened = openLoaded(FIRST);
+        try {
+            assertEquals(Optional.of(Set.of(items.get(1))), reopened.itemsFor(FIRST));
+            assertTrue(reopened.isStale(FIRST));
+            assertEquals(Optional.of(Set.of(items.get(2))), reopened.itemsFor(SECOND));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void tornJournalTailIsDroppedAndLaterRecordsStayReadable() throws Exception {
+        List<Item> items = items(3);
+        ObservedIndexStore store = open();
+        store.record(FIRST, Set.of(items.get(0)));
+        store.flushAll();
+        store.record(SECOND, Set.of(items.get(1)));
+        store.close();
+        Path journal = shardFile("r.0.0.journal");
+        byte[] bytes = Files.readAllBytes(journal);
+        Files.write(journal, Arrays.copyOf(bytes, bytes.length - 3));
+
+        ObservedIndexStore reopened = openLoaded(FIRST);
+        reopened.record(THIRD, Set.of(items.get(2)));
+        reopened.close();
+
+        ObservedIndexStore again = openLoaded(FIRST);
+        try {
+            assertEquals(Optional.of(Set.of(items.get(0))), again.itemsFor(FIRST));
+            assertEquals(Optional.empty(), again.itemsFor(SECOND));
+            assertEquals(Optional.of(Set.of(items.get(2))), again.itemsFor(THIRD));
+        } finally {
+            again.close();
+        }
+    }
+
+    @Test
+    void readsThePreviousFormatVersionAndReplacesOlderOnes() throws Exception {
+        Item item = items(1).get(0);
+        writeJournal(shardFile("r.0.0.journal"), 3, FIRST, item);
+        Path oldJournal = shardFile("r.1.0.journal");
+        writeJournal(oldJournal, 2, OTHER_REGION, item);
+
+        ObservedIndexStore store = openLoaded(FIRST, OTHER_REGION);
+        try {
+            assertEquals(Optional.of(Set.of(item)), store.itemsFor(FIRST));
+            assertEquals(Optional.empty(), store.itemsFor(OTHER_REGION));
+        } finally {
+            store.close();
+        }
+
+        assertFalse(Files.exists(oldJournal));
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(shardFile("r.1.0.snapshot")))) {
+            assertEquals(ObservedIndexJournal.MAGIC, in.readInt());
+            assertEquals(ObservedIndexJournal.FORMAT_VERSION, in.readInt());
+        }
+    }
+
+    @Test
+    void itemIdsRoundTripAsMultiByteVarintsThroughPerShardDictionaries() throws Exception {
+        List<Item> items = items(300);
+        Item first = items.get(0);
+        Item last = items.get(299);
+        ObservedIndexStore store = open();
+        // Each shard numbers items in the order it first sees them, so id 0 differs between the two.
+        store.record(FIRST, Set.of(first));
+        store.record(OTHER_REGION, Set.of(last));
+        store.record(SECOND, Set.copyOf(items));
+        store.record(THIRD, Set.of(first, last));
+        store.close();
+
+        ObservedIndexStore reopened = openLoaded(FIRST, OTHER_REGION);
+        try {
+            assertEquals(Optional.of(Set.of(first)), reopened.itemsFor(FIRST));
+            assertEquals(Optional.of(Set.of(last)), reopened.itemsFor(OTHER_REGION));
+            assertEquals(Optional.of(Set.copyOf(items)), reopened.itemsFor(SECOND));
+            assertEquals(Optional.of(Set.of(first, last)), reopened.itemsFor(THIRD));
+            assertFalse(reopened.containsAny(FIRST, Set.of(last)));
+            assertTrue(reopened.containsAny(OTHER_REGION, Set.of(last)));
+            assertEquals(Set.of(SECOND, THIRD, OTHER_REGION),
+                    reopened.keysContainingAny(Set.of(last), OVERWORLD, 300.0, 64.0, 1.0, 400.0));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void identicalChestsShareOneContentSetOnDiskAndAfterReload() throws Exception {
+        List<Item> items = items(2);
+        ObservedIndexStore store = open();
+        for (int x = 0; x < 40; x++) {
+            store.record(new ChestKey(OVERWORLD, new BlockPos(x, 64, 0)), Set.of(items.get(0)));
+        }
+        for (int x = 0; x < 30; x++) {
+            store.record(new ChestKey(OVERWORLD, new BlockPos(x, 65, 0)), Set.of(items.get(1)));
+        }
+        store.close();
+
+        int[] counts = new int[2]; // content sets, chest records
+        ObservedIndexJournal.replay(shardFile("r.0.0.journal"), new NoOpSink() {
+            @Override
+            public void defineContentSet(int setId, int[] itemIds) {
+                counts[0]++;
+            }
+
+            @Override
+            public void record(ChestKey key, int setId, long observedAt, long staleSince) {
+                counts[1]++;
+            }
+        });
+        assertEquals(2, counts[0]);
+        assertEquals(70, counts[1]);
+
+        ObservedIndexStore reopened = openLoaded(FIRST);
+        try {
+            ObservedIndexStore.ScopeStats stats = reopened.scopeStats().get(0);
+            assertEquals(70, stats.chests());
+            assertEquals(2, stats.distinctContentSets());
+            assertEquals(Optional.of(Set.of(items.get(1))), reopened.itemsFor(new ChestKey(OVERWORLD, new BlockPos(29, 65, 0))));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void nestedContentsReplayPerHolderAndResetWithTheChest() throws Exception {
+        List<Item> items = items(5);
+        Item loose = items.get(0);
+        ObservedIndexStore.NestedHolder shulker = new ObservedIndexStore.NestedHolder(items.get(1), "Ores");
+        ObservedIndexStore.NestedHolder bundle = new ObservedIndexStore.NestedHolder(items.get(2), null);
+        ObservedIndexStore store = open();
+        store.record(FIRST, Set.of(loose), Map.of(
+                shulker, Set.of(items.get(3), items.get(4)),
+                bundle, Set.of(items.get(3))
+        ));
+        store.close();
+
+        ObservedIndexStore reopened = openLoaded(FIRST);
+        try {
+            assertEquals(Optional.of(Set.of(loose)), reopened.itemsFor(FIRST));
+            assertEquals(Optional.of(Set.of(loose, items.get(3), items.get(4))), reopened.allItemsFor(FIRST));
+            assertEquals(Optional.of(shulker), reopened.nestedHolder(FIRST, Set.of(items.get(4))));
+            assertEquals(Optional.empty(), reopened.nestedHolder(FIRST, Set.of(loose)));
+            assertTrue(reopened.containsAny(FIRST, Set.of(items.get(3))));
+            reopened.record(FIRST, Set.of(loose), Map.of());
+        } finally {
+            reopened.close();
+        }
+
+        ObservedIndexStore again = openLoaded(FIRST);
+        try {
+            assertEquals(Optional.of(Set.of(loose)), again.allItemsFor(FIRST));
+            assertEquals(Optional.empty(), again.nestedHolder(FIRST, Set.of(items.get(4))));
+        } finally {
+            again.close();
+        }
+    }
+
+    private ObservedIndexStore open() {
+        return new ObservedIndexStore(() -> SCOPE, tempDir);
+    }
+
+    /** Opens the store from disk with the shards holding {@code keys} loaded. */
+    private ObservedIndexStore openLoaded(ChestKey... keys) throws Exception {
+        ObservedIndexStore store = open();
+        for (ChestKey key : keys) {
+            store.prefetch(key.dimensionId(), key.pos());
+        }
+        store.awaitLoads();
+        return store;
+    }
+
+    private Path shardFile(String name) {
+        return tempDir.resolve("scopes").resolve(SCOPE).resolve("observed")
+                .resolve("minecraft").resolve("overworld").resolve(name);
+    }
+
+    /** A one-chest journal in the given format version, written the way that version's client did. */
+    private static void writeJournal(Path file, int version, ChestKey key, Item item) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(ObservedIndexJournal.MAGIC);
+            out.writeInt(version);
+            ObservedIndexJournal.writeDefine(out, 0, BuiltInRegistries.ITEM.getKey(item).toString());
+            ObservedIndexJournal.writeContentSet(out, 0, new int[]{0});
+            ObservedIndexJournal.writeRecord(out, key, 0, 1_000L, 0L);
+        }
+    }
+
+    /** Ignores every record; tests override the ones they count. */
+    private static class NoOpSink implements ObservedIndexJournal.Sink {
+        @Override
+        public void define(int itemId, String rawItemId) {
+        }
+
+        @Override
+        public void defineContentSet(int setId, int[] itemIds) {
+        }
+
+        @Override
+        public void record(ChestKey key, int setId, long observedAt, long staleSince) {
+        }
+
+        @Override
+        public void nested(ChestKey key, int holderItemId, String customName, int setId) {
+        }
+
+        @Override
+        public void stale(ChestKey key, long staleSince) {
+        }
+
+        @Override
+        public void evict(ChestKey key) {
+        }
+
+        @Override
+        public void tornTail() {
+        }
+    }
+
+    private static List<Item> items(int count) {
+        return BuiltInRegistries.ITEM.stream().filter(item -> item != Items.AIR).limit(count).toList();
+    }
+}
@@ -0,0 +1,45 @@
+package com.latchandlabel.client.store;
+
+import com.latchandlabel.client.model.ChestKey;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.Identifier;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+final class PackedTagMapTest {
+    private static final List<Identifier> DIMENSIONS = List.of(
+            Identifier.tryParse("minecraft:overworld"),
+            Identifier.tryParse("minecraft:the_nether")
+    );
+    private static final List<String> CATEGORIES = List.of("ores", "wood", "food");
+
+    @Test
+    void matchesHashMapThroughGrowthAndRemovals() {
+        PackedTagMap packed = new PackedTagMap(new Interner<>(), new Interner<>());
+        Map<ChestKey, String> expected = new HashMap<>();
+        Random random = new Random(42L);
+
+        for (int i = 0; i < 20_000; i++) {
+            ChestKey key = new ChestKey(
+                    DIMENSIONS.get(random.nextInt(DIMENSIONS.size())),
+                    new BlockPos(random.nextInt(64) - 32, random.nextInt(384) - 64, random.nextInt(64) - 32)
+            );
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), packed.remove(key));
+            } else {
+                String categoryId = CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+                assertEquals(expected.put(key, categoryId), packed.put(key, categoryId));
+            }
+            assertEquals(expected.get(key), packed.get(key));
+        }
+
+        assertEquals(expected.size(), packed.size());
+        assertEquals(expected, packed.toMap());
+    }
+}
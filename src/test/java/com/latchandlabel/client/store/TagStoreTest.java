@@ -12,6 +12,8 @@ import java.util.Map;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 final class TagStoreTest {
@@ -78,4 +80,220 @@ final class TagStoreTest {
         assertFalse(store.snapshotTags().containsKey(KEY));
         assertEquals("fallback_category", store.snapshotTagsForScope("legacy").get(KEY));
     }
+
+    @Test
+    void radiusQueriesFollowTagMutationsAndScopeSwitches() {
+        Identifier overworld = Identifier.tryParse("minecraft:overworld");
+        Identifier nether = Identifier.tryParse("minecraft:the_nether");
+        ChestKey near = new ChestKey(overworld, new BlockPos(4, 64, 4));
+        ChestKey acrossChunk = new ChestKey(overworld, new BlockPos(-3, 64, 4));
+        ChestKey far = new ChestKey(overworld, new BlockPos(200, 64, 200));
+        ChestKey otherDimension = new ChestKey(nether, new BlockPos(4, 64, 4));
+        TagStore store = new TagStore();
+        store.setActiveScopeId("world");
+        store.setTag(near, "ores");
+        store.setTag(acrossChunk, "wood");
+        store.setTag(far, "ores");
+        store.setTag(otherDimension, "ores");
+
+        Map<ChestKey, String> within = store.tagsWithin(overworld, 0.5, 64.5, 0.5, 16.0);
+        assertEquals(Map.of(near, "ores", acrossChunk, "wood"), within);
+        assertEquals(within, store.snapshot().tagsWithin(overworld, 0.5, 64.5, 0.5, 16.0));
+        assertEquals(List.of(acrossChunk, near),
+                List.copyOf(store.nearestTags(overworld, -2.5, 64.5, 4.5, 2, 512.0).keySet()));
+
+        store.clearTag(acrossChunk);
+        store.clearCategoryReferences("ores");
+        assertTrue(store.tagsWithin(overworld, 0.5, 64.5, 0.5, 512.0).isEmpty());
+        assertTrue(store.snapshot().tagsWithin(overworld, 0.5, 64.5, 0.5, 512.0).isEmpty());
+
+        store.setActiveScopeId("other");
+        store.setTag(near, "wood");
+        store.setActiveScopeId("world");
+        assertTrue(store.tagsWithin(overworld, 0.5, 64.5, 0.5, 16.0).isEmpty());
+        assertTrue(store.snapshot().tagsWithin(overworld, 0.5, 64.5, 0.5, 16.0).isEmpty());
+
+        // Enough changes to refreeze the snapshot base and its spatial index.
+        for (int i = 0; i < 100; i++) {
+            store.setTag(new ChestKey(overworld, new BlockPos(i, 64, 0)), "ores");
+        }
+        store.clearTag(new ChestKey(overworld, new BlockPos(3, 64, 0)));
+        store.setTag(near, "wood");
+        assertEquals(store.tagsWithin(overworld, 0.5, 64.5, 0.5, 16.0),
+                store.snapshot().tagsWithin(overworld, 0.5, 64.5, 0.5, 16.0));
+        assertEquals(17, store.snapshot().tagsWithin(overworld, 0.5, 64.5, 0.5, 16.0).size());
+    }
+
+    @Test
+    void snapshotIsSharedUntilActiveScopeChanges() {
+        TagStore store = new TagStore();
+        store.setTag(KEY, "ores");
+        TagStore.Snapshot first = store.snapshot();
+
+        assertTrue(first.tags() == store.snapshotTags());
+        store.setTag(KEY, "ores");
+        store.setLastUsedCategoryId("wood");
+        assertEquals(first.version(), store.version());
+
+        store.setTag(KEY, "wood");
+        assertTrue(store.version() > first.version());
+        assertEquals("ores", first.tags().get(KEY));
+        assertEquals("wood", store.snapshotTags().get(KEY));
+    }
+
+    @Test
+    void categoryIndexFollowsRetagsClearsAndReplace() {
+        ChestKey other = new ChestKey(Identifier.tryParse("minecraft:overworld"), new BlockPos(9, 64, 9));
+        TagStore store = new TagStore();
+        store.setTag(KEY, "ores");
+        store.setTag(other, "ores");
+        store.setTag(other, "wood");
+
+        assertEquals(java.util.Set.of(KEY), store.keysForCategory("ores"));
+        assertEquals(java.util.Set.of(other), store.keysForCategory("wood"));
+
+        store.clearTag(KEY);
+        assertTrue(store.keysForCategory("ores").isEmpty());
+
+        store.replaceAll(Map.of(KEY, "wood", other, "wood"), null);
+        assertEquals(java.util.Set.of(KEY, other), store.keysForCategory("wood"));
+
+        store.clearCategoryReferences("wood");
+        assertTrue(store.keysForCategory("wood").isEmpty());
+        assertTrue(store.snapshotTags().isEmpty());
+    }
+
+    @Test
+    void changesAreBatchedAsDeltasUntilFlush() {
+        StoreEventBus events = new StoreEventBus();
+        List<List<StoreEvent>> batches = new java.util.ArrayList<>();
+        events.subscribe(batches::add);
+        TagStore store = new TagStore(events);
+        store.setActiveScopeId("world");
+        store.setTag(KEY, "ores");
+        store.setTag(KEY, "ores");
+        store.clearTag(KEY);
+        assertTrue(batches.isEmpty());
+
+        events.flush();
+        assertEquals(List.of(
+                new StoreEvent.ScopeSwitched(TagStore.DEFAULT_SCOPE_ID, "world"),
+                new StoreEvent.TagChanged("world", KEY, null, "ores"),
+                new StoreEvent.LastUsedCategoryChanged("world", "ores"),
+                new StoreEvent.TagChanged("world", KEY, "ores", null)
+        ), batches.get(0));
+
+        events.flush();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void batchPublishesNetChangesOnceAndRollsBackOnFailure() {
+        ChestKey other = new ChestKey(Identifier.tryParse("minecraft:overworld"), new BlockPos(9, 64, 9));
+        StoreEventBus events = new StoreEventBus();
+        List<List<StoreEvent>> batches = new java.util.ArrayList<>();
+        events.subscribe(batches::add);
+        TagStore store = new TagStore(events);
+        store.setTag(KEY, "ores");
+        events.flush();
+        long version = store.version();
+
+        store.batch(tags -> {
+            tags.setTag(other, "ores");
+            tags.clearTag(KEY);
+            tags.setTag(KEY, "wood");
+            tags.clearTag(KEY);
+        });
+        assertEquals(version + 1, store.version());
+        assertEquals(Map.of(other, "ores"), store.snapshotTags());
+        events.flush();
+        assertEquals(List.of(
+                new StoreEvent.TagChanged(TagStore.DEFAULT_SCOPE_ID, other, null, "ores"),
+                new StoreEvent.TagChanged(TagStore.DEFAULT_SCOPE_ID, KEY, "ores", null),
+                new StoreEvent.LastUsedCategoryChanged(TagStore.DEFAULT_SCOPE_ID, "wood")
+        ), batches.get(1));
+
+        RuntimeException failure = new RuntimeException("boom");
+        RuntimeException thrown = org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () ->
+                store.batch(tags -> {
+                    tags.setTag(KEY, "food");
+                    tags.clearTag(other);
+                    throw failure;
+                }));
+        assertEquals(failure, thrown);
+        assertEquals(version + 1, store.version());
+        assertEquals(Map.of(other, "ores"), store.snapshotTags());
+        assertEquals(java.util.Set.of(other), store.keysForCategory("ores"));
+        assertTrue(store.keysForCategory("food").isEmpty());
+        assertEquals("wood", store.getLastUsedCategoryId().orElseThrow());
+        events.flush();
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void lateLoadedTagsNeverOverrideChangesMadeWhileLoading() {
+        Identifier nether = Identifier.tryParse("minecraft:the_nether");
+        ChestKey edited = new ChestKey(nether, new BlockPos(0, 40, 0));
+        ChestKey ofClearedCategory = new ChestKey(nether, new BlockPos(8, 40, 0));
+        ChestKey untouched = new ChestKey(nether, new BlockPos(16, 40, 0));
+        TagStore store = new TagStore();
+        store.replaceAllScopes(Map.of("primary", Map.of(KEY, "ores")), Map.of(), "primary", List.of());
+        store.expectLoadedTags("primary");
+
+        store.setTag(edited, "wood");
+        store.clearCategoryReferences("food");
+        assertEquals(-1, store.mergeLoadedTags("other", Map.of(untouched, "ores")));
+        int added = store.mergeLoadedTags("primary", Map.of(
+                edited, "ores",
+                ofClearedCategory, "food",
+                untouched, "ores"
+        ));
+
+        assertEquals(1, added);
+        assertEquals(Map.of(KEY, "ores", edited, "wood", untouched, "ores"), store.snapshotTags());
+        assertEquals(java.util.Set.of(KEY, untouched), store.keysForCategory("ores"));
+        assertEquals(-1, store.mergeLoadedTags("primary", Map.of(ofClearedCategory, "ores")));
+    }
+
+    @Test
+    void snapshotsShareFrozenTagsAndStayConsistentAcrossMutations() {
+        Identifier overworld = Identifier.tryParse("minecraft:overworld");
+        Map<ChestKey, String> initial = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            initial.put(new ChestKey(overworld, new BlockPos(i, 64, 0)), i % 2 == 0 ? "ores" : "wood");
+        }
+        TagStore store = new TagStore();
+        store.replaceAllScopes(Map.of("world", initial), Map.of(), "world", List.of());
+        SnapshotTagMap loaded = (SnapshotTagMap) store.snapshotTags();
+        ChestKey retagged = new ChestKey(overworld, new BlockPos(0, 64, 0));
+        ChestKey cleared = new ChestKey(overworld, new BlockPos(1, 64, 0));
+        ChestKey added = new ChestKey(overworld, new BlockPos(0, 70, 0));
+
+        store.setTag(retagged, "wood");
+        store.clearTag(cleared);
+        store.setTag(added, "food");
+        SnapshotTagMap mutated = (SnapshotTagMap) store.snapshotTags();
+
+        assertSame(loaded.base(), mutated.base());
+        assertEquals(3, mutated.changeCount());
+        Map<ChestKey, String> expected = new HashMap<>(initial);
+        expected.put(retagged, "wood");
+        expected.remove(cleared);
+        expected.put(added, "food");
+        assertEquals(expected, mutated);
+        assertEquals(expected, new HashMap<>(mutated));
+        assertEquals(expected.size(), mutated.entrySet().size());
+        assertFalse(mutated.containsKey(cleared));
+        assertEquals(initial, loaded);
+
+        for (int i = 0; i < 100; i++) {
+            store.setTag(new ChestKey(overworld, new BlockPos(i, 80, 0)), "ores");
+        }
+        SnapshotTagMap refrozen = (SnapshotTagMap) store.snapshotTags();
+        assertNotSame(loaded.base(), refrozen.base());
+        assertTrue(refrozen.changeCount() < 100);
+        assertEquals(expected.size() + 100, refrozen.size());
+        assertEquals("food", refrozen.get(added));
+        assertEquals(expected, mutated);
+    }
 }